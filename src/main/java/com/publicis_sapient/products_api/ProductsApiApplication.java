@@ -2,34 +2,48 @@ package com.publicis_sapient.products_api;
 
 import java.util.concurrent.CompletableFuture;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+import com.publicis_sapient.products_api.dto.LoadReport;
 import com.publicis_sapient.products_api.service.ProductService;
 
 @SpringBootApplication
-@EnableCaching
 @EnableAsync
+@EnableScheduling
 public class ProductsApiApplication implements CommandLineRunner {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductsApiApplication.class);
+
 	@Autowired
 	ProductService productService;
 
+	@Value("${catalog.load-on-startup:true}")
+	boolean loadOnStartup;
+
 	public static void main(String[] args) {
 		SpringApplication.run(ProductsApiApplication.class, args);
 	}
 
 	@Override
 	public void run(String... args) throws Exception {
+		if (!loadOnStartup) {
+			LOGGER.info("Initial product load disabled.");
+			return;
+		}
 		CompletableFuture.runAsync(() -> {
 			try {
-				productService.loadProducts();
+				LoadReport report = productService.loadProducts();
+				LOGGER.info("Initial product load finished: {}", report);
 			} catch (Exception e) {
-				e.printStackTrace();
+				LOGGER.error("Initial product load failed: {}", e.getMessage(), e);
 			}
 		});
 	}
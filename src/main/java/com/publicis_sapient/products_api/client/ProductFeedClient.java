@@ -0,0 +1,227 @@
+package com.publicis_sapient.products_api.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.publicis_sapient.products_api.dto.ProductDTO;
+import com.publicis_sapient.products_api.entity.ProductResponse;
+import com.publicis_sapient.products_api.exception.ProductFeedException;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Non-blocking client for the upstream products feed.
+ *
+ * The first page is fetched to learn the catalog size, then the remaining
+ * pages are fetched concurrently with at most {@code maxInFlight} requests
+ * outstanding. Retries and the circuit breaker apply to each page on its own,
+ * so one slow or failing page does not restart the whole load.
+ */
+@Component
+public class ProductFeedClient {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductFeedClient.class);
+
+	private static final String RESILIENCE_INSTANCE = "productApi";
+
+	private final HttpClient httpClient;
+	private final ObjectMapper objectMapper;
+	private final Retry retry;
+	private final CircuitBreaker circuitBreaker;
+	private final ScheduledExecutorService retryScheduler;
+
+	private final String productsApiUrl;
+	private final int pageSize;
+	private final int maxInFlight;
+	private final Duration readTimeout;
+
+	public ProductFeedClient(HttpClient httpClient, ObjectMapper objectMapper, RetryRegistry retryRegistry,
+			CircuitBreakerRegistry circuitBreakerRegistry, @Value("${external.api.products}") String productsApiUrl,
+			@Value("${external.api.page-size:100}") int pageSize,
+			@Value("${external.api.max-in-flight:4}") int maxInFlight,
+			@Value("${external.api.read-timeout:10s}") Duration readTimeout) {
+		this.httpClient = httpClient;
+		this.objectMapper = objectMapper;
+		this.retry = retryRegistry.retry(RESILIENCE_INSTANCE);
+		this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(RESILIENCE_INSTANCE);
+		this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "product-feed-retry");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.productsApiUrl = productsApiUrl;
+		this.pageSize = pageSize;
+		this.maxInFlight = Math.max(1, maxInFlight);
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * Fetches the whole feed and returns the products in feed order.
+	 */
+	public CompletableFuture<List<ProductDTO>> fetchAll() {
+		Map<Integer, List<ProductDTO>> pagesBySkip = new ConcurrentSkipListMap<>();
+		return fetchPages((skip, products) -> {
+			pagesBySkip.put(skip, products);
+			return CompletableFuture.completedFuture(null);
+		}).thenApply(total -> {
+			List<ProductDTO> products = new ArrayList<>(total);
+			pagesBySkip.values().forEach(products::addAll);
+			return products;
+		});
+	}
+
+	/**
+	 * Streams the feed page by page to the sink on the calling thread, which may
+	 * block in it for as long as it likes, and returns the total product count
+	 * reported by the feed. Fetching pauses while pages wait for the sink, so at
+	 * most {@code maxInFlight} pages are held here and the client's threads are
+	 * never the ones blocked.
+	 */
+	public int fetchInto(Consumer<List<ProductDTO>> sink) throws InterruptedException {
+		BlockingQueue<PageHandoff> handoff = new LinkedBlockingQueue<>();
+		CompletableFuture<Integer> fetched = fetchPages((skip, products) -> {
+			CompletableFuture<Void> taken = new CompletableFuture<>();
+			handoff.add(new PageHandoff(products, taken));
+			return taken;
+		});
+		fetched.whenComplete((total, failure) -> handoff.add(PageHandoff.END));
+		try {
+			for (PageHandoff page = handoff.take(); page != PageHandoff.END; page = handoff.take()) {
+				sink.accept(page.products());
+				page.taken().complete(null);
+			}
+		} catch (InterruptedException | RuntimeException e) {
+			// Stop the fetch chains waiting on pages that will not be taken now
+			handoff.forEach(page -> page.taken().cancel(false));
+			fetched.cancel(false);
+			throw e;
+		}
+		return fetched.join();
+	}
+
+	/**
+	 * Streams the feed page by page to the given consumer and completes with the
+	 * total product count reported by the feed. Pages may arrive out of order and
+	 * from several threads at once, so the consumer must be thread-safe. It runs
+	 * on the HTTP client's threads and must not block them; the page's fetch chain
+	 * waits for the stage it returns before requesting the next page.
+	 */
+	public CompletableFuture<Integer> fetchPages(PageConsumer pageConsumer) {
+		LOGGER.info("Fetching products from external API: {} (pageSize={}, maxInFlight={})", productsApiUrl,
+				pageSize, maxInFlight);
+
+		return fetchPage(0).thenCompose(firstPage -> {
+			CompletionStage<?> firstTaken = pageConsumer.accept(0, firstPage.getProducts());
+
+			int firstSize = firstPage.getProducts().size();
+			int total = firstPage.getTotal() != null ? firstPage.getTotal() : firstSize;
+			// The feed may cap the page size below what we asked for, so page by what it returned
+			int step = firstSize > 0 ? firstSize : pageSize;
+			AtomicInteger nextSkip = new AtomicInteger(step);
+
+			// Each chain pulls the next unclaimed page when its previous one completes,
+			// which caps the number of requests in flight without blocking a thread.
+			List<CompletableFuture<?>> chains = new ArrayList<>();
+			chains.add(firstTaken.toCompletableFuture());
+			for (int i = 0; i < maxInFlight; i++) {
+				chains.add(fetchRemaining(nextSkip, step, total, pageConsumer));
+			}
+			return CompletableFuture.allOf(chains.toArray(new CompletableFuture[0])).thenApply(done -> total);
+		});
+	}
+
+	private CompletableFuture<Void> fetchRemaining(AtomicInteger nextSkip, int step, int total,
+			PageConsumer pageConsumer) {
+		int skip = nextSkip.getAndAdd(step);
+		if (skip >= total) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return fetchPage(skip).thenCompose(page -> pageConsumer.accept(skip, page.getProducts()))
+				.thenCompose(taken -> fetchRemaining(nextSkip, step, total, pageConsumer));
+	}
+
+	private CompletableFuture<ProductResponse> fetchPage(int skip) {
+		Supplier<CompletionStage<ProductResponse>> request = () -> requestPage(skip);
+		Supplier<CompletionStage<ProductResponse>> guarded = CircuitBreaker.decorateCompletionStage(circuitBreaker,
+				request);
+		return Retry.decorateCompletionStage(retry, retryScheduler, guarded).get().toCompletableFuture();
+	}
+
+	private CompletableFuture<ProductResponse> requestPage(int skip) {
+		URI uri = URI.create(productsApiUrl + (productsApiUrl.contains("?") ? "&" : "?") + "limit=" + pageSize
+				+ "&skip=" + skip);
+		HttpRequest request = HttpRequest.newBuilder(uri).timeout(readTimeout).header("Accept", "application/json")
+				.header("Accept-Encoding", "gzip").GET().build();
+
+		LOGGER.debug("Requesting feed page {}", uri);
+		return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+				.thenApply(response -> parsePage(uri, response));
+	}
+
+	private ProductResponse parsePage(URI uri, HttpResponse<byte[]> response) {
+		if (response.statusCode() != 200) {
+			throw new ProductFeedException("Feed page " + uri + " returned HTTP " + response.statusCode());
+		}
+		boolean gzipped = response.headers().firstValue("Content-Encoding").map(e -> e.equalsIgnoreCase("gzip"))
+				.orElse(false);
+		try (InputStream body = gzipped ? new GZIPInputStream(new ByteArrayInputStream(response.body()))
+				: new ByteArrayInputStream(response.body())) {
+			ProductResponse page = objectMapper.readValue(body, ProductResponse.class);
+			if (page == null || page.getProducts() == null) {
+				throw new ProductFeedException("Feed page " + uri + " has no products element");
+			}
+			return page;
+		} catch (IOException e) {
+			throw new ProductFeedException("Could not read feed page " + uri + ": " + e.getMessage(), e);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		retryScheduler.shutdownNow();
+	}
+
+	@FunctionalInterface
+	public interface PageConsumer {
+		/**
+		 * Takes the page, or queues it and returns a stage that completes once it
+		 * has been taken.
+		 */
+		CompletionStage<?> accept(int skip, List<ProductDTO> products);
+	}
+
+	private record PageHandoff(List<ProductDTO> products, CompletableFuture<Void> taken) {
+		private static final PageHandoff END = new PageHandoff(List.of(), CompletableFuture.completedFuture(null));
+	}
+
+}
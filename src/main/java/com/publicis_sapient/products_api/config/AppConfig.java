@@ -1,24 +1,61 @@
 package com.publicis_sapient.products_api.config;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.modelmapper.ModelMapper;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-import org.springframework.web.client.RestTemplate;
+
+import com.publicis_sapient.products_api.controller.ProductController;
+import com.publicis_sapient.products_api.dao.ProductRepository;
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+import com.publicis_sapient.products_api.service.CatalogViewService;
+import com.publicis_sapient.products_api.service.ChangeStreamService;
+import com.publicis_sapient.products_api.service.ProductSearchService;
+import com.publicis_sapient.products_api.service.ProductService;
+import com.publicis_sapient.products_api.service.ProductSuggestService;
 
 @Configuration
 public class AppConfig {
 
+	/**
+	 * Threads the HTTP client completes responses on, stopped with the context.
+	 */
+	@Bean(destroyMethod = "shutdownNow")
+	public ExecutorService httpClientExecutor(@Value("${external.api.client-threads:4}") int clientThreads) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("http-client-");
+		threadFactory.setDaemon(true);
+		return Executors.newFixedThreadPool(clientThreads, threadFactory);
+	}
+
+	/**
+	 * Shared client for upstream calls. The JDK client keeps connections alive
+	 * and reuses them across requests (HTTP/2 where the upstream supports it).
+	 */
 	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
+	public HttpClient httpClient(@Value("${external.api.connect-timeout:2s}") Duration connectTimeout,
+			@Qualifier("httpClientExecutor") ExecutorService httpClientExecutor) {
+		return HttpClient.newBuilder().connectTimeout(connectTimeout).followRedirects(HttpClient.Redirect.NORMAL)
+				.executor(httpClientExecutor).build();
 	}
 
+	/**
+	 * Beans created at startup even with lazy initialization on, so the first
+	 * request does not pay for building the read path.
+	 */
 	@Bean
-	public CacheManager cacheManager() {
-		return new ConcurrentMapCacheManager("products", "productsByCategory");
+	public static LazyInitializationExcludeFilter hotPathBeans() {
+		return LazyInitializationExcludeFilter.forBeanTypes(ProductController.class, ProductService.class,
+				CatalogGenerationService.class, ProductRepository.class, ProductSearchService.class,
+				ProductSuggestService.class, ChangeStreamService.class, CatalogViewService.class);
 	}
 
 	@Bean
@@ -1,18 +1,47 @@
 package com.publicis_sapient.products_api.controller;
 
-import com.publicis_sapient.products_api.entity.Product;
+import com.publicis_sapient.products_api.dto.ImportProgress;
+import com.publicis_sapient.products_api.dto.LoadReport;
+import com.publicis_sapient.products_api.dto.ReviewPage;
+import com.publicis_sapient.products_api.dto.StockLevel;
+import com.publicis_sapient.products_api.exception.ProductNotFoundException;
+import com.publicis_sapient.products_api.search.SuggestIndex;
+import com.publicis_sapient.products_api.service.CatalogExportService;
+import com.publicis_sapient.products_api.service.ChangeStreamService;
+import com.publicis_sapient.products_api.service.ProductImportService;
+import com.publicis_sapient.products_api.service.ProductSearchService;
+import com.publicis_sapient.products_api.service.ProductSuggestService;
 import com.publicis_sapient.products_api.service.ProductService;
+import com.publicis_sapient.products_api.service.StockService;
+import com.publicis_sapient.products_api.view.ProductView;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
 
 @RestController
 @RequestMapping("/api/v1/products")
@@ -20,37 +49,72 @@ import java.util.List;
 @Tag(name = "Products", description = "Operations related to Products")
 public class ProductController {
 
+	private static final int MAX_SEARCH_LIMIT = 100;
+	private static final int MAX_SUGGEST_LIMIT = 20;
+	private static final int MAX_REVIEW_PAGE_SIZE = 100;
+
+	// Tomcat sends a file named in these request attributes itself, with sendfile
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
 	private final ProductService productService;
+	private final ProductSearchService searchService;
+	private final ProductSuggestService suggestService;
+	private final StockService stockService;
+	private final ChangeStreamService changeStreamService;
+	private final CatalogExportService exportService;
+	private final ProductImportService importService;
+	private final Counter exportsSentByTomcat;
+	private final Counter exportsSentByChannel;
 
-	public ProductController(ProductService productService) {
+	public ProductController(ProductService productService, ProductSearchService searchService,
+			ProductSuggestService suggestService, StockService stockService, ChangeStreamService changeStreamService,
+			CatalogExportService exportService, ProductImportService importService, MeterRegistry meterRegistry) {
 		this.productService = productService;
+		this.searchService = searchService;
+		this.suggestService = suggestService;
+		this.stockService = stockService;
+		this.changeStreamService = changeStreamService;
+		this.exportService = exportService;
+		this.importService = importService;
+		this.exportsSentByTomcat = Counter.builder("catalog.export.sent").tag("transfer", "sendfile")
+				.register(meterRegistry);
+		this.exportsSentByChannel = Counter.builder("catalog.export.sent").tag("transfer", "channel")
+				.register(meterRegistry);
 	}
 
 	/**
 	 * Loads products from an external API into the database.
 	 */
-	/*
-	 * @Operation(summary = "Load products", description =
-	 * "Load products into the database from external API.")
-	 * 
-	 * @GetMapping("/load") public ResponseEntity<String> loadProducts() { try {
-	 * log.info("Loading products from external API...");
-	 * productService.loadProducts(); log.info("Products loaded successfully.");
-	 * return ResponseEntity.ok("Products loaded successfully!"); } catch (Exception
-	 * e) { log.error("Error loading products: {}", e.getMessage(), e); return
-	 * ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-	 * .body("Failed to load products. Please try again later."); } }
-	 */
+	@Operation(summary = "Load products", description = "Load products into the database from external API and report throughput and failures.")
+	@GetMapping("/load")
+	public ResponseEntity<LoadReport> loadProducts() {
+		log.info("Loading products from external API...");
+		LoadReport report = productService.loadProducts();
+		if (report.getStatus() == LoadReport.Status.FAILED) {
+			log.error("Error loading products: {}", report.getError());
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(report);
+		}
+		log.info("Products loaded: {} saved, {} dead-lettered.", report.getProductsSaved(),
+				report.getProductsDeadLettered());
+		return ResponseEntity.ok(report);
+	}
 
 	/**
-	 * Retrieves all products or filters them by category.
+	 * Retrieves all products or filters them by category. With {@code q}, runs
+	 * a relevance-ranked full-text search instead; it is not combined with the
+	 * other filters.
 	 */
-	@Operation(summary = "Get products", description = "Retrieve a list of products, optionally filtered by category, name, SKU, and sort order.")
+	@Operation(summary = "Get products", description = "Retrieve a list of products, optionally filtered by category, name, SKU, and sort order, or the best matches for a full-text query.")
 	@GetMapping
-	public ResponseEntity<List<Product>> getProducts(
+	public ResponseEntity<List<ProductView>> getProducts(
 			@RequestParam(value = "category", required = false) @Parameter(description = "Category to filter products") String category,
 			@RequestParam(value = "searchTerm", required = false) @Parameter(description = "Search term to filter by product name, ID, or SKU") String searchTerm,
-			@RequestParam(value = "sortOrder", required = false) @Parameter(description = "Sort order for price: 'asc' or 'desc'") String sortOrder) {
+			@RequestParam(value = "sortOrder", required = false) @Parameter(description = "Sort order for price: 'asc' or 'desc'") String sortOrder,
+			@RequestParam(value = "q", required = false) @Parameter(description = "Full-text query over title, brand, tags and description; tolerates typos") String q,
+			@RequestParam(value = "limit", defaultValue = "20") @Parameter(description = "Maximum number of search results (1-100)") int limit) {
 
 		// Handle empty category or search term
 		if ((category != null && category.isEmpty()) || (searchTerm != null && searchTerm.isEmpty())) {
@@ -58,14 +122,29 @@ public class ProductController {
 			return ResponseEntity.badRequest().body(null);
 		}
 
+		if (q != null) {
+			if (q.isBlank() || category != null || searchTerm != null || sortOrder != null || limit < 1
+					|| limit > MAX_SEARCH_LIMIT) {
+				log.warn("Invalid search request. Query: '{}', limit: {}", q, limit);
+				return ResponseEntity.badRequest().body(null);
+			}
+			List<ProductView> results = searchService.search(q, limit);
+			log.info("Search for '{}' returned {} products.", q, results.size());
+			return ResponseEntity.ok().cacheControl(CacheControl.maxAge(Duration.ofMinutes(5))).body(results);
+		}
+
 		log.info("Fetching products. Category: {}, SearchTerm: {}, SortOrder: {}", category, searchTerm, sortOrder);
-		List<Product> products;
+		List<ProductView> products;
 		try {
 			// Apply filters and sorting based on provided parameters
 			if (category == null && searchTerm == null && sortOrder == null) {
 				// If no filters are provided, return all products
 				products = productService.findAll();
 				log.info("Fetched all products. Total: {}", products.size());
+			} else if (searchTerm == null && sortOrder == null) {
+				// Category only: served by the read model's category lookup
+				products = productService.findByCategory(category);
+				log.info("Fetched {} products in category '{}'.", products.size(), category);
 			} else {
 				// Filter products based on category, searchTerm, and sortOrder
 				products = productService.findProducts(category, searchTerm, sortOrder);
@@ -80,12 +159,83 @@ public class ProductController {
 		}
 	}
 
+	/**
+	 * Loads a catalog from an uploaded file, a JSON array of products or one
+	 * product per line, into a new generation. The file is read as it arrives
+	 * and never held in memory.
+	 */
+	@Operation(summary = "Import products from a file", description = "Load a new catalog from a JSON array of products or NDJSON, sent as the request body (application/json or application/x-ndjson, optionally with Content-Encoding: gzip). Invalid rows are skipped and listed in the report.")
+	@PostMapping(value = "/import", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+	public ResponseEntity<LoadReport> importProducts(
+			@RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+			HttpServletRequest request) throws IOException {
+		// Progress is counted in uncompressed bytes, so a gzipped body's size says nothing
+		Long length = request.getContentLengthLong() >= 0 ? request.getContentLengthLong() : null;
+		InputStream body = request.getInputStream();
+		if ("gzip".equalsIgnoreCase(contentEncoding)) {
+			try {
+				body = new GZIPInputStream(body, 64 * 1024);
+			} catch (ZipException e) {
+				log.warn("Import body is not gzip: {}", e.getMessage());
+				return ResponseEntity.badRequest().body(null);
+			}
+			length = null;
+		}
+		return importReport(importService.importProducts("import", body, length));
+	}
+
+	/**
+	 * Loads a catalog from a file uploaded as a form, like the streamed import.
+	 */
+	@Operation(summary = "Import products from a form upload", description = "Load a new catalog from a multipart upload of a JSON array or NDJSON file; a name ending in .gz is decompressed. The upload is spooled to disk before it is read; prefer the streamed import for large files.")
+	@PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	public ResponseEntity<LoadReport> importProductsFile(
+			@RequestParam("file") @Parameter(description = "JSON array or NDJSON of products, optionally gzipped") MultipartFile file)
+			throws IOException {
+		String name = file.getOriginalFilename() != null ? file.getOriginalFilename() : "upload";
+		boolean gzipped = name.endsWith(".gz");
+		try (InputStream in = gzipped ? new GZIPInputStream(file.getInputStream(), 64 * 1024) : file.getInputStream()) {
+			return importReport(importService.importProducts("import:" + name, in, gzipped ? null : file.getSize()));
+		} catch (ZipException e) {
+			log.warn("Import file {} is not gzip: {}", name, e.getMessage());
+			return ResponseEntity.badRequest().body(null);
+		}
+	}
+
+	private ResponseEntity<LoadReport> importReport(LoadReport report) {
+		if (report.getGeneration() == null) {
+			log.warn("Import not started: {}", report.getError());
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(report);
+		}
+		if (report.getStatus() == LoadReport.Status.FAILED) {
+			log.warn("Import from {} failed after {} rows: {}", report.getSource(), report.getProductsRead(),
+					report.getError());
+			return ResponseEntity.badRequest().body(report);
+		}
+		if (!report.isActivated()) {
+			log.warn("Import from {} not activated: {}", report.getSource(), report.getError());
+			return ResponseEntity.unprocessableEntity().body(report);
+		}
+		log.info("Imported from {}: {} saved, {} rejected, {} dead-lettered.", report.getSource(),
+				report.getProductsSaved(), report.getProductsRejected(), report.getProductsDeadLettered());
+		return ResponseEntity.ok(report);
+	}
+
+	/**
+	 * Reports how far the running import has got, or how the last one ended.
+	 */
+	@Operation(summary = "Get import progress", description = "Bytes and rows read so far by the running import, or the report of the last one.")
+	@GetMapping("/import/progress")
+	public ResponseEntity<ImportProgress> getImportProgress() {
+		return importService.progress().map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.noContent().build());
+	}
+
 	/**
 	 * Retrieves a product by its ID.
 	 */
 	@Operation(summary = "Get product by ID", description = "Retrieve a product by its unique ID.")
 	@GetMapping("/{id}")
-	public ResponseEntity<Product> getById(@PathVariable Long id) {
+	public ResponseEntity<ProductView> getById(@PathVariable Long id) {
 		if (id <= 0) {
 			log.warn("Invalid product ID provided: {}", id);
 			return ResponseEntity.badRequest().body(null);
@@ -101,12 +251,35 @@ public class ProductController {
 		});
 	}
 
+	/**
+	 * Retrieves a page of a product's reviews, newest first.
+	 */
+	@Operation(summary = "Get product reviews", description = "Retrieve a product's reviews page by page, newest first. Product responses only carry the review summary.")
+	@GetMapping("/{id}/reviews")
+	public ResponseEntity<ReviewPage> getReviews(@PathVariable Long id,
+			@RequestParam(value = "page", defaultValue = "0") @Parameter(description = "Zero-based page number") int page,
+			@RequestParam(value = "size", defaultValue = "20") @Parameter(description = "Reviews per page (1-100)") int size) {
+		if (id <= 0 || page < 0 || size < 1 || size > MAX_REVIEW_PAGE_SIZE) {
+			log.warn("Invalid reviews request. ID: {}, page: {}, size: {}", id, page, size);
+			return ResponseEntity.badRequest().body(null);
+		}
+
+		return productService.findReviews(id, page, size).map(reviews -> {
+			log.info("Fetched {} of {} reviews for product {}.", reviews.getReviews().size(),
+					reviews.getTotalReviews(), id);
+			return ResponseEntity.ok(reviews);
+		}).orElseGet(() -> {
+			log.warn("Product not found with ID: {}", id);
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+		});
+	}
+
 	/**
 	 * Retrieves a product by its SKU.
 	 */
 	@Operation(summary = "Get product by SKU", description = "Retrieve a product by its SKU (Stock Keeping Unit).")
 	@GetMapping("/sku/{sku}")
-	public ResponseEntity<Product> getBySku(@PathVariable String sku) {
+	public ResponseEntity<ProductView> getBySku(@PathVariable String sku) {
 		if (sku == null || sku.trim().isEmpty()) {
 			log.warn("Invalid SKU provided: {}", sku);
 			return ResponseEntity.badRequest().body(null);
@@ -122,12 +295,52 @@ public class ProductController {
 		});
 	}
 
+	/**
+	 * Reserves stock of a product, all or nothing.
+	 */
+	@Operation(summary = "Reserve stock", description = "Reserve units of a product by SKU. Fails with 409 and takes nothing if fewer units are available.")
+	@PostMapping("/sku/{sku}/reserve")
+	public ResponseEntity<StockLevel> reserveStock(@PathVariable String sku,
+			@RequestParam(value = "quantity", defaultValue = "1") @Parameter(description = "Units to reserve (at least 1)") int quantity)
+			throws ProductNotFoundException {
+		if (sku.isBlank() || quantity < 1) {
+			log.warn("Invalid reservation. SKU: '{}', quantity: {}", sku, quantity);
+			return ResponseEntity.badRequest().body(null);
+		}
+		return ResponseEntity.ok(stockService.reserve(sku, quantity));
+	}
+
+	/**
+	 * Returns units of a reservation.
+	 */
+	@Operation(summary = "Release stock", description = "Return units of a reservation by SKU, or all it still holds without a quantity. Fails with 409 if the reservation holds fewer.")
+	@PostMapping("/sku/{sku}/release")
+	public ResponseEntity<StockLevel> releaseStock(@PathVariable String sku,
+			@RequestParam("reservation") @Parameter(description = "Reservation returned when the units were reserved") long reservation,
+			@RequestParam(value = "quantity", required = false) @Parameter(description = "Units to release (at least 1)") Integer quantity)
+			throws ProductNotFoundException {
+		if (sku.isBlank() || (quantity != null && quantity < 1)) {
+			log.warn("Invalid release. SKU: '{}', quantity: {}", sku, quantity);
+			return ResponseEntity.badRequest().body(null);
+		}
+		return ResponseEntity.ok(stockService.release(sku, reservation, quantity));
+	}
+
+	/**
+	 * Retrieves the units of a product that can still be reserved.
+	 */
+	@Operation(summary = "Get stock", description = "Retrieve the units of a product that can still be reserved.")
+	@GetMapping("/sku/{sku}/stock")
+	public ResponseEntity<StockLevel> getStock(@PathVariable String sku) throws ProductNotFoundException {
+		return ResponseEntity.ok(stockService.getLevel(sku));
+	}
+
 	/**
 	 * Retrieves all products sorted by price in ascending or descending order.
 	 */
 	@Operation(summary = "Get sorted products", description = "Retrieve all products sorted by price in ascending or descending order.")
 	@GetMapping("/sorted")
-	public ResponseEntity<List<Product>> getSortedByPrice(@RequestParam String direction) {
+	public ResponseEntity<List<ProductView>> getSortedByPrice(@RequestParam String direction) {
 		if (!direction.equalsIgnoreCase("asc") && !direction.equalsIgnoreCase("desc")) {
 			log.warn("Invalid sort direction: {}", direction);
 			return ResponseEntity.badRequest().body(null);
@@ -135,7 +348,7 @@ public class ProductController {
 
 		log.info("Fetching products sorted by price in '{}' order.", direction);
 		try {
-			List<Product> sortedProducts = productService.sortByPrice(direction);
+			List<ProductView> sortedProducts = productService.sortByPrice(direction);
 			log.info("Fetched {} products sorted by price.", sortedProducts.size());
 			return ResponseEntity.ok(sortedProducts);
 		} catch (Exception e) {
@@ -144,6 +357,159 @@ public class ProductController {
 		}
 	}
 
+	/**
+	 * Suggests completions for what has been typed so far.
+	 */
+	@Operation(summary = "Suggest completions", description = "Retrieve the top completions for a prefix across product titles, brands, categories and SKUs.")
+	@GetMapping("/suggest")
+	public ResponseEntity<List<SuggestIndex.Suggestion>> suggest(
+			@RequestParam @Parameter(description = "Text typed so far; matches the start of a title word, brand, category or SKU") String prefix,
+			@RequestParam(value = "limit", defaultValue = "10") @Parameter(description = "Maximum number of suggestions (1-20)") int limit) {
+		if (prefix.isBlank() || limit < 1 || limit > MAX_SUGGEST_LIMIT) {
+			log.warn("Invalid suggest request. Prefix: '{}', limit: {}", prefix, limit);
+			return ResponseEntity.badRequest().body(null);
+		}
+		return ResponseEntity.ok().cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)))
+				.body(suggestService.suggest(prefix, limit));
+	}
+
+	/**
+	 * Streams product changes as server-sent events, for clients that keep a
+	 * local copy of the catalog.
+	 */
+	@Operation(summary = "Stream product changes", description = "Server-sent events for product upserts and deletes, each with its catalog version as the event ID. Resume with fromVersion or Last-Event-ID; a 'resync' event means the client must reload the catalog and resume from the version it carries.")
+	@GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public void streamChanges(
+			@RequestParam(value = "fromVersion", required = false) @Parameter(description = "Catalog version to resume after; omit to receive changes from now on") Long fromVersion,
+			@RequestHeader(value = "Last-Event-ID", required = false) @Parameter(description = "Set by EventSource clients on reconnect; takes precedence over fromVersion") String lastEventId,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		Long resumeFrom = fromVersion;
+		if (lastEventId != null && !lastEventId.isBlank()) {
+			try {
+				resumeFrom = Long.valueOf(lastEventId.trim());
+			} catch (NumberFormatException e) {
+				resumeFrom = -1L;
+			}
+		}
+		if (resumeFrom != null && resumeFrom < 0) {
+			log.warn("Invalid change stream version. fromVersion: {}, Last-Event-ID: '{}'", fromVersion, lastEventId);
+			response.sendError(HttpStatus.BAD_REQUEST.value());
+			return;
+		}
+		if (!changeStreamService.subscribe(resumeFrom, request, response)) {
+			log.warn("Change stream subscriber limit reached.");
+			response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+			response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+		}
+	}
+
+	/**
+	 * Downloads the whole catalog as a gzip dump. The dump is written once per
+	 * catalog version, so a download only transfers a file: with sendfile
+	 * where Tomcat supports it, otherwise straight from the file channel.
+	 * Supports single byte ranges, with If-Range, for resuming.
+	 */
+	@Operation(summary = "Export the catalog", description = "Download the whole catalog as gzip NDJSON (one product per line, as the other endpoints return it) or gzip CSV. The ETag changes with the catalog version; resume an interrupted download with Range and If-Range.")
+	@GetMapping("/export")
+	public void exportCatalog(
+			@RequestParam(value = "format", defaultValue = "ndjson") @Parameter(description = "'ndjson' or 'csv'") String format,
+			@RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+			@RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		CatalogExportService.Format exportFormat = CatalogExportService.Format.of(format);
+		if (exportFormat == null) {
+			log.warn("Invalid export format: '{}'", format);
+			response.sendError(HttpStatus.BAD_REQUEST.value());
+			return;
+		}
+		// A resumed download continues the dump it started on, while that is kept;
+		// against any other dump the range is ignored and the whole file sent
+		CatalogExportService.Export export = null;
+		if (range != null && ifRange != null) {
+			export = exportService.find(ifRange.trim()).filter(candidate -> candidate.format() == exportFormat)
+					.orElse(null);
+			if (export == null) {
+				range = null;
+			}
+		}
+		if (export == null) {
+			export = exportService.current(exportFormat);
+			if (ifNoneMatch != null && (ifNoneMatch.equals(export.etag()) || ifNoneMatch.equals("*"))) {
+				response.setStatus(HttpStatus.NOT_MODIFIED.value());
+				response.setHeader(HttpHeaders.ETAG, export.etag());
+				return;
+			}
+		}
+
+		long length = export.length();
+		long start = 0;
+		long end = length - 1;
+		if (range != null) {
+			List<HttpRange> ranges;
+			try {
+				ranges = HttpRange.parseRanges(range);
+				if (ranges.size() == 1) {
+					start = ranges.get(0).getRangeStart(length);
+					end = ranges.get(0).getRangeEnd(length);
+					if (start >= length || start > end) {
+						throw new IllegalArgumentException("Range starts past the end of the file");
+					}
+				}
+			} catch (IllegalArgumentException e) {
+				log.warn("Unsatisfiable export range '{}' for {} bytes.", range, length);
+				response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+				return;
+			}
+			// Several ranges at once are not worth a multipart body for a file; send it whole
+			if (ranges.size() == 1) {
+				response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+			}
+		}
+		response.setContentType("application/gzip");
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + export.fileName() + "\"");
+		response.setHeader(HttpHeaders.ETAG, export.etag());
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+		long count = end - start + 1;
+		response.setContentLengthLong(count);
+		if (count > 0 && !"HEAD".equals(request.getMethod())) {
+			log.info("Sending catalog export {}, bytes {}-{} of {}.", export.fileName(), start, end, length);
+			try (CatalogExportService.Transfer transfer = exportService.startTransfer(export)) {
+				sendFile(export.path(), start, count, transfer, request, response);
+			}
+		}
+	}
+
+	private void sendFile(Path path, long start, long count, CatalogExportService.Transfer transfer,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+			// Tomcat opens the file once this request returns, after the transfer is closed
+			transfer.handOff();
+			request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+			request.setAttribute(SENDFILE_START, start);
+			request.setAttribute(SENDFILE_END, start + count);
+			exportsSentByTomcat.increment();
+			return;
+		}
+		try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+			WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+			long position = start;
+			long remaining = count;
+			while (remaining > 0) {
+				long sent = file.transferTo(position, remaining, out);
+				if (sent <= 0) {
+					throw new IOException("Catalog export " + path + " ended early");
+				}
+				position += sent;
+				remaining -= sent;
+			}
+		}
+		exportsSentByChannel.increment();
+	}
+
 	/**
 	 * Retrieves a list of unique product categories.
 	 */
@@ -0,0 +1,10 @@
+package com.publicis_sapient.products_api.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.publicis_sapient.products_api.entity.CatalogChangeLock;
+
+@Repository
+public interface CatalogChangeLockRepository extends JpaRepository<CatalogChangeLock, Integer> {
+}
@@ -0,0 +1,26 @@
+package com.publicis_sapient.products_api.dao;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.publicis_sapient.products_api.entity.CatalogChange;
+
+@Repository
+public interface CatalogChangeRepository extends JpaRepository<CatalogChange, Long> {
+	Optional<CatalogChange> findFirstByTypeOrderByVersionDesc(CatalogChange.Type type);
+
+	@Query("SELECT COALESCE(MAX(c.version), 0) FROM CatalogChange c")
+	long findLatestVersion();
+
+	/**
+	 * Takes the log's append lock until the caller's transaction ends. Versions
+	 * are handed out as rows are inserted, not as they commit; appending under
+	 * this lock makes them commit in version order, so a reader that sees a
+	 * version has seen every version before it.
+	 */
+	@Query(value = "SELECT id FROM catalog_change_lock WHERE id = 1 FOR UPDATE", nativeQuery = true)
+	Integer lockForAppend();
+}
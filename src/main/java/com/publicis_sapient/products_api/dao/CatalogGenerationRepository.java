@@ -0,0 +1,16 @@
+package com.publicis_sapient.products_api.dao;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.publicis_sapient.products_api.entity.CatalogGeneration;
+
+@Repository
+public interface CatalogGenerationRepository extends JpaRepository<CatalogGeneration, Long> {
+	Optional<CatalogGeneration> findFirstByStatusOrderByIdDesc(CatalogGeneration.Status status);
+
+	List<CatalogGeneration> findByStatusIn(List<CatalogGeneration.Status> statuses);
+}
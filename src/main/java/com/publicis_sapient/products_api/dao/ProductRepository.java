@@ -1,20 +1,22 @@
 package com.publicis_sapient.products_api.dao;
 
 import java.util.List;
-import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.publicis_sapient.products_api.entity.Product;
+import com.publicis_sapient.products_api.entity.Review;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
-	Optional<Product> findBySku(String sku);
+	long countByGeneration(Long generation);
 
-	List<Product> findByCategoryIgnoreCase(String category);
-
-	@Query("SELECT DISTINCT p.category FROM Product p WHERE p.category IS NOT NULL")
-	List<String> findDistinctCategories();
+	@Query("SELECT r FROM Product p JOIN p.reviews r WHERE p.generation = :generation AND p.productId = :productId"
+			+ " ORDER BY r.date DESC, r.reviewerName")
+	List<Review> findReviews(@Param("generation") Long generation, @Param("productId") Long productId,
+			Pageable pageable);
 }
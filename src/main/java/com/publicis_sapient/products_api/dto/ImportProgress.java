@@ -0,0 +1,29 @@
+package com.publicis_sapient.products_api.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ImportProgress {
+
+	private String source;
+
+	private boolean running;
+
+	private LocalDateTime startedAt;
+
+	private long bytesRead;
+
+	// Size of the upload, when the client sent it
+	private Long totalBytes;
+
+	private long rowsRead;
+
+	private long rowsRejected;
+
+	// Set once the import has finished
+	private LoadReport report;
+}
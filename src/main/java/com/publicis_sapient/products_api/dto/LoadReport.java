@@ -0,0 +1,78 @@
+package com.publicis_sapient.products_api.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class LoadReport {
+
+	public enum Status {
+		COMPLETED, COMPLETED_WITH_FAILURES, FAILED
+	}
+
+	private String source;
+
+	// Catalog generation written by this load, and whether readers were switched to it
+	private Long generation;
+
+	private boolean activated;
+
+	private Status status;
+
+	private LocalDateTime startedAt;
+
+	private long elapsedMillis;
+
+	private long productsRead;
+
+	private long productsRejected;
+
+	private long productsSaved;
+
+	private long batchesSaved;
+
+	private long batchRetries;
+
+	private long productsDeadLettered;
+
+	private double productsPerSecond;
+
+	private String error;
+
+	private List<DeadLetter> deadLetters = new ArrayList<>();
+
+	// Rows an import turned away, the first import.max-reported-rows of them
+	private List<RejectedRow> rejectedRows = new ArrayList<>();
+
+	/**
+	 * A batch that still failed after its retries and was set aside.
+	 */
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class DeadLetter {
+		private List<String> skus;
+		// Including the attempts on the batches it was split out of
+		private int attempts;
+		private String error;
+	}
+
+	/**
+	 * A row of an imported file that was not loaded, and where it was.
+	 */
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class RejectedRow {
+		private long row;
+		private long line;
+		private String sku;
+		private String error;
+	}
+}
@@ -0,0 +1,32 @@
+package com.publicis_sapient.products_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.publicis_sapient.products_api.view.ProductView;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductChange {
+
+	public enum Type {
+		UPSERT, DELETE
+	}
+
+	// Change log version; resume the stream from here
+	private long version;
+
+	private Type type;
+
+	private long generation;
+
+	private String sku;
+
+	// Product as of the change, for upserts; absent if its generation has
+	// since been dropped
+	private ProductView product;
+}
@@ -0,0 +1,28 @@
+package com.publicis_sapient.products_api.dto;
+
+import java.util.List;
+
+import com.publicis_sapient.products_api.entity.Review;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of a product's reviews, newest first.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewPage {
+
+	private List<Review> reviews;
+
+	private int page;
+
+	private int size;
+
+	private long totalReviews;
+
+	private int totalPages;
+}
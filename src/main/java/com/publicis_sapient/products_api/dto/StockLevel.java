@@ -0,0 +1,19 @@
+package com.publicis_sapient.products_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevel {
+
+	private String sku;
+
+	// Units left after the reservation or release
+	private int available;
+
+	// The reservation made or released against
+	private Long reservation;
+}
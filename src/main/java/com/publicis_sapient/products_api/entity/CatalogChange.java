@@ -0,0 +1,53 @@
+package com.publicis_sapient.products_api.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry in the catalog change log. Every instance applies the entries in
+ * version order, so catalog views stay coherent across replicas without
+ * talking to each other.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+public class CatalogChange {
+
+	public enum Type {
+		GENERATION_ACTIVATED, PRODUCT_UPDATED, PRODUCT_DELETED
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long version;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private Type type;
+
+	@Column(nullable = false)
+	private Long generation;
+
+	private String sku;
+
+	private String categoryKey;
+
+	private LocalDateTime createdAt;
+
+	public CatalogChange(Type type, Long generation, String sku, String categoryKey) {
+		this.type = type;
+		this.generation = generation;
+		this.sku = sku;
+		this.categoryKey = categoryKey;
+		this.createdAt = LocalDateTime.now();
+	}
+}
@@ -0,0 +1,23 @@
+package com.publicis_sapient.products_api.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The single row every transaction appending to the {@link CatalogChange} log
+ * locks first, see {@code CatalogChangeRepository#lockForAppend}.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogChangeLock {
+
+	public static final int ID = 1;
+
+	@Id
+	private Integer id;
+}
@@ -0,0 +1,48 @@
+package com.publicis_sapient.products_api.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One complete copy of the catalog. Loads build a new generation next to the
+ * active one and only become visible when it is activated.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+public class CatalogGeneration {
+
+	public enum Status {
+		BUILDING, ACTIVE, RETIRED, RELEASED, FAILED
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "catalog_generation_seq")
+	@SequenceGenerator(name = "catalog_generation_seq", sequenceName = "catalog_generation_seq", allocationSize = 1)
+	private Long id;
+
+	@Enumerated(EnumType.STRING)
+	private Status status;
+
+	private Long productCount;
+
+	private LocalDateTime createdAt;
+
+	private LocalDateTime activatedAt;
+
+	private LocalDateTime retiredAt;
+
+	public CatalogGeneration(Status status) {
+		this.status = status;
+		this.createdAt = LocalDateTime.now();
+	}
+}
@@ -0,0 +1,29 @@
+package com.publicis_sapient.products_api.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A running instance following the {@link CatalogChange} log: the last
+ * version it applied and the oldest generation it still reads, as of its last
+ * heartbeat. Change log entries and retired generations are kept until every
+ * live replica is past them.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+public class CatalogReplica {
+
+	@Id
+	private String id;
+
+	private Long appliedVersion;
+
+	private Long oldestGeneration;
+
+	private LocalDateTime seenAt;
+}
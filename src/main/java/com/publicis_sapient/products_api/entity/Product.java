@@ -1,21 +1,39 @@
 package com.publicis_sapient.products_api.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Locale;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_product_generation_sku", columnNames = { "generation",
+		"sku" }), indexes = {
+				@Index(name = "idx_product_generation_product_id", columnList = "generation, productId") })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
+	// Sequence ids with a block allocation let Hibernate batch the inserts
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+	@SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
 	private Long id;
 
+	// Id the product is served under, the same in every generation; see ProductKey.
+	// Assigned once the generation is fully written
+	@JsonIgnore
+	private Long productId;
+
+	// Catalog generation this row belongs to, see CatalogGeneration
+	@JsonIgnore
+	@Column(nullable = false)
+	private Long generation;
+
 	private String title;
 
 	@Column(length = 1000)
@@ -24,6 +42,14 @@ public class Product {
 	// Keeping category as a String
 	private String category;
 
+	// Lower-cased category, logged with changes to the product
+	@JsonIgnore
+	private String categoryKey;
+
+	// Hash of the feed record, so a reload can tell which products changed
+	@JsonIgnore
+	private Long contentHash;
+
 	private Double price;
 
 	private Double discountPercentage;
@@ -33,11 +59,11 @@ public class Product {
 	private Integer stock;
 
 	@ElementCollection
+	@CollectionTable(name = "product_tags", joinColumns = @JoinColumn(name = "product_id"))
 	private List<String> tags;
 
 	private String brand;
 
-	@Column(unique = true)
 	private String sku;
 
 	private Double weight;
@@ -64,7 +90,18 @@ public class Product {
 
 	private String thumbnail;
 
+	// Served page by page from /{id}/reviews; responses carry the summary instead
+	@JsonIgnore
 	@ElementCollection
 	@CollectionTable(name = "product_reviews", joinColumns = @JoinColumn(name = "product_id"))
 	private List<Review> reviews;
+
+	@Embedded
+	private ReviewSummary reviewSummary;
+
+	@PrePersist
+	@PreUpdate
+	void updateCategoryKey() {
+		categoryKey = category != null ? category.toLowerCase(Locale.ROOT) : null;
+	}
 }
@@ -0,0 +1,33 @@
+package com.publicis_sapient.products_api.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The id a SKU is served under. Each generation writes its own product rows,
+ * so the row ids change with every load; this one is assigned the first time
+ * a SKU is loaded and kept from then on, see
+ * {@code CatalogGenerationService#assignProductIds}.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_product_key_sku", columnNames = "sku"))
+@Data
+@NoArgsConstructor
+public class ProductKey {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_key_seq")
+	@SequenceGenerator(name = "product_key_seq", sequenceName = "product_key_seq", allocationSize = 1)
+	private Long id;
+
+	@Column(nullable = false)
+	private String sku;
+}
@@ -11,4 +11,11 @@ import lombok.Data;
 public class ProductResponse {
 	private List<ProductDTO> products = new ArrayList<ProductDTO>();
 
+	// Paging envelope returned by the feed for limit/skip requests
+	private Integer total;
+
+	private Integer skip;
+
+	private Integer limit;
+
 }
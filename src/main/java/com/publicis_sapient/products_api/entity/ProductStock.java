@@ -0,0 +1,42 @@
+package com.publicis_sapient.products_api.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The stock of a SKU, shared by every replica and every generation. The feed's
+ * count for the active generation is {@code stock}; of that, {@code reserved}
+ * units are held by outstanding {@link StockReservation}s. Activating a
+ * generation takes its stock from the feed and keeps the reservations, see
+ * {@code CatalogGenerationService#activate}.
+ *
+ * The replica counting the SKU's reservations in memory is its {@code owner}
+ * until {@code leaseUntil}; another one that needs the SKU sets
+ * {@code handoffRequested}, see {@code StockService}.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+public class ProductStock {
+
+	@Id
+	private String sku;
+
+	@Column(nullable = false)
+	private Integer stock;
+
+	@Column(nullable = false)
+	private Integer reserved;
+
+	private String owner;
+
+	private LocalDateTime leaseUntil;
+
+	@Column(nullable = false)
+	private Boolean handoffRequested;
+}
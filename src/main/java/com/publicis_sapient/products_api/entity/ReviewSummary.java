@@ -0,0 +1,62 @@
+package com.publicis_sapient.products_api.entity;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Review aggregates computed once when a product is loaded, so showing star
+ * ratings never needs the review rows.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+
+	private Integer reviewCount;
+
+	// Null when there are no rated reviews
+	private Double averageRating;
+
+	private Integer oneStarReviews;
+	private Integer twoStarReviews;
+	private Integer threeStarReviews;
+	private Integer fourStarReviews;
+	private Integer fiveStarReviews;
+
+	private LocalDateTime latestReviewDate;
+
+	/**
+	 * Summarises the reviews. Ratings outside 1-5 are clamped into the
+	 * histogram; reviews without a rating count but do not affect the average.
+	 */
+	public static ReviewSummary of(List<Review> reviews) {
+		int[] histogram = new int[5];
+		int count = 0;
+		int rated = 0;
+		long ratingSum = 0;
+		LocalDateTime latest = null;
+		if (reviews != null) {
+			for (Review review : reviews) {
+				count++;
+				if (review.getRating() != null) {
+					int stars = Math.max(1, Math.min(5, review.getRating()));
+					histogram[stars - 1]++;
+					ratingSum += stars;
+					rated++;
+				}
+				if (review.getDate() != null && (latest == null || review.getDate().isAfter(latest))) {
+					latest = review.getDate();
+				}
+			}
+		}
+		Double average = rated == 0 ? null : Math.round(100.0 * ratingSum / rated) / 100.0;
+		return new ReviewSummary(count, average, histogram[0], histogram[1], histogram[2], histogram[3], histogram[4],
+				latest);
+	}
+}
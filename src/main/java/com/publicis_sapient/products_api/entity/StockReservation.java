@@ -0,0 +1,36 @@
+package com.publicis_sapient.products_api.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Units of a SKU taken by one reservation and not yet released. Releases are
+ * made against it, so no more can be returned than was taken. Ids are taken
+ * from the sequence a block at a time.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+public class StockReservation {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservation_seq")
+	@SequenceGenerator(name = "stock_reservation_seq", sequenceName = "stock_reservation_seq", allocationSize = 1000)
+	private Long id;
+
+	@Column(nullable = false)
+	private String sku;
+
+	@Column(nullable = false)
+	private Integer quantity;
+
+	private LocalDateTime createdAt;
+}
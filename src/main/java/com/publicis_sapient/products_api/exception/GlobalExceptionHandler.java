@@ -8,6 +8,9 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
+
+import java.io.IOException;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -27,6 +30,12 @@ public class GlobalExceptionHandler {
 		return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
 	}
 
+	// A client dropped a streamed response; there is nobody left to answer
+	@ExceptionHandler({ AsyncRequestNotUsableException.class, IOException.class })
+	public void handleClientDisconnect(Exception ex) {
+		logger.debug("Client disconnected: {}", ex.getMessage());
+	}
+
 	// Runtime Exception Handler
 	@ExceptionHandler(RuntimeException.class)
 	public ResponseEntity<ErrorResponse> handleRuntimeException(RuntimeException ex, WebRequest request) {
@@ -55,4 +64,31 @@ public class GlobalExceptionHandler {
 				"Product Not Found", ex.getMessage());
 		return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
 	}
+
+	@ExceptionHandler(InsufficientStockException.class)
+	public ResponseEntity<ErrorResponse> handleInsufficientStockException(InsufficientStockException ex,
+			WebRequest request) {
+		logger.info("Reservation rejected: {}", ex.getMessage());
+		ErrorResponse errorResponse = new ErrorResponse(LocalDateTime.now(), HttpStatus.CONFLICT.value(),
+				"Insufficient Stock", ex.getMessage());
+		return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+	}
+
+	@ExceptionHandler(InvalidReleaseException.class)
+	public ResponseEntity<ErrorResponse> handleInvalidReleaseException(InvalidReleaseException ex,
+			WebRequest request) {
+		logger.info("Release rejected: {}", ex.getMessage());
+		ErrorResponse errorResponse = new ErrorResponse(LocalDateTime.now(), HttpStatus.CONFLICT.value(),
+				"Invalid Release", ex.getMessage());
+		return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+	}
+
+	@ExceptionHandler(StockUnavailableException.class)
+	public ResponseEntity<ErrorResponse> handleStockUnavailableException(StockUnavailableException ex,
+			WebRequest request) {
+		logger.warn("Stock unavailable: {}", ex.getMessage());
+		ErrorResponse errorResponse = new ErrorResponse(LocalDateTime.now(), HttpStatus.SERVICE_UNAVAILABLE.value(),
+				"Stock Unavailable", ex.getMessage());
+		return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+	}
 }
@@ -0,0 +1,27 @@
+package com.publicis_sapient.products_api.exception;
+
+public class InsufficientStockException extends RuntimeException {
+
+	private final String sku;
+	private final int requested;
+	private final int available;
+
+	public InsufficientStockException(String sku, int requested, int available) {
+		super("Cannot reserve " + requested + " of " + sku + ": " + available + " available");
+		this.sku = sku;
+		this.requested = requested;
+		this.available = available;
+	}
+
+	public String getSku() {
+		return sku;
+	}
+
+	public int getRequested() {
+		return requested;
+	}
+
+	public int getAvailable() {
+		return available;
+	}
+}
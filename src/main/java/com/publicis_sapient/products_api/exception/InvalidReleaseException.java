@@ -0,0 +1,28 @@
+package com.publicis_sapient.products_api.exception;
+
+public class InvalidReleaseException extends RuntimeException {
+
+	private final long reservation;
+	private final int requested;
+	private final int outstanding;
+
+	public InvalidReleaseException(String sku, long reservation, int requested, int outstanding) {
+		super("Cannot release " + requested + " of " + sku + " from reservation " + reservation + ": " + outstanding
+				+ " outstanding");
+		this.reservation = reservation;
+		this.requested = requested;
+		this.outstanding = outstanding;
+	}
+
+	public long getReservation() {
+		return reservation;
+	}
+
+	public int getRequested() {
+		return requested;
+	}
+
+	public int getOutstanding() {
+		return outstanding;
+	}
+}
@@ -0,0 +1,12 @@
+package com.publicis_sapient.products_api.exception;
+
+public class ProductFeedException extends RuntimeException {
+	public ProductFeedException(String message) {
+		super(message);
+	}
+
+	public ProductFeedException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.publicis_sapient.products_api.exception;
+
+public class StockUnavailableException extends RuntimeException {
+
+	private final String sku;
+
+	public StockUnavailableException(String sku) {
+		super("Stock of " + sku + " is held by another instance and was not handed over in time");
+		this.sku = sku;
+	}
+
+	public String getSku() {
+		return sku;
+	}
+}
@@ -0,0 +1,49 @@
+package com.publicis_sapient.products_api.filter;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Pins one catalog generation for the whole API request, including response
+ * serialization, so a swap mid-request never mixes generations or releases the
+ * rows the request is still reading. The change stream, the export and the
+ * import are left out: they can be long-lived, and read no generation through
+ * the request beyond what they lease themselves.
+ */
+@Component
+public class CatalogLeaseFilter extends OncePerRequestFilter {
+
+	private static final Set<String> UNLEASED_PATHS = Set.of("/api/v1/products/changes", "/api/v1/products/export",
+			"/api/v1/products/import", "/api/v1/products/import/progress");
+
+	private final CatalogGenerationService generationService;
+
+	public CatalogLeaseFilter(CatalogGenerationService generationService) {
+		this.generationService = generationService;
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		String path = request.getRequestURI();
+		return !path.startsWith("/api/") || UNLEASED_PATHS.contains(path);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			filterChain.doFilter(request, response);
+		}
+	}
+
+}
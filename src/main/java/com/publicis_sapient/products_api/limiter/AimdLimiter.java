@@ -0,0 +1,86 @@
+package com.publicis_sapient.products_api.limiter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit that adapts with additive increase, multiplicative
+ * decrease (AIMD).
+ *
+ * Requests that finish under the latency threshold while the limiter is busy
+ * raise the limit by one; a slow or failed request cuts it by the backoff
+ * ratio. Under overload the limit settles near the concurrency the backend can
+ * actually serve, and the excess is turned away instead of queueing.
+ */
+public class AimdLimiter {
+
+	private final String name;
+	private final int minLimit;
+	private final int maxLimit;
+	private final long latencyThresholdNanos;
+	private final double backoffRatio;
+
+	private final AtomicInteger limit;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final LongAdder rejected = new LongAdder();
+
+	public AimdLimiter(String name, int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold,
+			double backoffRatio) {
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new IllegalArgumentException("Invalid limits for " + name + ": min=" + minLimit + ", max=" + maxLimit);
+		}
+		this.name = name;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyThresholdNanos = latencyThreshold.toNanos();
+		this.backoffRatio = backoffRatio;
+		this.limit = new AtomicInteger(Math.max(minLimit, Math.min(maxLimit, initialLimit)));
+	}
+
+	/**
+	 * Claims a slot, or returns false without waiting when the limit is reached.
+	 */
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= limit.get()) {
+				rejected.increment();
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns a slot and feeds the request's outcome back into the limit.
+	 */
+	public void release(long latencyNanos, boolean failed) {
+		int inFlightBefore = inFlight.getAndDecrement();
+		if (failed || latencyNanos > latencyThresholdNanos) {
+			limit.updateAndGet(current -> Math.max(minLimit, (int) Math.floor(current * backoffRatio)));
+		} else if (inFlightBefore * 2 >= limit.get()) {
+			// Only grow while the limit is actually being used
+			limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getLimit() {
+		return limit.get();
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.publicis_sapient.products_api.limiter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Writes the body straight through to the client while keeping a copy of it,
+ * up to a size cap. Unlike buffering the whole response first, large bodies
+ * stream as usual and are simply not kept.
+ */
+class CapturingResponseWrapper extends HttpServletResponseWrapper {
+
+	private final int maxBytes;
+	private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+	private boolean overflowed;
+	private ServletOutputStream outputStream;
+	private PrintWriter writer;
+
+	CapturingResponseWrapper(HttpServletResponse response, int maxBytes) {
+		super(response);
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * The captured body, or null if it was larger than the cap.
+	 */
+	byte[] getCapturedBody() {
+		if (writer != null) {
+			writer.flush();
+		}
+		return overflowed ? null : copy.toByteArray();
+	}
+
+	private void capture(byte[] bytes, int offset, int length) {
+		if (overflowed) {
+			return;
+		}
+		if (copy.size() + length > maxBytes) {
+			overflowed = true;
+			copy.reset();
+			return;
+		}
+		copy.write(bytes, offset, length);
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		if (outputStream == null) {
+			ServletOutputStream delegate = super.getOutputStream();
+			outputStream = new ServletOutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					delegate.write(b);
+					capture(new byte[] { (byte) b }, 0, 1);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					delegate.write(b, off, len);
+					capture(b, off, len);
+				}
+
+				@Override
+				public void flush() throws IOException {
+					delegate.flush();
+				}
+
+				@Override
+				public boolean isReady() {
+					return delegate.isReady();
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener) {
+					delegate.setWriteListener(writeListener);
+				}
+			};
+		}
+		return outputStream;
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (writer == null) {
+			String encoding = getCharacterEncoding();
+			Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+			writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset));
+		}
+		return writer;
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		super.flushBuffer();
+	}
+
+}
@@ -0,0 +1,252 @@
+package com.publicis_sapient.products_api.limiter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.publicis_sapient.products_api.exception.ErrorResponse;
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Puts an adaptive concurrency limit in front of each group of read
+ * endpoints. When a group is saturated the request is answered at once: from
+ * a recent good response for the same URL if there is one, otherwise with 503
+ * and Retry-After. Requests no longer pile up on Tomcat threads waiting for a
+ * database connection.
+ *
+ * A response is replayed only within {@code limiter.stale.max-age} and while
+ * the catalog generation it came from is current. Responses are copied only
+ * when the one held for their URL is missing, from an earlier generation or
+ * past half its max age, so most requests pass through uncopied.
+ *
+ * Limits can be tuned per group, e.g. {@code limiter.list.max-limit}, and fall
+ * back to the shared {@code limiter.*} settings.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+	private static final String BASE_PATH = "/api/v1/products";
+
+	// Headers of the original transfer, or per client, which a stale copy does not repeat
+	private static final Set<String> NOT_REPLAYED = Set.of("content-type", "content-length", "transfer-encoding",
+			"connection", "date", "set-cookie", "age", "warning", "cache-control");
+
+	public enum EndpointGroup {
+		LIST, DETAIL, CATEGORIES, SUGGEST;
+
+		String tag() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	private final ObjectMapper objectMapper;
+	private final CatalogGenerationService generationService;
+	private final boolean enabled;
+	private final long retryAfterSeconds;
+	private final long staleMaxAgeMillis;
+	private final StaleResponseCache staleResponses;
+	private final Map<EndpointGroup, AimdLimiter> limiters = new EnumMap<>(EndpointGroup.class);
+	private final Map<EndpointGroup, Counter> staleServed = new EnumMap<>(EndpointGroup.class);
+
+	public ConcurrencyLimitFilter(Environment environment, MeterRegistry meterRegistry, ObjectMapper objectMapper,
+			CatalogGenerationService generationService) {
+		this.objectMapper = objectMapper;
+		this.generationService = generationService;
+		this.enabled = environment.getProperty("limiter.enabled", Boolean.class, true);
+		this.retryAfterSeconds = Math.max(1, duration(environment, "limiter.retry-after", "1s").toSeconds());
+		this.staleMaxAgeMillis = duration(environment, "limiter.stale.max-age", "1m").toMillis();
+		this.staleResponses = new StaleResponseCache(
+				environment.getProperty("limiter.stale.max-bytes", Long.class, 16L * 1024 * 1024),
+				environment.getProperty("limiter.stale.max-entry-bytes", Integer.class, 512 * 1024));
+		Gauge.builder("products.concurrency.stale.bytes", staleResponses, StaleResponseCache::bytes)
+				.description("Bytes held for stale responses").register(meterRegistry);
+
+		for (EndpointGroup group : EndpointGroup.values()) {
+			AimdLimiter limiter = new AimdLimiter(group.tag(), setting(environment, group, "initial-limit", 20),
+					setting(environment, group, "min-limit", 2), setting(environment, group, "max-limit", 200),
+					duration(environment, "limiter." + group.tag() + ".latency-threshold",
+							environment.getProperty("limiter.latency-threshold", "250ms")),
+					environment.getProperty("limiter.backoff-ratio", Double.class, 0.9));
+			limiters.put(group, limiter);
+
+			Gauge.builder("products.concurrency.limit", limiter, AimdLimiter::getLimit).tag("group", group.tag())
+					.description("Current adaptive concurrency limit").register(meterRegistry);
+			Gauge.builder("products.concurrency.inflight", limiter, AimdLimiter::getInFlight).tag("group", group.tag())
+					.description("Requests currently holding a slot").register(meterRegistry);
+			FunctionCounter.builder("products.concurrency.rejected", limiter, AimdLimiter::getRejected)
+					.tag("group", group.tag()).description("Requests turned away at the limit").register(meterRegistry);
+			staleServed.put(group, Counter.builder("products.concurrency.stale").tag("group", group.tag())
+					.description("Rejected requests answered from a stale response").register(meterRegistry));
+		}
+	}
+
+	private static int setting(Environment environment, EndpointGroup group, String name, int defaultValue) {
+		return environment.getProperty("limiter." + group.tag() + "." + name, Integer.class,
+				environment.getProperty("limiter." + name, Integer.class, defaultValue));
+	}
+
+	private static Duration duration(Environment environment, String name, String defaultValue) {
+		return DurationStyle.detectAndParse(environment.getProperty(name, defaultValue));
+	}
+
+	public AimdLimiter getLimiter(EndpointGroup group) {
+		return limiters.get(group);
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !enabled || classify(request) == null;
+	}
+
+	static EndpointGroup classify(HttpServletRequest request) {
+		if (!"GET".equals(request.getMethod())) {
+			return null;
+		}
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		if (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		if (path.equals(BASE_PATH) || path.equals(BASE_PATH + "/sorted")) {
+			return EndpointGroup.LIST;
+		}
+		if (path.equals(BASE_PATH + "/categories")) {
+			return EndpointGroup.CATEGORIES;
+		}
+		if (path.equals(BASE_PATH + "/suggest")) {
+			return EndpointGroup.SUGGEST;
+		}
+		if (path.startsWith(BASE_PATH + "/sku/")) {
+			return EndpointGroup.DETAIL;
+		}
+		if (path.startsWith(BASE_PATH + "/")) {
+			String rest = path.substring(BASE_PATH.length() + 1);
+			if (rest.endsWith("/reviews")) {
+				rest = rest.substring(0, rest.length() - "/reviews".length());
+			}
+			if (!rest.isEmpty() && rest.chars().allMatch(Character::isDigit)) {
+				return EndpointGroup.DETAIL;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		EndpointGroup group = classify(request);
+		AimdLimiter limiter = limiters.get(group);
+		String key = request.getQueryString() == null ? request.getRequestURI()
+				: request.getRequestURI() + "?" + request.getQueryString();
+
+		// Read before the request leases one, so a switch meanwhile only makes the copy look older
+		long generation = generationService.currentGeneration();
+
+		if (!limiter.tryAcquire()) {
+			rejectOrServeStale(group, key, generation, response);
+			return;
+		}
+
+		CapturingResponseWrapper capturing = needsCapture(key, generation)
+				? new CapturingResponseWrapper(response, staleResponses.getMaxEntryBytes())
+				: null;
+		HttpServletResponse served = capturing != null ? capturing : response;
+		long started = System.nanoTime();
+		boolean failed = true;
+		try {
+			filterChain.doFilter(request, served);
+			failed = served.getStatus() >= 500;
+		} finally {
+			limiter.release(System.nanoTime() - started, failed);
+		}
+
+		if (capturing != null && capturing.getStatus() == HttpStatus.OK.value()) {
+			byte[] body = capturing.getCapturedBody();
+			if (body != null) {
+				staleResponses.put(key, body, capturing.getContentType(), replayableHeaders(capturing), generation);
+			}
+		}
+	}
+
+	/** Whether the copy held for the URL is missing, or due to be replaced. */
+	private boolean needsCapture(String key, long generation) {
+		StaleResponseCache.Entry held = staleResponses.get(key);
+		return held == null || held.generation() != generation
+				|| System.currentTimeMillis() - held.capturedAtMillis() > staleMaxAgeMillis / 2;
+	}
+
+	/**
+	 * The response's headers worth replaying with a stale copy, such as ETag and
+	 * Last-Modified; those describing this transfer or set on replay are left out.
+	 */
+	private static Map<String, List<String>> replayableHeaders(HttpServletResponse response) {
+		Map<String, List<String>> headers = new LinkedHashMap<>();
+		for (String name : response.getHeaderNames()) {
+			if (!NOT_REPLAYED.contains(name.toLowerCase(Locale.ROOT))) {
+				headers.putIfAbsent(name, List.copyOf(response.getHeaders(name)));
+			}
+		}
+		return headers;
+	}
+
+	private void rejectOrServeStale(EndpointGroup group, String key, long generation, HttpServletResponse response)
+			throws IOException {
+		StaleResponseCache.Entry stale = staleResponses.get(key);
+		long ageMillis = stale != null ? System.currentTimeMillis() - stale.capturedAtMillis() : 0;
+		if (stale != null && (stale.generation() != generation || ageMillis > staleMaxAgeMillis)) {
+			staleResponses.remove(key);
+			stale = null;
+		}
+		if (stale != null) {
+			staleServed.get(group).increment();
+			response.setStatus(HttpStatus.OK.value());
+			stale.headers().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+			response.setContentType(stale.contentType());
+			response.setHeader(HttpHeaders.AGE, String.valueOf(ageMillis / 1000));
+			response.setHeader(HttpHeaders.WARNING, "110 - \"Response is Stale\"");
+			response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+			response.setContentLength(stale.body().length);
+			response.getOutputStream().write(stale.body());
+			return;
+		}
+
+		LOGGER.warn("Concurrency limit reached for {} endpoints; rejecting {}", group.tag(), key);
+		response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		ErrorResponse error = new ErrorResponse(LocalDateTime.now(), HttpStatus.SERVICE_UNAVAILABLE.value(),
+				"Service Unavailable", "Too many concurrent requests, retry after " + retryAfterSeconds + "s");
+		objectMapper.writeValue(response.getOutputStream(), error);
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.publicis_sapient.products_api.limiter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A recent successful response per request URL, body and headers, kept so a
+ * saturated endpoint can answer from it instead of failing. Each is tagged
+ * with the catalog generation it was served from. Bounded by the total bytes
+ * held, least recently used first out, and by the size of each body.
+ */
+public class StaleResponseCache {
+
+	public record Entry(byte[] body, String contentType, Map<String, List<String>> headers, long generation,
+			long capturedAtMillis) {
+
+		long bytes(String key) {
+			long bytes = key.length() + body.length + (contentType != null ? contentType.length() : 0);
+			for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+				bytes += header.getKey().length();
+				for (String value : header.getValue()) {
+					bytes += value.length();
+				}
+			}
+			return bytes;
+		}
+	}
+
+	private final long maxBytes;
+	private final int maxEntryBytes;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+
+	public StaleResponseCache(long maxBytes, int maxEntryBytes) {
+		this.maxBytes = maxBytes;
+		this.maxEntryBytes = maxEntryBytes;
+	}
+
+	public int getMaxEntryBytes() {
+		return maxEntryBytes;
+	}
+
+	public synchronized void put(String key, byte[] body, String contentType, Map<String, List<String>> headers,
+			long generation) {
+		if (body.length > maxEntryBytes) {
+			return;
+		}
+		Entry entry = new Entry(body, contentType, Map.copyOf(headers), generation, System.currentTimeMillis());
+		long size = entry.bytes(key);
+		if (size > maxBytes) {
+			return;
+		}
+		Entry previous = entries.put(key, entry);
+		if (previous != null) {
+			bytes -= previous.bytes(key);
+		}
+		bytes += size;
+		Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+		while (bytes > maxBytes) {
+			Map.Entry<String, Entry> evicted = eldest.next();
+			bytes -= evicted.getValue().bytes(evicted.getKey());
+			eldest.remove();
+		}
+	}
+
+	public synchronized Entry get(String key) {
+		return entries.get(key);
+	}
+
+	public synchronized void remove(String key) {
+		Entry removed = entries.remove(key);
+		if (removed != null) {
+			bytes -= removed.bytes(key);
+		}
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/** Bytes held, bodies and headers. */
+	public synchronized long bytes() {
+		return bytes;
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.publicis_sapient.products_api.search;
+
+/**
+ * Edit distance counting insertions, deletions, substitutions and swaps of
+ * adjacent letters (optimal string alignment), with a cut-off: the row-by-row
+ * computation stops as soon as every cell in a row is over the limit, which
+ * rejects most dictionary terms after a character or two.
+ */
+final class Levenshtein {
+
+	private Levenshtein() {
+	}
+
+	/**
+	 * The edit distance between the two strings, or {@code max + 1} if it is
+	 * larger than {@code max}.
+	 */
+	static int distance(CharSequence a, CharSequence b, int max) {
+		int n = a.length();
+		int m = b.length();
+		if (Math.abs(n - m) > max) {
+			return max + 1;
+		}
+		int[] beforePrevious = new int[m + 1];
+		int[] previous = new int[m + 1];
+		int[] current = new int[m + 1];
+		for (int j = 0; j <= m; j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= n; i++) {
+			current[0] = i;
+			int rowMin = i;
+			char ca = a.charAt(i - 1);
+			for (int j = 1; j <= m; j++) {
+				char cb = b.charAt(j - 1);
+				int cost = ca == cb ? 0 : 1;
+				int value = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+				if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+					value = Math.min(value, beforePrevious[j - 2] + 1);
+				}
+				current[j] = value;
+				rowMin = Math.min(rowMin, value);
+			}
+			if (rowMin > max) {
+				return max + 1;
+			}
+			int[] recycled = beforePrevious;
+			beforePrevious = previous;
+			previous = current;
+			current = recycled;
+		}
+		return Math.min(previous[m], max + 1);
+	}
+
+}
@@ -0,0 +1,398 @@
+package com.publicis_sapient.products_api.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable inverted index over product text, ranked with BM25F: term
+ * frequencies are length-normalised per field, weighted by the field boost and
+ * summed before saturation, so a word in the title counts for more than the
+ * same word in the description.
+ *
+ * Each posting stores its finished score contribution, and postings are kept
+ * in document order so queries can be evaluated document at a time with
+ * MaxScore pruning: once the k best scores so far cannot be beaten by a
+ * document matching only the weakest terms, those terms stop producing
+ * candidates and are only probed for documents found through the others. A
+ * term present in nearly every product then costs little more than a rare one.
+ *
+ * Query terms missing from the dictionary are matched against terms within one
+ * edit (two for words of eight letters or more) that share their first letter,
+ * at a reduced weight.
+ */
+public final class SearchIndex {
+
+	public enum Field {
+		TITLE, BRAND, TAGS, DESCRIPTION
+	}
+
+	public record Hit(long productId, float score) {
+	}
+
+	private static final float FUZZY_WEIGHT = 0.6f;
+
+	private final long generation;
+	private final long[] productIds;
+	private final String[] terms;
+	private final int[][] postingDocs;
+	private final float[][] postingScores;
+	private final float[] maxScores;
+
+	private SearchIndex(long generation, long[] productIds, String[] terms, int[][] postingDocs,
+			float[][] postingScores, float[] maxScores) {
+		this.generation = generation;
+		this.productIds = productIds;
+		this.terms = terms;
+		this.postingDocs = postingDocs;
+		this.postingScores = postingScores;
+		this.maxScores = maxScores;
+	}
+
+	public static SearchIndex empty() {
+		return new SearchIndex(0, new long[0], new String[0], new int[0][], new float[0][], new float[0]);
+	}
+
+	public long generation() {
+		return generation;
+	}
+
+	public int size() {
+		return productIds.length;
+	}
+
+	public int termCount() {
+		return terms.length;
+	}
+
+	/**
+	 * The best {@code limit} products for the query, highest score first.
+	 */
+	public List<Hit> search(String query, int limit) {
+		Set<String> queryTerms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+		if (queryTerms.isEmpty() || limit <= 0 || productIds.length == 0) {
+			return List.of();
+		}
+		List<Cursor> cursors = new ArrayList<>();
+		for (String term : queryTerms) {
+			int exact = Arrays.binarySearch(terms, term);
+			if (exact >= 0) {
+				cursors.add(new Cursor(exact, 1f));
+			} else {
+				int maxEdits = term.length() >= 8 ? 2 : term.length() >= 4 ? 1 : 0;
+				if (maxEdits > 0) {
+					addFuzzyCursors(cursors, term, maxEdits);
+				}
+			}
+		}
+		if (cursors.isEmpty()) {
+			return List.of();
+		}
+		return maxScore(cursors, new TopK(limit));
+	}
+
+	private void addFuzzyCursors(List<Cursor> cursors, String term, int maxEdits) {
+		// Terms are sorted, so those sharing the first letter form one range
+		char first = term.charAt(0);
+		int from = insertionPoint(String.valueOf(first));
+		int to = first == Character.MAX_VALUE ? terms.length : insertionPoint(String.valueOf((char) (first + 1)));
+		for (int i = from; i < to; i++) {
+			String candidate = terms[i];
+			if (Math.abs(candidate.length() - term.length()) > maxEdits) {
+				continue;
+			}
+			int edits = Levenshtein.distance(term, candidate, maxEdits);
+			if (edits <= maxEdits) {
+				cursors.add(new Cursor(i, (float) Math.pow(FUZZY_WEIGHT, edits)));
+			}
+		}
+	}
+
+	private int insertionPoint(String key) {
+		int index = Arrays.binarySearch(terms, key);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	private List<Hit> maxScore(List<Cursor> cursorList, TopK top) {
+		// Weakest terms first; bounds[i] is the most terms 0..i can add together
+		Cursor[] cursors = cursorList.toArray(new Cursor[0]);
+		Arrays.sort(cursors, (a, b) -> Float.compare(a.maxScore, b.maxScore));
+		float[] bounds = new float[cursors.length];
+		float sum = 0f;
+		for (int i = 0; i < cursors.length; i++) {
+			sum += cursors[i].maxScore;
+			bounds[i] = sum;
+		}
+		int firstEssential = 0;
+		while (true) {
+			float threshold = top.threshold();
+			while (firstEssential < cursors.length && bounds[firstEssential] <= threshold) {
+				firstEssential++;
+			}
+			int doc = Integer.MAX_VALUE;
+			for (int i = firstEssential; i < cursors.length; i++) {
+				doc = Math.min(doc, cursors[i].doc());
+			}
+			if (doc == Integer.MAX_VALUE) {
+				break;
+			}
+			float score = 0f;
+			for (int i = firstEssential; i < cursors.length; i++) {
+				Cursor cursor = cursors[i];
+				if (cursor.doc() == doc) {
+					score += cursor.score();
+					cursor.next();
+				}
+			}
+			for (int i = firstEssential - 1; i >= 0 && score + bounds[i] > threshold; i--) {
+				if (cursors[i].advance(doc)) {
+					score += cursors[i].score();
+				}
+			}
+			top.offer(doc, score);
+		}
+		return top.drain(productIds);
+	}
+
+	/** Position in one term's postings, scaled for fuzzy matches. */
+	private final class Cursor {
+		private final int[] docs;
+		private final float[] scores;
+		private final float weight;
+		private final float maxScore;
+		private int position;
+
+		private Cursor(int term, float weight) {
+			this.docs = postingDocs[term];
+			this.scores = postingScores[term];
+			this.weight = weight;
+			this.maxScore = maxScores[term] * weight;
+		}
+
+		private int doc() {
+			return position < docs.length ? docs[position] : Integer.MAX_VALUE;
+		}
+
+		private float score() {
+			return scores[position] * weight;
+		}
+
+		private void next() {
+			position++;
+		}
+
+		/** Moves to the first posting at or after the document, galloping then bisecting. */
+		private boolean advance(int target) {
+			if (doc() >= target) {
+				return doc() == target;
+			}
+			int step = 1;
+			int low = position;
+			int high = position + 1;
+			while (high < docs.length && docs[high] < target) {
+				low = high;
+				step <<= 1;
+				high = low + step;
+			}
+			int index = Arrays.binarySearch(docs, low, Math.min(high + 1, docs.length), target);
+			position = index >= 0 ? index : -index - 1;
+			return index >= 0;
+		}
+	}
+
+	/** Min-heap of the best hits so far; the root is the score to beat. */
+	private static final class TopK {
+		private final int[] docs;
+		private final float[] scores;
+		private int size;
+
+		private TopK(int k) {
+			this.docs = new int[k];
+			this.scores = new float[k];
+		}
+
+		private float threshold() {
+			return size < docs.length ? 0f : scores[0];
+		}
+
+		private void offer(int doc, float score) {
+			if (size < docs.length) {
+				docs[size] = doc;
+				scores[size] = score;
+				siftUp(size++);
+			} else if (score > scores[0]) {
+				docs[0] = doc;
+				scores[0] = score;
+				siftDown();
+			}
+		}
+
+		private List<Hit> drain(long[] productIds) {
+			Hit[] hits = new Hit[size];
+			while (size > 0) {
+				hits[size - 1] = new Hit(productIds[docs[0]], scores[0]);
+				size--;
+				docs[0] = docs[size];
+				scores[0] = scores[size];
+				siftDown();
+			}
+			return Arrays.asList(hits);
+		}
+
+		private void siftUp(int index) {
+			while (index > 0) {
+				int parent = (index - 1) / 2;
+				if (scores[parent] <= scores[index]) {
+					return;
+				}
+				swap(parent, index);
+				index = parent;
+			}
+		}
+
+		private void siftDown() {
+			int index = 0;
+			while (true) {
+				int smallest = index;
+				int left = 2 * index + 1;
+				int right = left + 1;
+				if (left < size && scores[left] < scores[smallest]) {
+					smallest = left;
+				}
+				if (right < size && scores[right] < scores[smallest]) {
+					smallest = right;
+				}
+				if (smallest == index) {
+					return;
+				}
+				swap(smallest, index);
+				index = smallest;
+			}
+		}
+
+		private void swap(int a, int b) {
+			int doc = docs[a];
+			docs[a] = docs[b];
+			docs[b] = doc;
+			float score = scores[a];
+			scores[a] = scores[b];
+			scores[b] = score;
+		}
+	}
+
+	/**
+	 * Collects documents one at a time and computes the scores on
+	 * {@link #build()}, once average field lengths are known.
+	 */
+	public static final class Builder {
+
+		private static final int FIELDS = Field.values().length;
+
+		private final long generation;
+		private final float[] boosts = new float[FIELDS];
+		private final float k1;
+		private final float b;
+
+		private long[] productIds = new long[1024];
+		private int[][] fieldLengths = new int[FIELDS][1024];
+		private final long[] totalFieldLengths = new long[FIELDS];
+		private int size;
+		private final Map<String, TermPostings> postings = new HashMap<>();
+
+		public Builder(long generation, Map<Field, Float> boosts, float k1, float b) {
+			this.generation = generation;
+			for (Field field : Field.values()) {
+				this.boosts[field.ordinal()] = boosts.getOrDefault(field, 1f);
+			}
+			this.k1 = k1;
+			this.b = b;
+		}
+
+		public Builder add(long productId, String title, String brand, String tags, String description) {
+			int doc = size++;
+			if (doc == productIds.length) {
+				productIds = Arrays.copyOf(productIds, doc * 2);
+				for (int f = 0; f < FIELDS; f++) {
+					fieldLengths[f] = Arrays.copyOf(fieldLengths[f], doc * 2);
+				}
+			}
+			productIds[doc] = productId;
+
+			// Field frequencies packed a byte per field, capped at 255
+			Map<String, int[]> frequencies = new HashMap<>();
+			String[] texts = { title, brand, tags, description };
+			for (int f = 0; f < FIELDS; f++) {
+				List<String> tokens = Tokenizer.tokenize(texts[f]);
+				fieldLengths[f][doc] = tokens.size();
+				totalFieldLengths[f] += tokens.size();
+				for (String token : tokens) {
+					int[] counts = frequencies.computeIfAbsent(token, t -> new int[FIELDS]);
+					counts[f] = Math.min(255, counts[f] + 1);
+				}
+			}
+			for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+				int[] counts = entry.getValue();
+				int packed = counts[0] | counts[1] << 8 | counts[2] << 16 | counts[3] << 24;
+				postings.computeIfAbsent(entry.getKey(), t -> new TermPostings()).add(doc, packed);
+			}
+			return this;
+		}
+
+		public SearchIndex build() {
+			float[] averageLengths = new float[FIELDS];
+			for (int f = 0; f < FIELDS; f++) {
+				averageLengths[f] = size == 0 ? 1f : Math.max(1f, (float) totalFieldLengths[f] / size);
+			}
+			String[] terms = postings.keySet().toArray(new String[0]);
+			Arrays.sort(terms);
+			int[][] postingDocs = new int[terms.length][];
+			float[][] postingScores = new float[terms.length][];
+			float[] maxScores = new float[terms.length];
+			for (int t = 0; t < terms.length; t++) {
+				TermPostings term = postings.remove(terms[t]);
+				int df = term.count;
+				float idf = (float) Math.log(1 + (size - df + 0.5) / (df + 0.5));
+				int[] docs = Arrays.copyOf(term.docs, df);
+				float[] scores = new float[df];
+				for (int i = 0; i < df; i++) {
+					int doc = docs[i];
+					int packed = term.frequencies[i];
+					float weighted = 0f;
+					for (int f = 0; f < FIELDS; f++) {
+						int tf = (packed >>> (8 * f)) & 0xFF;
+						if (tf > 0) {
+							float norm = 1 - b + b * fieldLengths[f][doc] / averageLengths[f];
+							weighted += boosts[f] * tf / norm;
+						}
+					}
+					scores[i] = idf * weighted / (k1 + weighted);
+					maxScores[t] = Math.max(maxScores[t], scores[i]);
+				}
+				postingDocs[t] = docs;
+				postingScores[t] = scores;
+			}
+			return new SearchIndex(generation, Arrays.copyOf(productIds, size), terms, postingDocs, postingScores,
+					maxScores);
+		}
+
+		private static final class TermPostings {
+			private int[] docs = new int[2];
+			private int[] frequencies = new int[2];
+			private int count;
+
+			private void add(int doc, int packedFrequencies) {
+				if (count == docs.length) {
+					docs = Arrays.copyOf(docs, count * 2);
+					frequencies = Arrays.copyOf(frequencies, count * 2);
+				}
+				docs[count] = doc;
+				frequencies[count++] = packedFrequencies;
+			}
+		}
+	}
+
+}
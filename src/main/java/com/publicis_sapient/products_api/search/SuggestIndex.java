@@ -0,0 +1,399 @@
+package com.publicis_sapient.products_api.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Immutable prefix index for autocomplete, laid out as a flattened trie.
+ *
+ * Suggestion texts are packed end to end into one byte array, separated by a
+ * NUL, and every place a suggestion can be typed from (its start and, for
+ * titles, the start of each later word) is a key: an {@code int} position in
+ * that text. Keys are sorted case-insensitively, so the keys below any trie
+ * node, i.e. those starting with a given prefix, form one contiguous range
+ * found by two binary searches. A max segment tree over blocks of keys then
+ * yields the best suggestions in the range without visiting the rest of it.
+ */
+public final class SuggestIndex {
+
+	public enum Type {
+		TITLE, BRAND, CATEGORY, SKU
+	}
+
+	public record Suggestion(String text, Type type, float score) {
+	}
+
+	private static final Type[] TYPES = Type.values();
+	private static final char SEPARATOR = '\0';
+	private static final int BLOCK = 16;
+
+	private final long generation;
+	private final PackedText text;
+	private final int[] entryStarts;
+	private final byte[] entryTypes;
+	private final float[] entryScores;
+	private final int[] keys;
+	// Segment tree over blocks of keys; leaves hold the best key of their block
+	private final int[] blockTree;
+	private final int blocks;
+
+	private SuggestIndex(long generation, PackedText text, int[] entryStarts, byte[] entryTypes, float[] entryScores,
+			int[] keys) {
+		this.generation = generation;
+		this.text = text;
+		this.entryStarts = entryStarts;
+		this.entryTypes = entryTypes;
+		this.entryScores = entryScores;
+		this.keys = keys;
+		this.blocks = (keys.length + BLOCK - 1) / BLOCK;
+		this.blockTree = buildBlockTree();
+	}
+
+	public static SuggestIndex empty() {
+		return new SuggestIndex(0, PackedText.of(""), new int[] { 0 }, new byte[0], new float[0], new int[0]);
+	}
+
+	public long generation() {
+		return generation;
+	}
+
+	public int size() {
+		return entryTypes.length;
+	}
+
+	public int keyCount() {
+		return keys.length;
+	}
+
+	/**
+	 * The best {@code limit} suggestions starting with the prefix, or with a word
+	 * of a title starting with it, highest score first.
+	 */
+	public List<Suggestion> suggest(String prefix, int limit) {
+		String folded = prefix.strip().toLowerCase(Locale.ROOT);
+		if (folded.isEmpty() || limit <= 0 || keys.length == 0) {
+			return List.of();
+		}
+		int from = lowerBound(folded);
+		int to = upperBound(folded, from);
+		if (from >= to) {
+			return List.of();
+		}
+
+		// Best-first over sub-ranges: take the range holding the best key, emit it,
+		// and queue the ranges either side of it
+		PriorityQueue<Range> ranges = new PriorityQueue<>((a, b) -> Float.compare(b.score, a.score));
+		ranges.add(range(from, to));
+		List<Suggestion> suggestions = new ArrayList<>(limit);
+		Set<Integer> seen = new HashSet<>();
+		while (!ranges.isEmpty() && suggestions.size() < limit) {
+			Range range = ranges.poll();
+			int entry = entryAt(keys[range.best]);
+			if (seen.add(entry)) {
+				suggestions.add(new Suggestion(entryText(entry), TYPES[entryTypes[entry]], entryScores[entry]));
+			}
+			if (range.from < range.best) {
+				ranges.add(range(range.from, range.best));
+			}
+			if (range.best + 1 < range.to) {
+				ranges.add(range(range.best + 1, range.to));
+			}
+		}
+		return suggestions;
+	}
+
+	private record Range(int from, int to, int best, float score) {
+	}
+
+	private Range range(int from, int to) {
+		int best = maxIn(from, to);
+		return new Range(from, to, best, keyScore(best));
+	}
+
+	private int entryAt(int position) {
+		int index = Arrays.binarySearch(entryStarts, 0, entryTypes.length, position);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	private String entryText(int entry) {
+		// Each entry is followed by its separator
+		return text.substring(entryStarts[entry], entryStarts[entry + 1] - 1);
+	}
+
+	private float keyScore(int key) {
+		return entryScores[entryAt(keys[key])];
+	}
+
+	/** First key not ordered before the prefix. */
+	private int lowerBound(String prefix) {
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compareToPrefix(keys[mid], prefix) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/** First key at or after {@code from} that does not start with the prefix. */
+	private int upperBound(String prefix, int from) {
+		int low = from;
+		int high = keys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compareToPrefix(keys[mid], prefix) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Compares a key, cut to the prefix length, with the prefix: zero when the
+	 * key starts with it.
+	 */
+	private int compareToPrefix(int position, String prefix) {
+		for (int i = 0; i < prefix.length(); i++, position++) {
+			char c = text.charAt(position);
+			if (c == SEPARATOR) {
+				return -1;
+			}
+			int difference = Character.toLowerCase(c) - prefix.charAt(i);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return 0;
+	}
+
+	private int[] buildBlockTree() {
+		int[] nodes = new int[Math.max(1, 2 * blocks)];
+		for (int block = 0; block < blocks; block++) {
+			int from = block * BLOCK;
+			nodes[blocks + block] = scan(from, Math.min(from + BLOCK, keys.length), from);
+		}
+		for (int i = blocks - 1; i > 0; i--) {
+			nodes[i] = better(nodes[2 * i], nodes[2 * i + 1]);
+		}
+		return nodes;
+	}
+
+	/** Position of the best-scored key in [from, to): partial blocks are scanned, whole ones come from the tree. */
+	private int maxIn(int from, int to) {
+		int firstBlock = from / BLOCK;
+		int lastBlock = (to - 1) / BLOCK;
+		if (firstBlock == lastBlock) {
+			return scan(from, to, from);
+		}
+		int best = scan(from, (firstBlock + 1) * BLOCK, from);
+		best = scan(lastBlock * BLOCK, to, best);
+		for (int low = firstBlock + 1 + blocks, high = lastBlock + blocks; low < high; low >>= 1, high >>= 1) {
+			if ((low & 1) == 1) {
+				best = better(best, blockTree[low++]);
+			}
+			if ((high & 1) == 1) {
+				best = better(best, blockTree[--high]);
+			}
+		}
+		return best;
+	}
+
+	private int scan(int from, int to, int best) {
+		float bestScore = keyScore(best);
+		for (int key = from; key < to; key++) {
+			float score = keyScore(key);
+			if (score > bestScore) {
+				best = key;
+				bestScore = score;
+			}
+		}
+		return best;
+	}
+
+	private int better(int a, int b) {
+		return keyScore(b) > keyScore(a) ? b : a;
+	}
+
+	/**
+	 * Text stored a byte per character when it is all Latin-1, as
+	 * {@link String} does, and two otherwise.
+	 */
+	private static final class PackedText {
+		private final byte[] bytes;
+		private final boolean latin1;
+
+		private PackedText(byte[] bytes, boolean latin1) {
+			this.bytes = bytes;
+			this.latin1 = latin1;
+		}
+
+		private static PackedText of(CharSequence chars) {
+			boolean latin1 = chars.chars().allMatch(c -> c <= 0xFF);
+			byte[] bytes = new byte[latin1 ? chars.length() : 2 * chars.length()];
+			for (int i = 0; i < chars.length(); i++) {
+				char c = chars.charAt(i);
+				if (latin1) {
+					bytes[i] = (byte) c;
+				} else {
+					bytes[2 * i] = (byte) (c >>> 8);
+					bytes[2 * i + 1] = (byte) c;
+				}
+			}
+			return new PackedText(bytes, latin1);
+		}
+
+		private char charAt(int index) {
+			if (latin1) {
+				return (char) (bytes[index] & 0xFF);
+			}
+			return (char) ((bytes[2 * index] & 0xFF) << 8 | bytes[2 * index + 1] & 0xFF);
+		}
+
+		private String substring(int from, int to) {
+			char[] chars = new char[to - from];
+			for (int i = from; i < to; i++) {
+				chars[i - from] = charAt(i);
+			}
+			return new String(chars);
+		}
+	}
+
+	/**
+	 * Collects suggestions, merging repeats of the same text and type under the
+	 * best score.
+	 */
+	public static final class Builder {
+
+		private final long generation;
+		private final Map<String, Integer> entriesByText = new HashMap<>();
+		private final StringBuilder text = new StringBuilder();
+		private int[] entryStarts = new int[1024];
+		private byte[] entryTypes = new byte[1024];
+		private float[] entryScores = new float[1024];
+		private int size;
+		private int keyCount;
+
+		public Builder(long generation) {
+			this.generation = generation;
+		}
+
+		public Builder add(Type type, String value, float score) {
+			if (value == null || value.isBlank()) {
+				return this;
+			}
+			String display = value.strip().replace(SEPARATOR, ' ');
+			Integer existing = entriesByText.putIfAbsent(type.ordinal() + display.toLowerCase(Locale.ROOT), size);
+			if (existing != null) {
+				entryScores[existing] = Math.max(entryScores[existing], score);
+				return this;
+			}
+			if (size + 1 == entryStarts.length) {
+				entryStarts = Arrays.copyOf(entryStarts, entryStarts.length * 2);
+				entryTypes = Arrays.copyOf(entryTypes, entryTypes.length * 2);
+				entryScores = Arrays.copyOf(entryScores, entryScores.length * 2);
+			}
+			entryStarts[size] = text.length();
+			entryTypes[size] = (byte) type.ordinal();
+			entryScores[size] = score;
+			text.append(display).append(SEPARATOR);
+			keyCount += type == Type.TITLE ? wordStarts(display, 0, null, 0) : 1;
+			size++;
+			return this;
+		}
+
+		public SuggestIndex build() {
+			int[] starts = Arrays.copyOf(entryStarts, size + 1);
+			starts[size] = text.length();
+			int[] keys = new int[keyCount];
+			int next = 0;
+			for (int entry = 0; entry < size; entry++) {
+				if (entryTypes[entry] == Type.TITLE.ordinal()) {
+					String title = text.substring(starts[entry], starts[entry + 1] - 1);
+					next += wordStarts(title, starts[entry], keys, next);
+				} else {
+					keys[next++] = starts[entry];
+				}
+			}
+			PackedText packed = PackedText.of(text);
+			text.setLength(0);
+			entriesByText.clear();
+			sort(keys, packed);
+			return new SuggestIndex(generation, packed, starts, Arrays.copyOf(entryTypes, size),
+					Arrays.copyOf(entryScores, size), keys);
+		}
+
+		/** Counts, and if {@code keys} is given records, the start of each word; at least one per value. */
+		private static int wordStarts(String value, int base, int[] keys, int next) {
+			int count = 0;
+			for (int i = 0; i < value.length(); i++) {
+				boolean wordChar = Character.isLetterOrDigit(value.charAt(i));
+				if (wordChar && (i == 0 || !Character.isLetterOrDigit(value.charAt(i - 1)))) {
+					if (keys != null) {
+						keys[next + count] = base + i;
+					}
+					count++;
+				}
+			}
+			if (count == 0) {
+				if (keys != null) {
+					keys[next] = base;
+				}
+				count = 1;
+			}
+			return count;
+		}
+
+		/** Merge sort over key positions; the JDK has no comparator sort for primitives. */
+		private static void sort(int[] keys, PackedText text) {
+			int[] buffer = new int[keys.length];
+			for (int width = 1; width < keys.length; width *= 2) {
+				for (int low = 0; low < keys.length - width; low += 2 * width) {
+					int middle = low + width;
+					int high = Math.min(low + 2 * width, keys.length);
+					if (compare(keys[middle - 1], keys[middle], text) <= 0) {
+						continue;
+					}
+					System.arraycopy(keys, low, buffer, low, high - low);
+					int left = low;
+					int right = middle;
+					for (int i = low; i < high; i++) {
+						if (right >= high || left < middle && compare(buffer[left], buffer[right], text) <= 0) {
+							keys[i] = buffer[left++];
+						} else {
+							keys[i] = buffer[right++];
+						}
+					}
+				}
+			}
+		}
+
+		/** Case-insensitive comparison up to the separator, which sorts first. */
+		private static int compare(int a, int b, PackedText text) {
+			while (true) {
+				char ca = text.charAt(a++);
+				char cb = text.charAt(b++);
+				if (ca == SEPARATOR || cb == SEPARATOR) {
+					return (ca == SEPARATOR ? 0 : 1) - (cb == SEPARATOR ? 0 : 1);
+				}
+				int difference = Character.toLowerCase(ca) - Character.toLowerCase(cb);
+				if (difference != 0) {
+					return difference;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+package com.publicis_sapient.products_api.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.publicis_sapient.products_api.dao.CatalogChangeRepository;
+import com.publicis_sapient.products_api.entity.CatalogChange;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps this replica's view of the catalog in step with the others through the
+ * {@link CatalogChange} log. Writers append an entry in the same transaction as
+ * their change, holding the log's append lock so entries commit in version
+ * order; every replica polls for entries past the last version it
+ * applied, which is a single range scan on the primary key, and applies them
+ * in order: activations switch the generation, and each applied batch is
+ * published so the catalog views can reload the changed products.
+ *
+ * Each replica also keeps a {@link com.publicis_sapient.products_api.entity.CatalogReplica}
+ * row up to date with the version it applied and the oldest generation it
+ * still reads. Entries every live replica has applied are pruned from the
+ * log, and retired generations are deleted once no live replica reads them.
+ * A replica that misses heartbeats for longer than the expiry no longer holds
+ * anything back; when it comes back it skips to the head of the log.
+ */
+@Service
+public class CatalogChangeService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CatalogChangeService.class);
+
+	private static final String POLL_QUERY = "SELECT version, type, generation, sku, category_key, created_at"
+			+ " FROM catalog_change WHERE version > ? ORDER BY version LIMIT ?";
+	private static final String UPDATE_REPLICA = "UPDATE catalog_replica SET applied_version = ?,"
+			+ " oldest_generation = ?, seen_at = ? WHERE id = ?";
+	private static final String INSERT_REPLICA = "INSERT INTO catalog_replica"
+			+ " (applied_version, oldest_generation, seen_at, id) VALUES (?, ?, ?, ?)";
+	private static final String EXPIRE_REPLICAS = "DELETE FROM catalog_replica WHERE seen_at < ?";
+	private static final String REPLICAS_QUERY = "SELECT MIN(applied_version) AS applied_version,"
+			+ " MIN(oldest_generation) AS oldest_generation FROM catalog_replica";
+	// Keeps the entry every live replica applied last, so the log never empties
+	// and a new replica still finds its head
+	private static final String PRUNE_CHANGES = "DELETE FROM catalog_change WHERE version < ?"
+			+ " AND version <> (SELECT COALESCE(MAX(version), 0) FROM catalog_change"
+			+ " WHERE type = 'GENERATION_ACTIVATED')";
+
+	private final CatalogChangeRepository changeRepository;
+	private final CatalogGenerationService generationService;
+	private final JdbcTemplate jdbcTemplate;
+	private final ApplicationEventPublisher eventPublisher;
+	private final TaskExecutor taskExecutor;
+	private final int pollBatchSize;
+	private final Duration replicaExpireAfter;
+	private final Timer propagationDelay;
+	private final String replicaId = UUID.randomUUID().toString();
+
+	private volatile long appliedVersion;
+	private boolean registered;
+	private volatile long lastPollNanos = System.nanoTime();
+
+	public CatalogChangeService(CatalogChangeRepository changeRepository, CatalogGenerationService generationService,
+			JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher, TaskExecutor taskExecutor,
+			MeterRegistry meterRegistry, @Value("${catalog.changes.poll-batch-size:500}") int pollBatchSize,
+			@Value("${catalog.replica.expire-after:10m}") Duration replicaExpireAfter) {
+		this.changeRepository = changeRepository;
+		this.generationService = generationService;
+		this.jdbcTemplate = jdbcTemplate;
+		this.eventPublisher = eventPublisher;
+		this.taskExecutor = taskExecutor;
+		this.pollBatchSize = pollBatchSize;
+		this.replicaExpireAfter = replicaExpireAfter;
+
+		Gauge.builder("catalog.changes.applied.version", this, CatalogChangeService::getAppliedVersion)
+				.description("Last change log version applied by this replica").register(meterRegistry);
+		TimeGauge.builder("catalog.replica.staleness", this, TimeUnit.NANOSECONDS,
+				service -> System.nanoTime() - service.lastPollNanos)
+				.description("Time since this replica last caught up with the change log").register(meterRegistry);
+		this.propagationDelay = Timer.builder("catalog.changes.propagation")
+				.description("Delay between a change being logged and this replica applying it")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Starts from the head of the log. The generation service has already picked
+	 * up the active generation; switching to the latest logged activation as
+	 * well covers one that landed in between.
+	 */
+	@PostConstruct
+	public synchronized void init() {
+		followFromHead();
+		heartbeat();
+		LOGGER.info("Following the catalog change log from version {}.", appliedVersion);
+	}
+
+	@PreDestroy
+	public void leave() {
+		jdbcTemplate.update("DELETE FROM catalog_replica WHERE id = ?", replicaId);
+	}
+
+	public long getAppliedVersion() {
+		return appliedVersion;
+	}
+
+	@Scheduled(fixedDelayString = "${catalog.changes.poll-interval:1s}")
+	public synchronized void poll() {
+		try {
+			List<CatalogChange> changes;
+			do {
+				changes = jdbcTemplate.query(POLL_QUERY, (rs, row) -> {
+					CatalogChange change = new CatalogChange();
+					change.setVersion(rs.getLong("version"));
+					change.setType(CatalogChange.Type.valueOf(rs.getString("type")));
+					change.setGeneration(rs.getLong("generation"));
+					change.setSku(rs.getString("sku"));
+					change.setCategoryKey(rs.getString("category_key"));
+					Timestamp createdAt = rs.getTimestamp("created_at");
+					change.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+					return change;
+				}, appliedVersion, pollBatchSize);
+				changes.forEach(this::apply);
+				if (!changes.isEmpty()) {
+					eventPublisher.publishEvent(new CatalogChangesAppliedEvent(changes));
+				}
+			} while (changes.size() == pollBatchSize);
+			lastPollNanos = System.nanoTime();
+		} catch (RuntimeException e) {
+			LOGGER.warn("Polling the catalog change log failed: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Reports where this replica is, then prunes what no live replica needs
+	 * any more: change log entries all of them applied, and retired generations
+	 * none of them reads.
+	 */
+	@Scheduled(fixedDelayString = "${catalog.replica.heartbeat-interval:10s}")
+	public synchronized void heartbeat() {
+		try {
+			report();
+			jdbcTemplate.update(EXPIRE_REPLICAS, LocalDateTime.now().minus(replicaExpireAfter));
+			Map<String, Object> replicas = jdbcTemplate.queryForMap(REPLICAS_QUERY);
+			Number applied = (Number) replicas.get("applied_version");
+			Number oldest = (Number) replicas.get("oldest_generation");
+			if (applied != null) {
+				int pruned = jdbcTemplate.update(PRUNE_CHANGES, applied.longValue());
+				if (pruned > 0) {
+					LOGGER.debug("Pruned {} catalog change log entries before version {}.", pruned, applied);
+				}
+			}
+			generationService.releaseRetired(oldest != null ? oldest.longValue() : Long.MAX_VALUE);
+		} catch (RuntimeException e) {
+			LOGGER.warn("Catalog replica heartbeat failed: {}", e.getMessage());
+		}
+	}
+
+	/** A generation this replica read is done with, which may free its rows. */
+	@EventListener
+	public void onCatalogReleased(CatalogReleasedEvent event) {
+		taskExecutor.execute(this::heartbeat);
+	}
+
+	private void report() {
+		Object[] row = { appliedVersion, generationService.oldestGenerationInUse(), LocalDateTime.now(), replicaId };
+		if (jdbcTemplate.update(UPDATE_REPLICA, row) > 0) {
+			return;
+		}
+		if (registered) {
+			// Expired by another replica, which may have pruned entries not applied here yet
+			long skippedFrom = appliedVersion;
+			followFromHead();
+			LOGGER.warn("Catalog replica expired at version {}; skipped to version {}.", skippedFrom, appliedVersion);
+			eventPublisher.publishEvent(new CatalogChangesSkippedEvent(appliedVersion));
+			row[0] = appliedVersion;
+			row[1] = generationService.oldestGenerationInUse();
+		}
+		jdbcTemplate.update(INSERT_REPLICA, row);
+		registered = true;
+	}
+
+	private void followFromHead() {
+		appliedVersion = changeRepository.findLatestVersion();
+		changeRepository.findFirstByTypeOrderByVersionDesc(CatalogChange.Type.GENERATION_ACTIVATED)
+				.ifPresent(activation -> generationService.switchTo(activation.getGeneration()));
+	}
+
+	private void apply(CatalogChange change) {
+		if (change.getType() == CatalogChange.Type.GENERATION_ACTIVATED
+				&& generationService.switchTo(change.getGeneration())) {
+			LOGGER.info("Applied catalog generation {} from change {}.", change.getGeneration(), change.getVersion());
+		}
+		if (change.getCreatedAt() != null) {
+			propagationDelay.record(Duration.between(change.getCreatedAt(), LocalDateTime.now()));
+		}
+		appliedVersion = change.getVersion();
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.publicis_sapient.products_api.service;
+
+import java.util.List;
+
+import com.publicis_sapient.products_api.entity.CatalogChange;
+
+/**
+ * Published after this replica has applied a batch of change log entries, in
+ * version order.
+ */
+public record CatalogChangesAppliedEvent(List<CatalogChange> changes) {
+}
@@ -0,0 +1,10 @@
+package com.publicis_sapient.products_api.service;
+
+/**
+ * Published when this replica fell so far behind that the change log was
+ * pruned past it, and it jumped to {@code version} without applying the
+ * changes in between. Anything kept up to date from the log has to be
+ * reloaded.
+ */
+public record CatalogChangesSkippedEvent(long version) {
+}
@@ -0,0 +1,429 @@
+package com.publicis_sapient.products_api.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.publicis_sapient.products_api.view.CatalogView;
+import com.publicis_sapient.products_api.view.ProductView;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Writes the catalog to gzip dump files for bulk download, once per catalog
+ * version and format, so serving a download is a plain file transfer.
+ *
+ * Dumps are written in the background, at most one per format at a time,
+ * when this instance switches to a new generation or a download finds the
+ * catalog has changed since the latest dump; downloads are served the latest
+ * finished dump meanwhile, and wait only for the very first. Stock is not
+ * catalog content, so reservations do not cause new dumps. A dump's bytes
+ * never change, so its name doubles as its ETag. A dump replaced by a newer
+ * version is kept for {@code export.retention}, so a download interrupted by
+ * the change can still be resumed, and is deleted only once no transfer
+ * holds it, nor can be about to open it.
+ *
+ * Each instance writes to its own directory under {@code export.directory},
+ * removed on shutdown.
+ */
+@Service
+public class CatalogExportService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CatalogExportService.class);
+
+	private static final String FILE_PREFIX = "catalog-";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// Far longer than the container takes to open a file handed to it
+	private static final Duration HAND_OFF_GRACE = Duration.ofMinutes(1);
+	private static final List<String> CSV_COLUMNS = List.of("id", "sku", "title", "description", "category", "brand",
+			"price", "discountPercentage", "rating", "stock", "availabilityStatus", "minimumOrderQuantity", "weight",
+			"width", "height", "depth", "warrantyInformation", "shippingInformation", "returnPolicy", "tags",
+			"thumbnail", "images", "createdAt", "updatedAt", "barcode", "reviewCount", "averageRating");
+
+	public enum Format {
+		NDJSON, CSV;
+
+		public String extension() {
+			return name().toLowerCase(Locale.ROOT) + ".gz";
+		}
+
+		/** The format with this name, ignoring case, or null. */
+		public static Format of(String name) {
+			for (Format format : values()) {
+				if (format.name().equalsIgnoreCase(name)) {
+					return format;
+				}
+			}
+			return null;
+		}
+	}
+
+	/** A finished dump file of one catalog version. */
+	public record Export(Path path, Format format, long generation, long version, long length) {
+
+		public String fileName() {
+			return path.getFileName().toString();
+		}
+
+		public String etag() {
+			return "\"" + fileName() + "\"";
+		}
+	}
+
+	private final CatalogGenerationService generationService;
+	private final CatalogViewService viewService;
+	private final ObjectMapper objectMapper;
+	private final TaskExecutor taskExecutor;
+	private final Path directory;
+	private final Duration retention;
+	private final Timer writeTimer;
+
+	// Dumps that can be downloaded by ETag, the newest of each format, and when older ones were replaced
+	private final Map<String, Export> exports = new ConcurrentHashMap<>();
+	private final Map<Format, Export> latest = new ConcurrentHashMap<>();
+	private final Map<String, Instant> replacedAt = new ConcurrentHashMap<>();
+	// The write in flight for each format
+	private final Map<Format, CompletableFuture<Export>> writing = new ConcurrentHashMap<>();
+	// Transfers reading each dump, and expired dumps to delete once none are
+	private final Map<String, AtomicInteger> transfers = new ConcurrentHashMap<>();
+	private final Map<String, Export> expired = new ConcurrentHashMap<>();
+	// When each dump was last handed to the container to send
+	private final Map<String, Instant> handedOff = new ConcurrentHashMap<>();
+
+	public CatalogExportService(CatalogGenerationService generationService, CatalogViewService viewService,
+			ObjectMapper objectMapper, TaskExecutor taskExecutor, MeterRegistry meterRegistry,
+			@Value("${export.directory:${java.io.tmpdir}/products-api-export}") Path directory,
+			@Value("${export.retention:1h}") Duration retention) {
+		this.generationService = generationService;
+		this.viewService = viewService;
+		this.objectMapper = objectMapper;
+		this.taskExecutor = taskExecutor;
+		this.directory = createDirectory(directory);
+		this.retention = retention;
+		this.writeTimer = Timer.builder("catalog.export.write").register(meterRegistry);
+	}
+
+	/**
+	 * The latest dump of the catalog. If the catalog has changed since, a new
+	 * dump is started in the background; only when there is no dump at all yet
+	 * does this wait for it.
+	 */
+	public Export current(Format format) {
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			CatalogView view = viewService.view(lease.generation());
+			Export export = exports.get(etag(view, format));
+			if (export != null) {
+				return export;
+			}
+			CompletableFuture<Export> write = writeInBackground(view, format);
+			Export previous = latest.get(format);
+			if (previous != null) {
+				return previous;
+			}
+			try {
+				return write.join();
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof RuntimeException cause ? cause : e;
+			}
+		}
+	}
+
+	/** A dump still on disk with the given ETag, current or recently replaced. */
+	public Optional<Export> find(String etag) {
+		return Optional.ofNullable(exports.get(etag));
+	}
+
+	/**
+	 * Keeps the dump on disk until the returned transfer is closed, even if it
+	 * expires meanwhile.
+	 */
+	public Transfer startTransfer(Export export) {
+		transfers.computeIfAbsent(export.etag(), etag -> new AtomicInteger()).incrementAndGet();
+		return new Transfer() {
+			@Override
+			public void handOff() {
+				handedOff.put(export.etag(), Instant.now());
+			}
+
+			@Override
+			public void close() {
+				transfers.computeIfPresent(export.etag(), (etag, count) -> count.decrementAndGet() == 0 ? null : count);
+			}
+		};
+	}
+
+	/** A download reading a dump. */
+	public interface Transfer extends AutoCloseable {
+
+		/**
+		 * Marks the rest of the transfer as left to the container, as with
+		 * sendfile, which opens the file only after the request has returned
+		 * and this transfer is closed. An open file stays readable even once
+		 * deleted (and on Windows cannot be deleted), so the dump is kept for
+		 * a grace period after the hand-off, until the container has it open.
+		 */
+		void handOff();
+
+		@Override
+		void close();
+	}
+
+	@PreDestroy
+	public void deleteDirectory() {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(CatalogExportService::deleteQuietly);
+		} catch (IOException e) {
+			LOGGER.warn("Could not delete the export directory {}: {}", directory, e.getMessage());
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (generationService.currentGeneration() > 0) {
+			taskExecutor.execute(this::warmUp);
+		}
+	}
+
+	@EventListener
+	public void onCatalogSwitched(CatalogSwitchedEvent event) {
+		taskExecutor.execute(this::warmUp);
+	}
+
+	private void warmUp() {
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			CatalogView view = viewService.view(lease.generation());
+			for (Format format : Format.values()) {
+				if (!exports.containsKey(etag(view, format))) {
+					writeInBackground(view, format);
+				}
+			}
+		} catch (RuntimeException e) {
+			LOGGER.warn("Writing the catalog export failed; it is retried on first download: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Starts writing the view as a dump of the format, unless a dump of that
+	 * format is already being written; returns the write in flight.
+	 */
+	private CompletableFuture<Export> writeInBackground(CatalogView view, Format format) {
+		CompletableFuture<Export> write = new CompletableFuture<>();
+		CompletableFuture<Export> running = writing.putIfAbsent(format, write);
+		if (running != null) {
+			return running;
+		}
+		Runnable task = () -> {
+			try {
+				Export export = exports.get(etag(view, format));
+				write.complete(export != null ? export : publish(write(view, format)));
+			} catch (RuntimeException e) {
+				LOGGER.warn("Writing the catalog export as {} failed: {}", format, e.getMessage());
+				write.completeExceptionally(e);
+			} finally {
+				writing.remove(format, write);
+			}
+		};
+		try {
+			taskExecutor.execute(task);
+		} catch (RuntimeException e) {
+			writing.remove(format, write);
+			write.completeExceptionally(e);
+		}
+		return write;
+	}
+
+	private synchronized Export publish(Export export) {
+		exports.put(export.etag(), export);
+		Export previous = latest.put(export.format(), export);
+		if (previous != null) {
+			replacedAt.put(previous.etag(), Instant.now());
+		}
+		deleteExpired();
+		return export;
+	}
+
+	private static String etag(CatalogView view, Format format) {
+		return "\"" + fileName(view, format) + "\"";
+	}
+
+	private static String fileName(CatalogView view, Format format) {
+		return FILE_PREFIX + view.generation() + "-" + view.version() + "." + format.extension();
+	}
+
+	/**
+	 * Writes the view to a temporary file and moves it into place, so a dump
+	 * is only ever seen complete.
+	 */
+	private Export write(CatalogView view, Format format) {
+		long start = System.nanoTime();
+		Path target = directory.resolve(fileName(view, format));
+		Path temp = null;
+		try {
+			temp = Files.createTempFile(directory, FILE_PREFIX, ".part");
+			try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)) {
+				if (format == Format.NDJSON) {
+					writeNdjson(view.all(), out);
+				} else {
+					writeCsv(view.all(), out);
+				}
+			}
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			Export export = new Export(target, format, view.generation(), view.version(), Files.size(target));
+			long elapsed = System.nanoTime() - start;
+			writeTimer.record(elapsed, TimeUnit.NANOSECONDS);
+			LOGGER.info("Exported catalog generation {} at version {} as {}: {} products, {} bytes in {} ms.",
+					view.generation(), view.version(), format, view.size(), export.length(),
+					TimeUnit.NANOSECONDS.toMillis(elapsed));
+			return export;
+		} catch (IOException e) {
+			deleteQuietly(temp);
+			throw new UncheckedIOException("Could not write the catalog export " + target, e);
+		}
+	}
+
+	private void writeNdjson(List<ProductView> products, OutputStream out) throws IOException {
+		try (SequenceWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+				.withRootValueSeparator("\n").writeValues(out)) {
+			for (ProductView product : products) {
+				writer.write(product);
+			}
+		}
+		if (!products.isEmpty()) {
+			out.write('\n');
+		}
+	}
+
+	private static void writeCsv(List<ProductView> products, OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+		writeCsvRow(writer, CSV_COLUMNS);
+		for (ProductView p : products) {
+			ProductView.Dimensions dimensions = p.dimensions();
+			ProductView.Meta meta = p.meta();
+			ProductView.ReviewSummary reviews = p.reviewSummary();
+			writeCsvRow(writer, Arrays.asList(p.id(), p.sku(), p.title(), p.description(), p.category(),
+					p.brand(), p.price(), p.discountPercentage(), p.rating(), p.stock(), p.availabilityStatus(),
+					p.minimumOrderQuantity(), p.weight(), dimensions != null ? dimensions.width() : null,
+					dimensions != null ? dimensions.height() : null, dimensions != null ? dimensions.depth() : null,
+					p.warrantyInformation(), p.shippingInformation(), p.returnPolicy(), joined(p.tags()),
+					p.thumbnail(), joined(p.images()), meta != null ? meta.createdAt() : null,
+					meta != null ? meta.updatedAt() : null, meta != null ? meta.barcode() : null,
+					reviews != null ? reviews.reviewCount() : null, reviews != null ? reviews.averageRating() : null));
+		}
+		writer.flush();
+	}
+
+	/** One RFC 4180 row; nulls are left empty. */
+	private static void writeCsvRow(Writer writer, List<?> values) throws IOException {
+		for (Iterator<?> it = values.iterator(); it.hasNext();) {
+			Object value = it.next();
+			if (value != null) {
+				String text = value.toString();
+				if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0
+						|| text.indexOf('\r') >= 0) {
+					writer.write('"');
+					writer.write(text.replace("\"", "\"\""));
+					writer.write('"');
+				} else {
+					writer.write(text);
+				}
+			}
+			if (it.hasNext()) {
+				writer.write(',');
+			}
+		}
+		writer.write("\r\n");
+	}
+
+	private static String joined(List<String> values) {
+		return values == null || values.isEmpty() ? null : String.join("|", values);
+	}
+
+	/**
+	 * Stops offering replaced dumps once they have been kept for the retention
+	 * period, and deletes those stopped on an earlier pass that no transfer
+	 * holds and that were not recently handed off. The pass in between covers
+	 * a download that found a dump just before it expired and has not opened
+	 * it yet.
+	 */
+	private void deleteExpired() {
+		Instant handOffCutoff = Instant.now().minus(HAND_OFF_GRACE);
+		expired.forEach((etag, export) -> {
+			Instant handed = handedOff.get(etag);
+			if (!transfers.containsKey(etag) && (handed == null || handed.isBefore(handOffCutoff))
+					&& deleteQuietly(export.path())) {
+				expired.remove(etag);
+				handedOff.remove(etag);
+			}
+		});
+		Instant cutoff = Instant.now().minus(retention);
+		replacedAt.forEach((etag, replaced) -> {
+			if (replaced.isBefore(cutoff)) {
+				Export export = exports.remove(etag);
+				replacedAt.remove(etag);
+				if (export != null) {
+					expired.put(etag, export);
+				}
+			}
+		});
+	}
+
+	/** A directory of this instance's own, so no other instance's dumps are touched. */
+	private static Path createDirectory(Path parent) {
+		try {
+			Files.createDirectories(parent);
+			return Files.createTempDirectory(parent, "instance-");
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not prepare the export directory under " + parent, e);
+		}
+	}
+
+	private static boolean deleteQuietly(Path path) {
+		if (path == null) {
+			return true;
+		}
+		try {
+			Files.deleteIfExists(path);
+			return true;
+		} catch (IOException e) {
+			LOGGER.warn("Could not delete {}: {}", path, e.getMessage());
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,358 @@
+package com.publicis_sapient.products_api.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.publicis_sapient.products_api.dao.CatalogChangeLockRepository;
+import com.publicis_sapient.products_api.dao.CatalogChangeRepository;
+import com.publicis_sapient.products_api.dao.CatalogGenerationRepository;
+import com.publicis_sapient.products_api.entity.CatalogChange;
+import com.publicis_sapient.products_api.entity.CatalogChangeLock;
+import com.publicis_sapient.products_api.entity.CatalogGeneration;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Owns the pointer to the catalog generation that readers see.
+ *
+ * Readers take a {@link Lease} on the current generation for the length of a
+ * request. Activating a new generation swaps the pointer in one step; the
+ * previous generation is retired and its views are released once the last
+ * lease on it is closed. Its rows stay until every replica has let go of it
+ * as well, which they report through {@link CatalogChangeService}.
+ */
+@Service
+public class CatalogGenerationService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CatalogGenerationService.class);
+
+	private static final String[] DELETE_GENERATION_STATEMENTS = {
+			"DELETE FROM product_tags WHERE product_id IN (SELECT id FROM product WHERE generation = ?)",
+			"DELETE FROM product_images WHERE product_id IN (SELECT id FROM product WHERE generation = ?)",
+			"DELETE FROM product_reviews WHERE product_id IN (SELECT id FROM product WHERE generation = ?)",
+			"DELETE FROM product WHERE generation = ?" };
+
+	// Products new to the generation or different from the previous one, by
+	// feed content or stock, and products it no longer has
+	private static final String LOG_UPSERTS = "INSERT INTO catalog_change (type, generation, sku, category_key, created_at)"
+			+ " SELECT 'PRODUCT_UPDATED', n.generation, n.sku, n.category_key, CURRENT_TIMESTAMP FROM product n"
+			+ " LEFT JOIN product o ON o.generation = ? AND o.sku = n.sku WHERE n.generation = ?"
+			+ " AND (o.id IS NULL OR o.content_hash IS DISTINCT FROM n.content_hash OR o.stock IS DISTINCT FROM n.stock)";
+	private static final String LOG_DELETES = "INSERT INTO catalog_change (type, generation, sku, category_key, created_at)"
+			+ " SELECT 'PRODUCT_DELETED', ?, o.sku, o.category_key, CURRENT_TIMESTAMP FROM product o WHERE o.generation = ?"
+			+ " AND NOT EXISTS (SELECT 1 FROM product n WHERE n.generation = ? AND n.sku = o.sku)";
+
+	// Stock takes the feed's count and keeps what outstanding reservations
+	// hold; SKUs the generation no longer has cannot be reserved
+	private static final String SYNC_STOCK = "MERGE INTO product_stock s USING (SELECT sku, MAX(COALESCE(stock, 0)) AS stock"
+			+ " FROM product WHERE generation = ? GROUP BY sku) n ON s.sku = n.sku"
+			+ " WHEN MATCHED THEN UPDATE SET stock = n.stock"
+			+ " WHEN NOT MATCHED THEN INSERT (sku, stock, reserved, handoff_requested) VALUES (n.sku, n.stock, 0, FALSE)";
+	private static final String CLEAR_DROPPED_STOCK = "UPDATE product_stock s SET stock = 0"
+			+ " WHERE NOT EXISTS (SELECT 1 FROM product n WHERE n.generation = ? AND n.sku = s.sku)";
+
+	// SKUs loaded for the first time get the next id; every row of the
+	// generation then takes its SKU's id
+	private static final String ADD_PRODUCT_KEYS = "INSERT INTO product_key (id, sku)"
+			+ " SELECT NEXT VALUE FOR product_key_seq, n.sku FROM product n WHERE n.generation = ?"
+			+ " AND NOT EXISTS (SELECT 1 FROM product_key k WHERE k.sku = n.sku)";
+	private static final String SET_PRODUCT_IDS = "UPDATE product n"
+			+ " SET product_id = (SELECT k.id FROM product_key k WHERE k.sku = n.sku) WHERE n.generation = ?";
+	private static final int ASSIGN_ATTEMPTS = 3;
+
+	private final CatalogGenerationRepository generationRepository;
+	private final CatalogChangeRepository changeRepository;
+	private final CatalogChangeLockRepository changeLockRepository;
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final TaskExecutor taskExecutor;
+	private final ApplicationEventPublisher eventPublisher;
+	private final Duration abandonedBuildAfter;
+
+	private final AtomicReference<Generation> current = new AtomicReference<>(new Generation(0));
+	// Generations this instance still reads: the current one, and retired ones with leases left
+	private final Set<Generation> inUse = ConcurrentHashMap.newKeySet();
+	private final ThreadLocal<Lease> heldLease = new ThreadLocal<>();
+
+	public CatalogGenerationService(CatalogGenerationRepository generationRepository,
+			CatalogChangeRepository changeRepository, CatalogChangeLockRepository changeLockRepository,
+			JdbcTemplate jdbcTemplate,
+			PlatformTransactionManager transactionManager, TaskExecutor taskExecutor,
+			ApplicationEventPublisher eventPublisher,
+			@Value("${catalog.abandoned-build-after:1h}") Duration abandonedBuildAfter) {
+		this.generationRepository = generationRepository;
+		this.changeRepository = changeRepository;
+		this.changeLockRepository = changeLockRepository;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.taskExecutor = taskExecutor;
+		this.eventPublisher = eventPublisher;
+		this.abandonedBuildAfter = abandonedBuildAfter;
+	}
+
+	/**
+	 * Picks up the active generation left by a previous run and drops any build a
+	 * crashed or interrupted load left behind. Retired generations are left to
+	 * {@link #releaseRetired}.
+	 */
+	@PostConstruct
+	public void init() {
+		if (!changeLockRepository.existsById(CatalogChangeLock.ID)) {
+			try {
+				changeLockRepository.save(new CatalogChangeLock(CatalogChangeLock.ID));
+			} catch (DataIntegrityViolationException e) {
+				// Another replica starting at the same time created it
+			}
+		}
+		generationRepository.findFirstByStatusOrderByIdDesc(CatalogGeneration.Status.ACTIVE).ifPresent(active -> {
+			current.set(new Generation(active.getId()));
+			inUse.add(current.get());
+			LOGGER.info("Serving catalog generation {} ({} products).", active.getId(), active.getProductCount());
+		});
+		LocalDateTime abandonedBefore = LocalDateTime.now().minus(abandonedBuildAfter);
+		for (CatalogGeneration leftover : generationRepository
+				.findByStatusIn(List.of(CatalogGeneration.Status.BUILDING))) {
+			// A recent build may still be running in another instance
+			if (leftover.getCreatedAt().isBefore(abandonedBefore)) {
+				LOGGER.info("Removing abandoned build of catalog generation {}.", leftover.getId());
+				deleteGeneration(leftover.getId(), CatalogGeneration.Status.FAILED);
+			}
+		}
+	}
+
+	public long currentGeneration() {
+		return current.get().id;
+	}
+
+	/**
+	 * The oldest generation this instance may still read, or null if it reads
+	 * none yet.
+	 */
+	public Long oldestGenerationInUse() {
+		return inUse.stream().mapToLong(generation -> generation.id).filter(id -> id > 0).boxed()
+				.min(Long::compare).orElse(null);
+	}
+
+	/**
+	 * Pins the current generation for the calling thread. Leases are reentrant:
+	 * a thread that already holds one gets the same generation back.
+	 */
+	public Lease acquire() {
+		Lease held = heldLease.get();
+		if (held != null) {
+			held.depth++;
+			return held;
+		}
+		while (true) {
+			Generation generation = current.get();
+			generation.readers.incrementAndGet();
+			if (!generation.retired) {
+				Lease lease = new Lease(generation);
+				heldLease.set(lease);
+				return lease;
+			}
+			// Lost the race with a swap; step off the retired generation and retry
+			generation.leave();
+		}
+	}
+
+	public long startBuild() {
+		return transactionTemplate.execute(status -> {
+			// Numbered from a sequence, so replicas building at once get distinct ids
+			long id = generationRepository.save(new CatalogGeneration(CatalogGeneration.Status.BUILDING)).getId();
+			LOGGER.info("Building catalog generation {}.", id);
+			return id;
+		});
+	}
+
+	/**
+	 * Gives each product of a fully written generation the id its SKU was first
+	 * served under, so ids stay the same from one load to the next.
+	 */
+	public void assignProductIds(long id) {
+		for (int attempt = 1;; attempt++) {
+			try {
+				transactionTemplate.executeWithoutResult(status -> {
+					int added = jdbcTemplate.update(ADD_PRODUCT_KEYS, id);
+					jdbcTemplate.update(SET_PRODUCT_IDS, id);
+					LOGGER.info("Catalog generation {} introduces {} new SKUs.", id, added);
+				});
+				return;
+			} catch (DuplicateKeyException e) {
+				// Another replica added some of the same SKUs first; theirs are picked up now
+				if (attempt == ASSIGN_ATTEMPTS) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Makes a fully written generation the one readers see, here and, through
+	 * the change log, on every other replica. The products that differ from the
+	 * previous generation are logged ahead of the activation, so change stream
+	 * subscribers receive only what the reload changed. Live stock moves to
+	 * the new generation's counts in the same transaction, keeping outstanding
+	 * reservations.
+	 */
+	public void activate(long id, long productCount) {
+		transactionTemplate.executeWithoutResult(status -> {
+			// Held to the commit: changes logged meanwhile take versions after these
+			changeRepository.lockForAppend();
+			Optional<CatalogGeneration> active = generationRepository
+					.findFirstByStatusOrderByIdDesc(CatalogGeneration.Status.ACTIVE);
+			long previousId = active.map(CatalogGeneration::getId).orElse(0L);
+			int upserts = jdbcTemplate.update(LOG_UPSERTS, previousId, id);
+			int deletes = jdbcTemplate.update(LOG_DELETES, id, previousId, id);
+			LOGGER.info("Catalog generation {} changes {} products and removes {} from generation {}.", id, upserts,
+					deletes, previousId);
+			jdbcTemplate.update(SYNC_STOCK, id);
+			jdbcTemplate.update(CLEAR_DROPPED_STOCK, id);
+			active.ifPresent(previous -> {
+				previous.setStatus(CatalogGeneration.Status.RETIRED);
+				previous.setRetiredAt(LocalDateTime.now());
+			});
+			CatalogGeneration generation = generationRepository.findById(id)
+					.orElseThrow(() -> new IllegalStateException("Unknown catalog generation " + id));
+			generation.setStatus(CatalogGeneration.Status.ACTIVE);
+			generation.setProductCount(productCount);
+			generation.setActivatedAt(LocalDateTime.now());
+			changeRepository.save(new CatalogChange(CatalogChange.Type.GENERATION_ACTIVATED, id, null, null));
+		});
+		switchTo(id);
+	}
+
+	/**
+	 * Points this instance at an already activated generation. Generations only
+	 * move forward, so switching to the current or an older one does nothing.
+	 */
+	public boolean switchTo(long id) {
+		while (true) {
+			Generation previous = current.get();
+			if (previous.id >= id) {
+				return false;
+			}
+			Generation next = new Generation(id);
+			inUse.add(next);
+			if (current.compareAndSet(previous, next)) {
+				LOGGER.info("Switched catalog from generation {} to {}.", previous.id, id);
+				previous.retire();
+				eventPublisher.publishEvent(new CatalogSwitchedEvent(id));
+				return true;
+			}
+			inUse.remove(next);
+		}
+	}
+
+	/**
+	 * Drops a generation that did not finish loading.
+	 */
+	public void abandon(long id) {
+		LOGGER.warn("Abandoning catalog generation {}.", id);
+		taskExecutor.execute(() -> deleteGeneration(id, CatalogGeneration.Status.FAILED));
+	}
+
+	/**
+	 * Deletes the rows of retired generations older than {@code oldestInUse},
+	 * the oldest generation any live replica still reads.
+	 */
+	public void releaseRetired(long oldestInUse) {
+		for (CatalogGeneration retired : generationRepository
+				.findByStatusIn(List.of(CatalogGeneration.Status.RETIRED))) {
+			if (retired.getId() < oldestInUse) {
+				deleteGeneration(retired.getId(), CatalogGeneration.Status.RELEASED);
+			}
+		}
+	}
+
+	private void release(Generation generation) {
+		inUse.remove(generation);
+		eventPublisher.publishEvent(new CatalogReleasedEvent(generation.id));
+	}
+
+	private void deleteGeneration(long id, CatalogGeneration.Status finalStatus) {
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				for (String statement : DELETE_GENERATION_STATEMENTS) {
+					jdbcTemplate.update(statement, id);
+				}
+				generationRepository.findById(id).ifPresent(generation -> generation.setStatus(finalStatus));
+			});
+			LOGGER.info("Released catalog generation {}.", id);
+		} catch (RuntimeException e) {
+			LOGGER.error("Failed to release catalog generation {}: {}", id, e.getMessage(), e);
+		}
+	}
+
+	private final class Generation {
+		private final long id;
+		private final AtomicInteger readers = new AtomicInteger();
+		private final AtomicBoolean released = new AtomicBoolean();
+		private volatile boolean retired;
+
+		private Generation(long id) {
+			this.id = id;
+		}
+
+		private void retire() {
+			retired = true;
+			releaseIfDrained();
+		}
+
+		private void leave() {
+			readers.decrementAndGet();
+			releaseIfDrained();
+		}
+
+		private void releaseIfDrained() {
+			if (retired && readers.get() == 0 && released.compareAndSet(false, true)) {
+				release(this);
+			}
+		}
+	}
+
+	/**
+	 * A reader's hold on one generation; close it to let the generation go.
+	 */
+	public final class Lease implements AutoCloseable {
+		private final Generation generation;
+		private int depth = 1;
+
+		private Lease(Generation generation) {
+			this.generation = generation;
+		}
+
+		public long generation() {
+			return generation.id;
+		}
+
+		@Override
+		public void close() {
+			if (--depth > 0) {
+				return;
+			}
+			heldLease.remove();
+			generation.leave();
+		}
+	}
+
+}
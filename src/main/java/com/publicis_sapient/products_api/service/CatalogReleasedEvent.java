@@ -0,0 +1,8 @@
+package com.publicis_sapient.products_api.service;
+
+/**
+ * Published once the last reader on a retired catalog generation is done, so
+ * anything held for that generation can be dropped.
+ */
+public record CatalogReleasedEvent(long generation) {
+}
@@ -0,0 +1,9 @@
+package com.publicis_sapient.products_api.service;
+
+/**
+ * Published once this instance starts serving a newer catalog generation,
+ * whether it activated the generation itself or picked it up from the change
+ * log.
+ */
+public record CatalogSwitchedEvent(long generation) {
+}
@@ -0,0 +1,394 @@
+package com.publicis_sapient.products_api.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.publicis_sapient.products_api.entity.CatalogChange;
+import com.publicis_sapient.products_api.view.CatalogView;
+import com.publicis_sapient.products_api.view.Interner;
+import com.publicis_sapient.products_api.view.ProductView;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Holds the {@link CatalogView} that reads are served from, one per catalog
+ * generation still being read.
+ *
+ * A view is built straight from the database with plain JDBC the first time
+ * its generation is read, and in the background as soon as this instance
+ * switches to a new generation. Strings that repeat across products are
+ * interned while it is built. Product changes from the change log are applied
+ * by reloading just the changed products into a new snapshot, and a view is
+ * dropped together with its generation.
+ *
+ * Builds hold no lock: each generation has at most one build in flight, which
+ * other readers of that generation wait for. Changes that arrive meanwhile
+ * are queued on the build and applied before its view is published.
+ */
+@Service
+public class CatalogViewService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CatalogViewService.class);
+
+	private static final String PRODUCT_QUERY = "SELECT p.id, p.product_id, p.generation, p.title, p.description, p.category,"
+			+ " p.price, p.discount_percentage, p.rating, p.stock, p.brand, p.sku, p.weight, p.width, p.height, p.depth,"
+			+ " p.warranty_information, p.shipping_information, p.availability_status, p.return_policy,"
+			+ " p.minimum_order_quantity, p.created_at, p.updated_at, p.barcode, p.qr_code, p.thumbnail,"
+			+ " p.review_count, p.average_rating, p.one_star_reviews, p.two_star_reviews, p.three_star_reviews,"
+			+ " p.four_star_reviews, p.five_star_reviews, p.latest_review_date FROM product p WHERE p.generation = ?";
+	private static final String TAGS_QUERY = "SELECT t.product_id, t.tags FROM product_tags t"
+			+ " JOIN product p ON p.id = t.product_id WHERE p.generation = ?";
+	private static final String IMAGES_QUERY = "SELECT i.product_id, i.images FROM product_images i"
+			+ " JOIN product p ON p.id = i.product_id WHERE p.generation = ?";
+	private static final String LATEST_VERSION_QUERY = "SELECT COALESCE(MAX(version), 0) FROM catalog_change";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate readTransaction;
+	private final CatalogGenerationService generationService;
+	private final TaskExecutor taskExecutor;
+	private final Timer buildTimer;
+
+	private final Map<Long, CatalogView> views = new ConcurrentHashMap<>();
+	private final Map<Long, Build> builds = new ConcurrentHashMap<>();
+
+	public CatalogViewService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			CatalogGenerationService generationService, TaskExecutor taskExecutor, MeterRegistry meterRegistry) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.readTransaction = new TransactionTemplate(transactionManager);
+		this.readTransaction.setReadOnly(true);
+		this.generationService = generationService;
+		this.taskExecutor = taskExecutor;
+		this.buildTimer = Timer.builder("catalog.view.build").register(meterRegistry);
+		Gauge.builder("catalog.views", views, Map::size).register(meterRegistry);
+	}
+
+	/**
+	 * The view of a generation, built on first use. Callers hold a lease on the
+	 * generation, which keeps it from being released while the view is built.
+	 */
+	public CatalogView view(long generation) {
+		CatalogView view = views.get(generation);
+		if (view != null) {
+			return view;
+		}
+		Build build = new Build();
+		Build running = builds.putIfAbsent(generation, build);
+		if (running != null) {
+			try {
+				return running.view.join();
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof RuntimeException cause ? cause : e;
+			}
+		}
+		try {
+			// Published by a build that finished since the first lookup
+			view = views.get(generation);
+			if (view == null) {
+				view = buildAndPublish(generation, build);
+			}
+			build.view.complete(view);
+			return view;
+		} catch (RuntimeException e) {
+			build.view.completeExceptionally(e);
+			throw e;
+		} finally {
+			builds.remove(generation, build);
+		}
+	}
+
+	/**
+	 * The products of a generation with the given ids, in that order, skipping
+	 * any it does not have. Served from the generation's view when there is
+	 * one, otherwise read from the database without building a view.
+	 */
+	public List<ProductView> findByIds(long generation, List<Long> ids) {
+		CatalogView view = views.get(generation);
+		List<ProductView> found = new ArrayList<>(ids.size());
+		if (view != null) {
+			ids.forEach(id -> view.byId(id).ifPresent(found::add));
+			return found;
+		}
+		Map<Long, ProductView> loaded = load(generation, "product_id", ids).stream()
+				.collect(Collectors.toMap(ProductView::id, product -> product));
+		for (Long id : ids) {
+			ProductView product = loaded.get(id);
+			if (product != null) {
+				found.add(product);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * The products of a generation with the given SKUs, read from the
+	 * database.
+	 */
+	public List<ProductView> loadBySkus(long generation, Collection<String> skus) {
+		return load(generation, "sku", skus);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (generationService.currentGeneration() > 0) {
+			taskExecutor.execute(this::warmUp);
+		}
+	}
+
+	@EventListener
+	public void onCatalogSwitched(CatalogSwitchedEvent event) {
+		taskExecutor.execute(this::warmUp);
+	}
+
+	@EventListener
+	public void onCatalogReleased(CatalogReleasedEvent event) {
+		if (views.remove(event.generation()) != null) {
+			LOGGER.info("Dropped the view of catalog generation {}.", event.generation());
+		}
+	}
+
+	/** The views missed changes, so they are rebuilt from the database. */
+	@EventListener
+	public void onChangesSkipped(CatalogChangesSkippedEvent event) {
+		for (Build build : builds.values()) {
+			synchronized (build) {
+				build.stale = true;
+			}
+		}
+		views.clear();
+		taskExecutor.execute(this::warmUp);
+	}
+
+	/**
+	 * Brings the views up to date with the changes this replica has applied.
+	 * Changes a view already reflects are skipped; if the changed products
+	 * cannot be read, the view is dropped and rebuilt on next use.
+	 */
+	@EventListener
+	public void onChangesApplied(CatalogChangesAppliedEvent event) {
+		for (Build build : builds.values()) {
+			synchronized (build) {
+				if (!build.published) {
+					build.pending.add(event.changes());
+				}
+			}
+		}
+		for (CatalogView view : views.values()) {
+			try {
+				CatalogView updated = withChanges(view, event.changes());
+				if (updated != view) {
+					views.replace(view.generation(), view, updated);
+				}
+			} catch (RuntimeException e) {
+				LOGGER.warn("Could not apply changes to the view of catalog generation {}, dropping it: {}",
+						view.generation(), e.getMessage());
+				views.remove(view.generation(), view);
+			}
+		}
+	}
+
+	/**
+	 * Builds the view of a generation and publishes it once the changes queued
+	 * on the build while it ran are applied.
+	 */
+	private CatalogView buildAndPublish(long generation, Build build) {
+		CatalogView view = build(generation);
+		while (true) {
+			List<List<CatalogChange>> batches;
+			synchronized (build) {
+				if (build.stale) {
+					// Changes were skipped after the rows were read
+					build.stale = false;
+					build.pending.clear();
+					batches = null;
+				} else if (build.pending.isEmpty()) {
+					views.put(generation, view);
+					build.published = true;
+					return view;
+				} else {
+					batches = new ArrayList<>(build.pending);
+					build.pending.clear();
+				}
+			}
+			if (batches == null) {
+				view = build(generation);
+				continue;
+			}
+			for (List<CatalogChange> changes : batches) {
+				view = withChanges(view, changes);
+			}
+		}
+	}
+
+	/**
+	 * The view with the products the changes touched reloaded, or the view
+	 * itself if it already reflects them all.
+	 */
+	private CatalogView withChanges(CatalogView view, List<CatalogChange> changes) {
+		// The latest change to a SKU decides whether it is reloaded or removed
+		Map<String, CatalogChange> latest = new HashMap<>();
+		for (CatalogChange change : changes) {
+			if (change.getType() != CatalogChange.Type.GENERATION_ACTIVATED
+					&& change.getGeneration() == view.generation() && change.getVersion() > view.version()
+					&& change.getSku() != null) {
+				latest.put(change.getSku(), change);
+			}
+		}
+		if (latest.isEmpty()) {
+			return view;
+		}
+		long version = latest.values().stream().mapToLong(CatalogChange::getVersion).max().getAsLong();
+		Set<String> updated = latest.values().stream()
+				.filter(change -> change.getType() == CatalogChange.Type.PRODUCT_UPDATED)
+				.map(CatalogChange::getSku).collect(Collectors.toSet());
+		List<ProductView> upserts = loadBySkus(view.generation(), updated);
+		// A product updated and then removed by the time it is read counts as deleted
+		Set<String> deleted = new HashSet<>(latest.keySet());
+		upserts.forEach(product -> deleted.remove(product.sku()));
+		return view.withChanges(version, upserts, deleted);
+	}
+
+	private void warmUp() {
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			if (lease.generation() > 0) {
+				view(lease.generation());
+			}
+		} catch (RuntimeException e) {
+			LOGGER.warn("Building the catalog view failed; it is retried on first read: {}", e.getMessage());
+		}
+	}
+
+	private CatalogView build(long generation) {
+		long start = System.nanoTime();
+		CatalogView view = readTransaction.execute(status -> {
+			// Read first: changes logged after this are applied on top
+			long version = jdbcTemplate.queryForObject(LATEST_VERSION_QUERY, Long.class);
+			return CatalogView.of(generation, version, load(generation, null, null));
+		});
+		long elapsed = System.nanoTime() - start;
+		buildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+		LOGGER.info("Built the view of catalog generation {}: {} products in {} ms.", generation, view.size(),
+				TimeUnit.NANOSECONDS.toMillis(elapsed));
+		return view;
+	}
+
+	/**
+	 * Reads products of a generation, all of them or those whose column is
+	 * one of the values, with their tags and images.
+	 */
+	private List<ProductView> load(long generation, String column, Collection<?> values) {
+		if (values != null && values.isEmpty()) {
+			return List.of();
+		}
+		String filter = values == null ? ""
+				: " AND p." + column + " IN (" + String.join(", ", Collections.nCopies(values.size(), "?")) + ")";
+		Object[] args = new Object[1 + (values == null ? 0 : values.size())];
+		args[0] = generation;
+		if (values != null) {
+			int i = 1;
+			for (Object value : values) {
+				args[i++] = value;
+			}
+		}
+		return readTransaction.execute(status -> {
+			Interner interner = new Interner();
+			Map<Long, List<String>> tags = collect(TAGS_QUERY + filter, args, interner);
+			Map<Long, List<String>> images = collect(IMAGES_QUERY + filter, args, null);
+			return jdbcTemplate.query(PRODUCT_QUERY + filter,
+					(rs, row) -> toView(rs, tags.get(rs.getLong("id")), images.get(rs.getLong("id"))).compact(interner),
+					args);
+		});
+	}
+
+	private Map<Long, List<String>> collect(String sql, Object[] args, Interner interner) {
+		Map<Long, List<String>> values = new HashMap<>();
+		jdbcTemplate.query(sql, rs -> {
+			String value = rs.getString(2);
+			values.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>(2))
+					.add(interner != null ? interner.intern(value) : value);
+		}, args);
+		return values;
+	}
+
+	private static ProductView toView(ResultSet rs, List<String> tags, List<String> images) throws SQLException {
+		Double width = get(rs, "width", Double.class);
+		Double height = get(rs, "height", Double.class);
+		Double depth = get(rs, "depth", Double.class);
+		LocalDateTime createdAt = get(rs, "created_at", LocalDateTime.class);
+		LocalDateTime updatedAt = get(rs, "updated_at", LocalDateTime.class);
+		String barcode = rs.getString("barcode");
+		String qrCode = rs.getString("qr_code");
+		Integer reviewCount = get(rs, "review_count", Integer.class);
+		Double averageRating = get(rs, "average_rating", Double.class);
+		Integer oneStar = get(rs, "one_star_reviews", Integer.class);
+		Integer twoStars = get(rs, "two_star_reviews", Integer.class);
+		Integer threeStars = get(rs, "three_star_reviews", Integer.class);
+		Integer fourStars = get(rs, "four_star_reviews", Integer.class);
+		Integer fiveStars = get(rs, "five_star_reviews", Integer.class);
+		LocalDateTime latestReview = get(rs, "latest_review_date", LocalDateTime.class);
+		// Embedded values whose columns are all null are absent, as Hibernate reads them
+		return new ProductView(rs.getLong("product_id"), rs.getLong("generation"), rs.getString("title"),
+				rs.getString("description"), rs.getString("category"), get(rs, "price", Double.class),
+				get(rs, "discount_percentage", Double.class), get(rs, "rating", Double.class),
+				get(rs, "stock", Integer.class), tags, rs.getString("brand"), rs.getString("sku"),
+				get(rs, "weight", Double.class),
+				allNull(width, height, depth) ? null : new ProductView.Dimensions(width, height, depth),
+				rs.getString("warranty_information"), rs.getString("shipping_information"),
+				rs.getString("availability_status"), rs.getString("return_policy"),
+				get(rs, "minimum_order_quantity", Integer.class),
+				allNull(createdAt, updatedAt, barcode, qrCode) ? null
+						: new ProductView.Meta(createdAt, updatedAt, barcode, qrCode),
+				images, rs.getString("thumbnail"),
+				allNull(reviewCount, averageRating, oneStar, twoStars, threeStars, fourStars, fiveStars, latestReview)
+						? null
+						: new ProductView.ReviewSummary(reviewCount, averageRating, oneStar, twoStars, threeStars,
+								fourStars, fiveStars, latestReview));
+	}
+
+	private static <T> T get(ResultSet rs, String column, Class<T> type) throws SQLException {
+		return rs.getObject(column, type);
+	}
+
+	private static boolean allNull(Object... values) {
+		for (Object value : values) {
+			if (value != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** A build in flight, and the change batches to apply before it is published. */
+	private static final class Build {
+		private final CompletableFuture<CatalogView> view = new CompletableFuture<>();
+		private final List<List<CatalogChange>> pending = new ArrayList<>();
+		private boolean published;
+		private boolean stale;
+	}
+
+}
@@ -0,0 +1,454 @@
+package com.publicis_sapient.products_api.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.publicis_sapient.products_api.dto.ProductChange;
+import com.publicis_sapient.products_api.entity.CatalogChange;
+import com.publicis_sapient.products_api.view.ProductView;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Streams product upserts and deletes to subscribers as server-sent events,
+ * fed by the catalog change log as this replica applies it.
+ *
+ * Each change is serialized once into a bounded in-memory ring; subscribers
+ * are only a cursor into it. When changes arrive, every subscriber is handed
+ * to a small sender pool, at most once at a time, which writes what the
+ * subscriber has not seen yet. Writes are non-blocking: once a client's socket
+ * is full the sender moves on, leaving at most one batch queued for it, and
+ * picks the subscriber up again when the container reports it writable. A
+ * subscriber that stays full for {@code changes.stream.send-timeout} is
+ * disconnected. A subscriber resuming from a version the ring no longer holds,
+ * or falling that far behind, gets a {@code resync} event with the current
+ * version and is disconnected: it should reload the catalog and resume from
+ * that version.
+ */
+@Service
+public class ChangeStreamService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChangeStreamService.class);
+
+	private static final int SEND_BATCH = 100;
+
+	private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+	private final CatalogViewService viewService;
+	private final ObjectMapper objectMapper;
+	private final ChangeRing ring;
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+	private final ExecutorService sender;
+	private final int maxSubscribers;
+	private final long timeoutMillis;
+	private final long sendTimeoutNanos;
+	private final Counter events;
+	private final Counter resyncs;
+	private final Counter stalled;
+
+	public ChangeStreamService(CatalogViewService viewService, ObjectMapper objectMapper,
+			CatalogChangeService changeService,
+			MeterRegistry meterRegistry, @Value("${changes.stream.ring-capacity:10000}") int ringCapacity,
+			@Value("${changes.stream.max-subscribers:5000}") int maxSubscribers,
+			@Value("${changes.stream.timeout:30m}") Duration timeout,
+			@Value("${changes.stream.send-timeout:30s}") Duration sendTimeout,
+			@Value("${changes.stream.send-threads:2}") int sendThreads) {
+		this.viewService = viewService;
+		this.objectMapper = objectMapper;
+		// Changes before this replica started are not held
+		this.ring = new ChangeRing(ringCapacity, changeService.getAppliedVersion());
+		this.sender = Executors.newFixedThreadPool(sendThreads, new CustomizableThreadFactory("change-stream-"));
+		this.maxSubscribers = maxSubscribers;
+		this.timeoutMillis = timeout.toMillis();
+		this.sendTimeoutNanos = sendTimeout.toNanos();
+		this.events = Counter.builder("changes.stream.events").register(meterRegistry);
+		this.resyncs = Counter.builder("changes.stream.resyncs").register(meterRegistry);
+		this.stalled = Counter.builder("changes.stream.stalled")
+				.description("Subscribers disconnected for not taking writes").register(meterRegistry);
+		Gauge.builder("changes.stream.subscribers", subscribers, Set::size).register(meterRegistry);
+		Gauge.builder("changes.stream.version", ring, ChangeRing::head).register(meterRegistry);
+	}
+
+	/** The latest change log version this replica has applied. */
+	public long currentVersion() {
+		return ring.head();
+	}
+
+	/**
+	 * Opens a stream of the changes after {@code fromVersion}, or of changes
+	 * from now on without one, on the given request. Returns false, leaving the
+	 * response untouched, when the subscriber limit is reached.
+	 */
+	public boolean subscribe(Long fromVersion, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		if (subscribers.size() >= maxSubscribers) {
+			return false;
+		}
+		response.setStatus(HttpServletResponse.SC_OK);
+		response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+		AsyncContext async = request.startAsync();
+		async.setTimeout(timeoutMillis);
+		Subscriber subscriber = new Subscriber(async, response.getOutputStream(),
+				fromVersion != null ? fromVersion : ring.head());
+		subscribers.add(subscriber);
+		async.addListener(subscriber);
+		// The first write also commits the response headers
+		subscriber.heartbeatDue = true;
+		// The container calls back once the request thread is done with it
+		subscriber.out.setWriteListener(subscriber);
+		return true;
+	}
+
+	@EventListener
+	public void onChangesApplied(CatalogChangesAppliedEvent event) {
+		long version = event.changes().get(event.changes().size() - 1).getVersion();
+		List<Entry> entries;
+		try {
+			entries = toEntries(event.changes());
+		} catch (RuntimeException e) {
+			// The batch is not coming back, so everyone behind it has to resync
+			LOGGER.warn("Could not stream changes up to version {}: {}", version, e.getMessage());
+			ring.reset(version);
+			subscribers.forEach(this::schedule);
+			return;
+		}
+		ring.append(entries, version);
+		events.increment(entries.size());
+		if (!entries.isEmpty()) {
+			subscribers.forEach(this::schedule);
+		}
+	}
+
+	/** Changes this replica skipped never reach the ring, so everyone resyncs. */
+	@EventListener
+	public void onChangesSkipped(CatalogChangesSkippedEvent event) {
+		ring.reset(event.version());
+		subscribers.forEach(this::schedule);
+	}
+
+	/**
+	 * Keeps idle connections open through proxies, finds dead ones, and drops
+	 * subscribers that have not taken a write for the send timeout.
+	 */
+	@Scheduled(fixedDelayString = "${changes.stream.heartbeat-interval:15s}")
+	public void heartbeat() {
+		long now = System.nanoTime();
+		for (Subscriber subscriber : subscribers) {
+			long stalledSince = subscriber.stalledSince;
+			if (stalledSince != 0 && now - stalledSince > sendTimeoutNanos) {
+				stalled.increment();
+				LOGGER.debug("Subscriber at version {} has not taken a write for {} ms; disconnecting it.",
+						subscriber.cursor, (now - stalledSince) / 1_000_000);
+				close(subscriber);
+				continue;
+			}
+			subscriber.heartbeatDue = true;
+			schedule(subscriber);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		sender.shutdownNow();
+		subscribers.forEach(this::close);
+	}
+
+	private List<Entry> toEntries(List<CatalogChange> changes) {
+		// Upserted products are read once per generation
+		Map<Long, List<String>> upserted = changes.stream()
+				.filter(change -> change.getType() == CatalogChange.Type.PRODUCT_UPDATED)
+				.collect(Collectors.groupingBy(CatalogChange::getGeneration, LinkedHashMap::new,
+						Collectors.mapping(CatalogChange::getSku, Collectors.toList())));
+		Map<Long, Map<String, ProductView>> products = new LinkedHashMap<>();
+		upserted.forEach((generation, skus) -> products.put(generation, viewService.loadBySkus(generation, skus)
+				.stream().collect(Collectors.toMap(ProductView::sku, Function.identity(), (first, second) -> first))));
+		List<Entry> entries = new ArrayList<>();
+		for (CatalogChange change : changes) {
+			ProductChange.Type type = switch (change.getType()) {
+			case PRODUCT_UPDATED -> ProductChange.Type.UPSERT;
+			case PRODUCT_DELETED -> ProductChange.Type.DELETE;
+			case GENERATION_ACTIVATED -> null;
+			};
+			if (type == null) {
+				continue;
+			}
+			ProductView product = type == ProductChange.Type.UPSERT
+					? products.get(change.getGeneration()).get(change.getSku())
+					: null;
+			ProductChange payload = new ProductChange(change.getVersion(), type, change.getGeneration(),
+					change.getSku(), product);
+			entries.add(new Entry(change.getVersion(),
+					event(Long.toString(change.getVersion()), type.name().toLowerCase(), write(payload))));
+		}
+		return entries;
+	}
+
+	private String write(Object payload) {
+		try {
+			return objectMapper.writeValueAsString(payload);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Cannot serialize change " + payload, e);
+		}
+	}
+
+	/** One server-sent event, ready to write. */
+	private static byte[] event(String id, String name, String data) {
+		StringBuilder event = new StringBuilder(data.length() + 64);
+		if (id != null) {
+			event.append("id:").append(id).append('\n');
+		}
+		event.append("event:").append(name).append('\n');
+		for (String line : data.split("\n", -1)) {
+			event.append("data:").append(line).append('\n');
+		}
+		return event.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private void schedule(Subscriber subscriber) {
+		if (subscriber.scheduled.compareAndSet(false, true)) {
+			try {
+				sender.execute(() -> drain(subscriber));
+			} catch (RejectedExecutionException e) {
+				subscriber.scheduled.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Writes what the subscriber is missing for as long as its connection takes
+	 * writes without blocking. Each write waits for the previous one to reach
+	 * the socket, so at most one event is queued for a client that stopped
+	 * reading.
+	 */
+	private void drain(Subscriber subscriber) {
+		boolean ready;
+		try {
+			draining: while (ready = subscriber.out.isReady()) {
+				List<Entry> batch = ring.after(subscriber.cursor, SEND_BATCH);
+				if (batch == null) {
+					resync(subscriber);
+					return;
+				}
+				if (batch.isEmpty()) {
+					if (!subscriber.heartbeatDue) {
+						break;
+					}
+					subscriber.heartbeatDue = false;
+					subscriber.out.write(HEARTBEAT);
+				}
+				for (Entry entry : batch) {
+					if (!(ready = subscriber.out.isReady())) {
+						break draining;
+					}
+					subscriber.out.write(entry.event);
+					subscriber.cursor = entry.version;
+					subscriber.heartbeatDue = false;
+				}
+				if (!(ready = subscriber.out.isReady())) {
+					break;
+				}
+				subscriber.out.flush();
+			}
+			if (ready) {
+				subscriber.stalledSince = 0;
+			} else if (subscriber.stalledSince == 0) {
+				subscriber.stalledSince = System.nanoTime();
+			}
+		} catch (IOException | IllegalStateException e) {
+			// Disconnected, timed out or completed
+			close(subscriber);
+			return;
+		} finally {
+			subscriber.scheduled.set(false);
+		}
+		// A change may have landed, or the client caught up, after the last check
+		// but before the flag cleared
+		if (ready ? ring.latest() > subscriber.cursor : subscriber.out.isReady()) {
+			schedule(subscriber);
+		}
+	}
+
+	private void resync(Subscriber subscriber) throws IOException {
+		resyncs.increment();
+		long version = ring.head();
+		LOGGER.debug("Subscriber at version {} is behind the change ring; asking it to resync at {}.",
+				subscriber.cursor, version);
+		subscriber.out.write(event(null, "resync", write(Map.of("version", version))));
+		close(subscriber);
+	}
+
+	private void close(Subscriber subscriber) {
+		if (subscribers.remove(subscriber)) {
+			try {
+				subscriber.async.complete();
+			} catch (IllegalStateException e) {
+				// Already completed by the container
+			}
+		}
+	}
+
+	private record Entry(long version, byte[] event) {
+	}
+
+	private final class Subscriber implements WriteListener, AsyncListener {
+		private final AsyncContext async;
+		private final ServletOutputStream out;
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		// Only touched by the sender thread draining it
+		private long cursor;
+		private volatile boolean heartbeatDue;
+		// When the connection last stopped taking writes, 0 while it keeps up
+		private volatile long stalledSince;
+
+		private Subscriber(AsyncContext async, ServletOutputStream out, long cursor) {
+			this.async = async;
+			this.out = out;
+			this.cursor = cursor;
+		}
+
+		@Override
+		public void onWritePossible() {
+			schedule(this);
+		}
+
+		@Override
+		public void onError(Throwable error) {
+			close(this);
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			subscribers.remove(this);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			close(this);
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			close(this);
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+	}
+
+	/**
+	 * The most recent changes, oldest overwritten first. A cursor at or after
+	 * {@code floor}, the version of the last change dropped, has everything it
+	 * is missing still in the ring.
+	 */
+	private static final class ChangeRing {
+		private final Entry[] entries;
+		private int start;
+		private int size;
+		private long floor;
+		private long head;
+
+		private ChangeRing(int capacity, long version) {
+			this.entries = new Entry[capacity];
+			this.floor = version;
+			this.head = version;
+		}
+
+		private synchronized void append(List<Entry> added, long version) {
+			for (Entry entry : added) {
+				if (size == entries.length) {
+					floor = entries[start].version;
+					entries[start] = null;
+					start = (start + 1) % entries.length;
+					size--;
+				}
+				entries[(start + size) % entries.length] = entry;
+				size++;
+			}
+			head = Math.max(head, version);
+		}
+
+		private synchronized void reset(long version) {
+			Arrays.fill(entries, null);
+			start = 0;
+			size = 0;
+			floor = Math.max(floor, version);
+			head = Math.max(head, version);
+		}
+
+		private synchronized long head() {
+			return head;
+		}
+
+		private synchronized long latest() {
+			return size == 0 ? floor : entries[(start + size - 1) % entries.length].version;
+		}
+
+		/** Up to {@code max} entries after the cursor, or null if some were dropped. */
+		private synchronized List<Entry> after(long cursor, int max) {
+			if (cursor < floor) {
+				return null;
+			}
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (entries[(start + mid) % entries.length].version <= cursor) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			if (low == size) {
+				return Collections.emptyList();
+			}
+			int count = Math.min(max, size - low);
+			List<Entry> batch = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				batch.add(entries[(start + low + i) % entries.length]);
+			}
+			return batch;
+		}
+	}
+
+}
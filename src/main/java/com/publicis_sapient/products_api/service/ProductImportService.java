@@ -0,0 +1,248 @@
+package com.publicis_sapient.products_api.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.publicis_sapient.products_api.dto.ImportProgress;
+import com.publicis_sapient.products_api.dto.LoadReport;
+import com.publicis_sapient.products_api.dto.ProductDTO;
+
+/**
+ * Loads a catalog from an uploaded file, a JSON array of products or one
+ * product per line (NDJSON), into a new generation the same way the feed is
+ * loaded.
+ *
+ * The file is parsed one product at a time as it arrives and handed to the
+ * ingestion pipeline in chunks, whose bounded queues hold the reader back
+ * while the writers catch up, so only a few chunks are ever in memory however
+ * large the file. Rows that cannot be read as a product or fail validation are
+ * skipped and reported with their position in the file; a file that is not
+ * valid JSON stops the import.
+ */
+@Service
+public class ProductImportService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductImportService.class);
+
+	private static final int CHUNK_SIZE = 100;
+	private static final int MAX_TEXT_LENGTH = 255;
+	private static final int MAX_DESCRIPTION_LENGTH = 1000;
+
+	private final ProductService productService;
+	private final ObjectReader reader;
+	private final int maxReportedRows;
+	private final long maxRejectedRows;
+
+	// The running import, or the last one
+	private volatile FileSource latest;
+
+	public ProductImportService(ProductService productService, ObjectMapper objectMapper,
+			@Value("${import.max-reported-rows:1000}") int maxReportedRows,
+			@Value("${import.max-rejected-rows:100}") long maxRejectedRows) {
+		this.productService = productService;
+		this.reader = objectMapper.readerFor(ProductDTO.class);
+		this.maxReportedRows = maxReportedRows;
+		this.maxRejectedRows = maxRejectedRows;
+	}
+
+	/**
+	 * Imports the products in the stream, which is read to the end but not
+	 * closed. Fails at once without reading it if another load is running.
+	 */
+	public LoadReport importProducts(String sourceName, InputStream in, Long totalBytes) {
+		FileSource source = new FileSource(sourceName, in, totalBytes);
+		LoadReport report = productService.loadGeneration(sourceName, source, maxRejectedRows);
+		report.setRejectedRows(new ArrayList<>(source.rejectedRows));
+		source.report = report;
+		return report;
+	}
+
+	/** Progress of the running import, or the outcome of the last one. */
+	public Optional<ImportProgress> progress() {
+		FileSource source = latest;
+		return source != null ? Optional.of(source.progress()) : Optional.empty();
+	}
+
+	/**
+	 * Why the product cannot be imported, or null if it can.
+	 */
+	static String validate(ProductDTO product) {
+		if (isBlank(product.getSku())) {
+			return "sku is required";
+		}
+		if (isBlank(product.getTitle())) {
+			return "title is required";
+		}
+		if (product.getSku().length() > MAX_TEXT_LENGTH || product.getTitle().length() > MAX_TEXT_LENGTH) {
+			return "sku and title must be at most " + MAX_TEXT_LENGTH + " characters";
+		}
+		if (product.getDescription() != null && product.getDescription().length() > MAX_DESCRIPTION_LENGTH) {
+			return "description must be at most " + MAX_DESCRIPTION_LENGTH + " characters";
+		}
+		if (product.getPrice() != null && !(product.getPrice() >= 0)) {
+			return "price must not be negative";
+		}
+		if (product.getDiscountPercentage() != null
+				&& !(product.getDiscountPercentage() >= 0 && product.getDiscountPercentage() <= 100)) {
+			return "discountPercentage must be between 0 and 100";
+		}
+		if (product.getRating() != null && !(product.getRating() >= 0 && product.getRating() <= 5)) {
+			return "rating must be between 0 and 5";
+		}
+		if (product.getStock() != null && product.getStock() < 0) {
+			return "stock must not be negative";
+		}
+		if (product.getMinimumOrderQuantity() != null && product.getMinimumOrderQuantity() < 1) {
+			return "minimumOrderQuantity must be at least 1";
+		}
+		return null;
+	}
+
+	private static boolean isBlank(String value) {
+		return value == null || value.isBlank();
+	}
+
+	/**
+	 * Reads products off the stream on the pipeline's source thread and keeps
+	 * count for progress reports.
+	 */
+	private class FileSource implements ProductSource {
+
+		private final String name;
+		private final InputStream in;
+		private final Long totalBytes;
+		private final LocalDateTime startedAt = LocalDateTime.now();
+		private final AtomicLong bytesRead = new AtomicLong();
+		private final AtomicLong rowsRead = new AtomicLong();
+		private final AtomicLong rowsRejected = new AtomicLong();
+		private final List<LoadReport.RejectedRow> rejectedRows = Collections.synchronizedList(new ArrayList<>());
+		private volatile LoadReport report;
+
+		FileSource(String name, InputStream in, Long totalBytes) {
+			this.name = name;
+			this.in = in;
+			this.totalBytes = totalBytes;
+		}
+
+		@Override
+		public void produce(Consumer<List<ProductDTO>> sink) throws IOException {
+			// Only reached once the load lock is held, so this is the import that runs
+			latest = this;
+			List<ProductDTO> chunk = new ArrayList<>(CHUNK_SIZE);
+			try (MappingIterator<ProductDTO> rows = reader.readValues(new CountingInputStream(in, bytesRead))) {
+				while (true) {
+					long line = 0;
+					ProductDTO product;
+					try {
+						if (!rows.hasNextValue()) {
+							break;
+						}
+						line = rows.getParser().currentTokenLocation().getLineNr();
+						rowsRead.incrementAndGet();
+						product = rows.nextValue();
+					} catch (DatabindException e) {
+						// The row is well-formed JSON, just not a product; the next one is read after it
+						reject(e.getLocation() != null ? e.getLocation().getLineNr() : line, null,
+								e.getOriginalMessage());
+						continue;
+					} catch (StreamReadException e) {
+						throw new IOException("Not valid JSON at line "
+								+ (e.getLocation() != null ? e.getLocation().getLineNr() : line) + " (row "
+								+ rowsRead.get() + "): " + e.getOriginalMessage(), e);
+					}
+					String error = product != null ? validate(product) : "row is null";
+					if (error != null) {
+						reject(line, product != null ? product.getSku() : null, error);
+						continue;
+					}
+					chunk.add(product);
+					if (chunk.size() == CHUNK_SIZE) {
+						sink.accept(chunk);
+						chunk = new ArrayList<>(CHUNK_SIZE);
+					}
+				}
+			}
+			if (!chunk.isEmpty()) {
+				sink.accept(chunk);
+			}
+		}
+
+		@Override
+		public long rejected() {
+			return rowsRejected.get();
+		}
+
+		private void reject(long line, String sku, String error) {
+			long rejected = rowsRejected.incrementAndGet();
+			LOGGER.debug("Rejected row {} (line {}) of {}: {}", rowsRead.get(), line, name, error);
+			if (rejected <= maxReportedRows) {
+				rejectedRows.add(new LoadReport.RejectedRow(rowsRead.get(), line, sku, error));
+			}
+		}
+
+		ImportProgress progress() {
+			ImportProgress progress = new ImportProgress();
+			progress.setSource(name);
+			progress.setRunning(report == null);
+			progress.setStartedAt(startedAt);
+			progress.setBytesRead(bytesRead.get());
+			progress.setTotalBytes(totalBytes);
+			progress.setRowsRead(rowsRead.get());
+			progress.setRowsRejected(rowsRejected.get());
+			progress.setReport(report);
+			return progress;
+		}
+	}
+
+	/** Counts the bytes read through it; closing it leaves the stream open. */
+	private static final class CountingInputStream extends FilterInputStream {
+		private final AtomicLong count;
+
+		private CountingInputStream(InputStream in, AtomicLong count) {
+			super(in);
+			this.count = count;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count.incrementAndGet();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int n = super.read(buffer, offset, length);
+			if (n > 0) {
+				count.addAndGet(n);
+			}
+			return n;
+		}
+
+		@Override
+		public void close() {
+			// The caller owns the stream
+		}
+	}
+
+}
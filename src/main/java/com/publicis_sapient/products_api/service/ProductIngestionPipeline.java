@@ -0,0 +1,305 @@
+package com.publicis_sapient.products_api.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.publicis_sapient.products_api.dao.ProductRepository;
+import com.publicis_sapient.products_api.dto.LoadReport;
+import com.publicis_sapient.products_api.dto.ProductDTO;
+import com.publicis_sapient.products_api.entity.Product;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Fetch, convert and write stages connected by bounded queues.
+ *
+ * The source runs on the calling thread and blocks when the fetch queue is
+ * full; converters group products into batches; writers save each batch in its
+ * own transaction. A batch that keeps failing is split in half to isolate the
+ * bad rows, and rows that still fail on their own are dead-lettered into the
+ * report.
+ */
+@Component
+public class ProductIngestionPipeline {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductIngestionPipeline.class);
+
+	// Stage shutdown markers, compared by identity
+	private static final List<ProductDTO> END_OF_PAGES = Collections.unmodifiableList(new ArrayList<>());
+	private static final List<Product> END_OF_BATCHES = Collections.unmodifiableList(new ArrayList<>());
+
+	private static final int MAX_REPORTED_DEAD_LETTERS = 100;
+
+	private final ProductRepository repository;
+	private final TransactionTemplate transactionTemplate;
+
+	private final int batchSize;
+	private final int converters;
+	private final int writers;
+	private final int queueCapacity;
+	private final int batchMaxAttempts;
+	private final long batchRetryBackoffMillis;
+
+	public ProductIngestionPipeline(ProductRepository repository, PlatformTransactionManager transactionManager,
+			DataSource dataSource, @Value("${ingest.batch-size:50}") int batchSize,
+			@Value("${ingest.converters:2}") int converters, @Value("${ingest.writers:0}") int writers,
+			@Value("${ingest.queue-capacity:16}") int queueCapacity,
+			@Value("${ingest.batch-max-attempts:3}") int batchMaxAttempts,
+			@Value("${ingest.batch-retry-backoff:200ms}") Duration batchRetryBackoff) {
+		this.repository = repository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.batchSize = Math.max(1, batchSize);
+		this.converters = Math.max(1, converters);
+		this.writers = writers > 0 ? writers : defaultWriters(dataSource);
+		this.queueCapacity = Math.max(1, queueCapacity);
+		this.batchMaxAttempts = Math.max(1, batchMaxAttempts);
+		this.batchRetryBackoffMillis = batchRetryBackoff.toMillis();
+	}
+
+	/**
+	 * Leaves two pooled connections free for readers while a load is running.
+	 */
+	private static int defaultWriters(DataSource dataSource) {
+		if (dataSource instanceof HikariDataSource hikari) {
+			return Math.max(1, hikari.getMaximumPoolSize() - 2);
+		}
+		return 4;
+	}
+
+	public int getWriters() {
+		return writers;
+	}
+
+	public LoadReport run(String sourceName, ProductSource source, Function<ProductDTO, Product> converter) {
+		LOGGER.info("Starting ingestion from {} with {} converters, {} writers, batch size {}", sourceName, converters,
+				writers, batchSize);
+		Run run = new Run(converter);
+		long started = System.nanoTime();
+
+		ExecutorService stages = Executors.newFixedThreadPool(converters + writers,
+				new CustomizableThreadFactory("ingest-"));
+		CountDownLatch convertersDone = new CountDownLatch(converters);
+		CountDownLatch writersDone = new CountDownLatch(writers);
+		for (int i = 0; i < converters; i++) {
+			stages.execute(() -> {
+				try {
+					run.convert();
+				} finally {
+					convertersDone.countDown();
+				}
+			});
+		}
+		for (int i = 0; i < writers; i++) {
+			stages.execute(() -> {
+				try {
+					run.write();
+				} finally {
+					writersDone.countDown();
+				}
+			});
+		}
+
+		String error = null;
+		try {
+			source.produce(run::offer);
+		} catch (Exception e) {
+			LOGGER.error("Ingestion source {} failed: {}", sourceName, e.getMessage(), e);
+			error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+		}
+		long turnedAway = source.rejected();
+		run.read.addAndGet(turnedAway);
+		run.rejected.addAndGet(turnedAway);
+
+		try {
+			for (int i = 0; i < converters; i++) {
+				run.pages.put(END_OF_PAGES);
+			}
+			convertersDone.await();
+			for (int i = 0; i < writers; i++) {
+				run.batches.put(END_OF_BATCHES);
+			}
+			writersDone.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			error = "Interrupted while waiting for the pipeline to drain";
+		} finally {
+			stages.shutdownNow();
+		}
+
+		LoadReport report = run.report(sourceName, error, System.nanoTime() - started);
+		LOGGER.info("Ingestion from {} finished: status={}, read={}, saved={}, rejected={}, deadLettered={}, {}/s",
+				sourceName, report.getStatus(), report.getProductsRead(), report.getProductsSaved(),
+				report.getProductsRejected(), report.getProductsDeadLettered(),
+				String.format("%.1f", report.getProductsPerSecond()));
+		return report;
+	}
+
+	/**
+	 * State of one pipeline run.
+	 */
+	private class Run {
+
+		private final Function<ProductDTO, Product> converter;
+		private final BlockingQueue<List<ProductDTO>> pages = new ArrayBlockingQueue<>(queueCapacity);
+		private final BlockingQueue<List<Product>> batches = new ArrayBlockingQueue<>(queueCapacity);
+
+		private final AtomicLong read = new AtomicLong();
+		private final AtomicLong rejected = new AtomicLong();
+		private final AtomicLong saved = new AtomicLong();
+		private final AtomicLong batchesSaved = new AtomicLong();
+		private final AtomicLong retries = new AtomicLong();
+		private final AtomicLong deadLettered = new AtomicLong();
+		private final List<LoadReport.DeadLetter> deadLetters = Collections.synchronizedList(new ArrayList<>());
+
+		Run(Function<ProductDTO, Product> converter) {
+			this.converter = converter;
+		}
+
+		void offer(List<ProductDTO> page) {
+			if (page == null || page.isEmpty()) {
+				return;
+			}
+			read.addAndGet(page.size());
+			try {
+				pages.put(page);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while queueing products", e);
+			}
+		}
+
+		void convert() {
+			List<Product> batch = new ArrayList<>(batchSize);
+			try {
+				while (true) {
+					List<ProductDTO> page = pages.take();
+					if (page == END_OF_PAGES) {
+						break;
+					}
+					for (ProductDTO dto : page) {
+						try {
+							batch.add(converter.apply(dto));
+						} catch (RuntimeException e) {
+							rejected.incrementAndGet();
+							LOGGER.warn("Rejected product {}: {}", dto.getSku(), e.getMessage());
+						}
+						if (batch.size() == batchSize) {
+							batches.put(batch);
+							batch = new ArrayList<>(batchSize);
+						}
+					}
+				}
+				if (!batch.isEmpty()) {
+					batches.put(batch);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		void write() {
+			try {
+				while (true) {
+					List<Product> batch = batches.take();
+					if (batch == END_OF_BATCHES) {
+						return;
+					}
+					writeWithRetry(batch, batchMaxAttempts, 0);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Writes the batch, retrying it up to {@code maxAttempts} times; rows
+		 * already tried as part of a larger batch bring those attempts along.
+		 */
+		private void writeWithRetry(List<Product> batch, int maxAttempts, int previousAttempts)
+				throws InterruptedException {
+			RuntimeException lastFailure = null;
+			for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+				try {
+					transactionTemplate.executeWithoutResult(status -> {
+						repository.saveAll(batch);
+						repository.flush();
+					});
+					saved.addAndGet(batch.size());
+					batchesSaved.incrementAndGet();
+					return;
+				} catch (RuntimeException e) {
+					lastFailure = e;
+					// The rolled back insert may have assigned ids; start clean on the next attempt
+					batch.forEach(product -> product.setId(null));
+					if (attempt < maxAttempts) {
+						retries.incrementAndGet();
+						LOGGER.warn("Batch of {} products failed (attempt {}/{}): {}", batch.size(), attempt,
+								maxAttempts, e.getMessage());
+						Thread.sleep(batchRetryBackoffMillis * attempt);
+					}
+				}
+			}
+
+			if (batch.size() > 1) {
+				// Split to keep one bad row from sinking the rest of the batch
+				int middle = batch.size() / 2;
+				int attempts = previousAttempts + maxAttempts;
+				writeWithRetry(new ArrayList<>(batch.subList(0, middle)), 1, attempts);
+				writeWithRetry(new ArrayList<>(batch.subList(middle, batch.size())), 1, attempts);
+				return;
+			}
+
+			deadLettered.incrementAndGet();
+			List<String> skus = batch.stream().map(Product::getSku).collect(Collectors.toList());
+			LOGGER.error("Dead-lettering product {}: {}", skus, lastFailure.getMessage());
+			if (deadLetters.size() < MAX_REPORTED_DEAD_LETTERS) {
+				deadLetters.add(new LoadReport.DeadLetter(skus, previousAttempts + maxAttempts, lastFailure.getMessage()));
+			}
+		}
+
+		LoadReport report(String sourceName, String error, long elapsedNanos) {
+			LoadReport report = new LoadReport();
+			report.setSource(sourceName);
+			report.setStartedAt(LocalDateTime.now().minusNanos(elapsedNanos));
+			report.setElapsedMillis(elapsedNanos / 1_000_000);
+			report.setProductsRead(read.get());
+			report.setProductsRejected(rejected.get());
+			report.setProductsSaved(saved.get());
+			report.setBatchesSaved(batchesSaved.get());
+			report.setBatchRetries(retries.get());
+			report.setProductsDeadLettered(deadLettered.get());
+			report.setProductsPerSecond(elapsedNanos > 0 ? saved.get() * 1e9 / elapsedNanos : 0);
+			report.setDeadLetters(new ArrayList<>(deadLetters));
+			report.setError(error);
+			if (error != null) {
+				report.setStatus(LoadReport.Status.FAILED);
+			} else if (rejected.get() > 0 || deadLettered.get() > 0) {
+				report.setStatus(LoadReport.Status.COMPLETED_WITH_FAILURES);
+			} else {
+				report.setStatus(LoadReport.Status.COMPLETED);
+			}
+			return report;
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.publicis_sapient.products_api.service;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.publicis_sapient.products_api.search.SearchIndex;
+import com.publicis_sapient.products_api.view.ProductView;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Relevance-ranked product search backed by an in-memory {@link SearchIndex}.
+ *
+ * The index is rebuilt in the background whenever this instance switches to
+ * a new catalog generation; queries keep using the previous index until the
+ * new one is swapped in. Hits are served from the index generation's
+ * catalog view, or read from its rows, which outlive the switch long enough
+ * for that, once the view is dropped.
+ */
+@Service
+public class ProductSearchService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductSearchService.class);
+
+	private static final String INDEX_QUERY = "SELECT p.id, p.product_id, p.title, p.brand, p.description, "
+			+ "(SELECT LISTAGG(t.tags, ' ') FROM product_tags t WHERE t.product_id = p.id) AS tags "
+			+ "FROM product p WHERE p.generation = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final CatalogViewService viewService;
+	private final CatalogGenerationService generationService;
+	private final TaskExecutor taskExecutor;
+	private final Map<SearchIndex.Field, Float> boosts = new EnumMap<>(SearchIndex.Field.class);
+	private final float k1;
+	private final float b;
+	private final Timer buildTimer;
+
+	private final AtomicReference<SearchIndex> index = new AtomicReference<>(SearchIndex.empty());
+
+	public ProductSearchService(JdbcTemplate jdbcTemplate, CatalogViewService viewService,
+			CatalogGenerationService generationService, TaskExecutor taskExecutor, MeterRegistry meterRegistry,
+			@Value("${search.boost.title:3.0}") float titleBoost, @Value("${search.boost.brand:2.0}") float brandBoost,
+			@Value("${search.boost.tags:1.5}") float tagsBoost,
+			@Value("${search.boost.description:1.0}") float descriptionBoost, @Value("${search.bm25.k1:1.2}") float k1,
+			@Value("${search.bm25.b:0.75}") float b) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.viewService = viewService;
+		this.generationService = generationService;
+		this.taskExecutor = taskExecutor;
+		boosts.put(SearchIndex.Field.TITLE, titleBoost);
+		boosts.put(SearchIndex.Field.BRAND, brandBoost);
+		boosts.put(SearchIndex.Field.TAGS, tagsBoost);
+		boosts.put(SearchIndex.Field.DESCRIPTION, descriptionBoost);
+		this.k1 = k1;
+		this.b = b;
+		this.buildTimer = Timer.builder("search.index.build").register(meterRegistry);
+		Gauge.builder("search.index.documents", index, i -> i.get().size()).register(meterRegistry);
+		Gauge.builder("search.index.generation", index, i -> i.get().generation()).register(meterRegistry);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		long generation = generationService.currentGeneration();
+		if (generation > 0) {
+			taskExecutor.execute(() -> rebuild(generation));
+		}
+	}
+
+	@EventListener
+	public void onCatalogSwitched(CatalogSwitchedEvent event) {
+		taskExecutor.execute(() -> rebuild(event.generation()));
+	}
+
+	/**
+	 * Indexes the given generation unless the index already covers it or a
+	 * newer one. Builds are serialised, so a burst of switches indexes each
+	 * generation at most once.
+	 */
+	public synchronized void rebuild(long generation) {
+		if (generation <= index.get().generation() || generation < generationService.currentGeneration()) {
+			return;
+		}
+		long start = System.nanoTime();
+		SearchIndex.Builder builder = new SearchIndex.Builder(generation, boosts, k1, b);
+		jdbcTemplate.query(INDEX_QUERY, rs -> {
+			builder.add(rs.getLong("product_id"), rs.getString("title"), rs.getString("brand"), rs.getString("tags"),
+					rs.getString("description"));
+		}, generation);
+		SearchIndex built = builder.build();
+		index.set(built);
+		long elapsed = System.nanoTime() - start;
+		buildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+		LOGGER.info("Indexed catalog generation {} for search: {} products, {} terms in {} ms.", generation,
+				built.size(), built.termCount(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+	}
+
+	/**
+	 * The best matching products for a free-text query, most relevant first.
+	 */
+	public List<ProductView> search(String query, int limit) {
+		SearchIndex searched = index.get();
+		List<SearchIndex.Hit> hits = searched.search(query, limit);
+		if (hits.isEmpty()) {
+			return List.of();
+		}
+		return viewService.findByIds(searched.generation(), hits.stream().map(SearchIndex.Hit::productId).toList());
+	}
+
+	public SearchIndex getIndex() {
+		return index.get();
+	}
+
+}
@@ -1,32 +1,25 @@
 package com.publicis_sapient.products_api.service;
 
+import com.publicis_sapient.products_api.client.ProductFeedClient;
 import com.publicis_sapient.products_api.dao.ProductRepository;
+import com.publicis_sapient.products_api.dto.LoadReport;
 import com.publicis_sapient.products_api.dto.ProductDTO;
+import com.publicis_sapient.products_api.dto.ReviewPage;
 import com.publicis_sapient.products_api.entity.Product;
-import com.publicis_sapient.products_api.entity.ProductResponse;
+import com.publicis_sapient.products_api.entity.Review;
+import com.publicis_sapient.products_api.entity.ReviewSummary;
+import com.publicis_sapient.products_api.view.ProductView;
 
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.Sort;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import io.github.resilience4j.retry.annotation.Retry;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-
-import jakarta.transaction.Transactional;
-
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class ProductService {
@@ -34,146 +27,117 @@ public class ProductService {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ProductService.class);
 
 	private final ProductRepository repository;
-	private final RestTemplate restTemplate;
+	private final ProductFeedClient feedClient;
+	private final ProductIngestionPipeline ingestionPipeline;
+	private final CatalogGenerationService generationService;
+	private final CatalogViewService viewService;
 	private final ModelMapper modelMapper;
+	private final ReentrantLock loadLock = new ReentrantLock();
 
-	@Value("${external.api.products}")
-	private String productsApiUrl;
+	// Rejected or dead-lettered feed rows tolerated before a new generation is withheld
+	@Value("${catalog.max-failed-rows:0}")
+	private long maxFailedRows;
 
-	public ProductService(ProductRepository repository, RestTemplate restTemplate, ModelMapper modelMapper) {
+	public ProductService(ProductRepository repository, ProductFeedClient feedClient,
+			ProductIngestionPipeline ingestionPipeline, CatalogGenerationService generationService,
+			CatalogViewService viewService, ModelMapper modelMapper) {
 		this.repository = repository;
-		this.restTemplate = restTemplate;
+		this.feedClient = feedClient;
+		this.ingestionPipeline = ingestionPipeline;
+		this.generationService = generationService;
+		this.viewService = viewService;
 		this.modelMapper = modelMapper;
 	}
 
-	@Async
-	@Transactional
-	@CacheEvict(value = "products", allEntries = true)
-	@Retry(name = "productApi", fallbackMethod = "loadProductsFallback")
-	@CircuitBreaker(name = "productApi", fallbackMethod = "loadProductsFallback")
-	public CompletableFuture<Void> loadProducts() {
-		LOGGER.info("Fetching products from external API: {}", productsApiUrl);
-
-		try {
-
-			ProductResponse productResponse = restTemplate.getForObject(productsApiUrl, ProductResponse.class);
-
-			if (productResponse == null || productResponse.getProducts() == null
-					|| productResponse.getProducts().isEmpty()) {
-				LOGGER.warn("No products found in the response from external API.");
-				return CompletableFuture.completedFuture(null);
-			}
-
-			LOGGER.info("Successfully fetched {} products from external API.", productResponse.getProducts().size());
-
-			List<Product> productsToSave = productResponse.getProducts().parallelStream().map(this::convertToEntity) // Convert
-																														// each
-																														// ProductDTO
-																														// to
-																														// Product
-																														// entity
-					.collect(Collectors.toList()); // Collect all converted products
-
-			if (productsToSave.isEmpty()) {
-				LOGGER.warn("No products to save.");
-				return CompletableFuture.completedFuture(null);
-			}
-
-			int batchSize = 15;
-			List<List<Product>> batches = partitionList(productsToSave, batchSize);
-
-			List<CompletableFuture<Void>> futures = batches.stream()
-					.map(batch -> CompletableFuture.runAsync(() -> saveBatch(batch))) // Asynchronous saving of each
-																						// batch
-					.collect(Collectors.toList());
-
-			CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-
-			LOGGER.info("All products have been saved successfully.");
-
-		} catch (Exception e) {
-			LOGGER.error("Error occurred while fetching products from external API: {}", e.getMessage(), e);
-			throw e;
-		}
-
-		return CompletableFuture.completedFuture(null);
+	/**
+	 * Runs the ingestion pipeline against the upstream feed and reports how the
+	 * load went. Pages are fetched concurrently and retried individually by the
+	 * feed client, and handed to the pipeline on the loading thread; each batch
+	 * is written in its own transaction.
+	 */
+	public LoadReport loadProducts() {
+		ProductSource feed = feedClient::fetchInto;
+		return loadGeneration("external-api", feed, maxFailedRows);
 	}
 
-	private <T> List<List<T>> partitionList(List<T> list, int batchSize) {
-		List<List<T>> partitions = new ArrayList<>();
-		for (int i = 0; i < list.size(); i += batchSize) {
-			partitions.add(list.subList(i, Math.min(i + batchSize, list.size())));
+	/**
+	 * Writes the source into a new catalog generation next to the one being
+	 * served, and swaps readers over only when it loaded with no more than
+	 * {@code maxFailedRows} rows rejected or dead-lettered.
+	 */
+	LoadReport loadGeneration(String sourceName, ProductSource source, long maxFailedRows) {
+		if (!loadLock.tryLock()) {
+			LOGGER.warn("A catalog load is already running; skipping load from {}.", sourceName);
+			LoadReport report = new LoadReport();
+			report.setSource(sourceName);
+			report.setStatus(LoadReport.Status.FAILED);
+			report.setError("A catalog load is already in progress");
+			return report;
 		}
-		return partitions;
-	}
-
-	private void saveBatch(List<Product> batch) {
 		try {
-			repository.saveAll(batch);
-			repository.flush();
-		} catch (Exception e) {
-			LOGGER.error("Failed to save batch of products: {}", e.getMessage(), e);
+			long generation = generationService.startBuild();
+			LoadReport report = ingestionPipeline.run(sourceName, source, dto -> {
+				Product product = convertToEntity(dto);
+				product.setGeneration(generation);
+				return product;
+			});
+			report.setGeneration(generation);
+
+			long failedRows = report.getProductsRejected() + report.getProductsDeadLettered();
+			if (report.getStatus() != LoadReport.Status.FAILED && report.getProductsSaved() > 0
+					&& failedRows <= maxFailedRows) {
+				generationService.assignProductIds(generation);
+				generationService.activate(generation, report.getProductsSaved());
+				report.setActivated(true);
+			} else {
+				if (report.getError() == null && failedRows > maxFailedRows) {
+					report.setError(failedRows + " rows failed, more than the " + maxFailedRows + " tolerated");
+				}
+				LOGGER.error("Catalog generation {} from {} not activated: status={}, saved={}, failed rows={}, error={}",
+						generation, sourceName, report.getStatus(), report.getProductsSaved(), failedRows,
+						report.getError());
+				generationService.abandon(generation);
+			}
+			return report;
+		} finally {
+			loadLock.unlock();
 		}
 	}
 
-	@Cacheable(value = "products", key = "{#category?.toLowerCase(), #searchTerm?.toLowerCase(), #sortOrder?.toLowerCase()}")
-	public List<Product> findProducts(String category, String searchTerm, String sortOrder) {
+	public List<ProductView> findProducts(String category, String searchTerm, String sortOrder) {
 		LOGGER.info("Retrieving products with filters. Category: {}, SearchTerm: {}, SortOrder: {}", category,
 				searchTerm, sortOrder);
-
-		List<Product> products = repository.findAll(); // Start with all products
-
-		// Apply category filter if provided
-		if (category != null && !category.isEmpty()) {
-			products = products.stream().filter(product -> product.getCategory().equalsIgnoreCase(category))
-					.collect(Collectors.toList());
-			LOGGER.debug("Filtered products by category '{}'.", category);
-		}
-
-		// Apply searchTerm filter if provided (by name, SKU, or ID)
-		if (searchTerm != null && !searchTerm.isEmpty()) {
-			products = products.stream()
-					.filter(product -> product.getTitle().toLowerCase().contains(searchTerm.toLowerCase())
-							|| product.getSku().toLowerCase().contains(searchTerm.toLowerCase())
-							|| product.getId().toString().equals(searchTerm)) // Can filter by name, SKU, or ID
-					.collect(Collectors.toList());
-			LOGGER.debug("Filtered products by search term '{}'.", searchTerm);
+		List<ProductView> products;
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			products = viewService.view(lease.generation()).filter(category, searchTerm, sortOrder);
 		}
-
-		// Apply sorting if provided
-		if (sortOrder != null && !sortOrder.isEmpty()) {
-			if ("asc".equalsIgnoreCase(sortOrder)) {
-				products.sort(Comparator.comparing(Product::getPrice));
-				LOGGER.debug("Sorted products by price in ascending order.");
-			} else if ("desc".equalsIgnoreCase(sortOrder)) {
-				products.sort(Comparator.comparing(Product::getPrice).reversed());
-				LOGGER.debug("Sorted products by price in descending order.");
-			}
-		}
-
 		LOGGER.debug("Found {} products after applying filters and sorting.", products.size());
 		return products;
 	}
 
-	@Cacheable("products")
-	public List<Product> findAll() {
-		LOGGER.info("Retrieving all products from the database.");
-		List<Product> products = repository.findAll();
-		LOGGER.debug("Found {} products in the database.", products.size());
-		return products;
+	public List<ProductView> findAll() {
+		LOGGER.info("Retrieving all products.");
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			return viewService.view(lease.generation()).all();
+		}
 	}
 
-	@Cacheable(value = "productsByCategory", key = "#category.toLowerCase()")
-	public List<Product> findByCategory(String category) {
+	public List<ProductView> findByCategory(String category) {
 		LOGGER.info("Retrieving products by category: {}", category);
-		List<Product> products = repository.findByCategoryIgnoreCase(category);
+		List<ProductView> products;
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			products = viewService.view(lease.generation()).byCategory(category);
+		}
 		LOGGER.debug("Found {} products for category '{}'.", products.size(), category);
 		return products;
 	}
 
-	public Optional<Product> findById(Long id) {
+	public Optional<ProductView> findById(Long id) {
 		LOGGER.info("Searching for product with ID: {}", id);
-		Optional<Product> product = repository.findById(id);
+		Optional<ProductView> product;
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			product = viewService.view(lease.generation()).byId(id);
+		}
 		if (product.isPresent()) {
 			LOGGER.debug("Product found: {}", product.get());
 		} else {
@@ -182,9 +146,12 @@ public class ProductService {
 		return product;
 	}
 
-	public Optional<Product> findBySku(String sku) {
+	public Optional<ProductView> findBySku(String sku) {
 		LOGGER.info("Searching for product with SKU: {}", sku);
-		Optional<Product> product = repository.findBySku(sku);
+		Optional<ProductView> product;
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			product = viewService.view(lease.generation()).bySku(sku);
+		}
 		if (product.isPresent()) {
 			LOGGER.debug("Product found: {}", product.get());
 		} else {
@@ -193,20 +160,42 @@ public class ProductService {
 		return product;
 	}
 
-	public List<Product> sortByPrice(String direction) {
+	/**
+	 * A page of the product's reviews, newest first. The total comes from the
+	 * stored summary, so no count query is run.
+	 */
+	public Optional<ReviewPage> findReviews(Long id, int page, int size) {
+		LOGGER.info("Fetching reviews for product {} (page {}, size {}).", id, page, size);
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			return viewService.view(lease.generation()).byId(id).map(product -> {
+				ProductView.ReviewSummary summary = product.reviewSummary();
+				long total = summary != null && summary.reviewCount() != null ? summary.reviewCount() : 0;
+				List<Review> reviews = (long) page * size < total
+						? repository.findReviews(lease.generation(), id, PageRequest.of(page, size))
+						: List.of();
+				return new ReviewPage(reviews, page, size, total, (int) ((total + size - 1) / size));
+			});
+		}
+	}
+
+	public List<ProductView> sortByPrice(String direction) {
 		LOGGER.info("Sorting products by price in {} order.", direction);
-		List<Product> products = direction.equalsIgnoreCase("asc")
-				? repository.findAll(Sort.by(Sort.Direction.ASC, "price"))
-				: repository.findAll(Sort.by(Sort.Direction.DESC, "price"));
+		List<ProductView> products;
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			products = viewService.view(lease.generation()).sortedByPrice(direction.equalsIgnoreCase("asc"));
+		}
 		LOGGER.debug("Found {} products after sorting.", products.size());
 		return products;
 	}
 
 	public List<String> getCategories() {
-		LOGGER.info("Fetching unique categories from the database.");
-		List<String> categories = repository.findDistinctCategories();
+		LOGGER.info("Fetching unique categories.");
+		List<String> categories;
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			categories = viewService.view(lease.generation()).categories();
+		}
 		if (categories.isEmpty()) {
-			LOGGER.warn("No categories found in the database.");
+			LOGGER.warn("No categories found in the catalog.");
 		} else {
 			LOGGER.debug("Found {} unique categories: {}", categories.size(), categories);
 		}
@@ -214,21 +203,28 @@ public class ProductService {
 	}
 
 	public Product convertToEntity(ProductDTO productDTO) {
-		LOGGER.debug("Converting ProductDTO to Product entity: {}", productDTO);
 		Product product = modelMapper.map(productDTO, Product.class);
 		product.setId(null);
-		LOGGER.debug("Converted Product entity: {}", product);
+		product.setReviewSummary(ReviewSummary.of(product.getReviews()));
+		product.setContentHash(contentHash(productDTO));
 		return product;
 	}
 
-	public ProductDTO convertToDTO(Product product) {
-		LOGGER.debug("Converting Product entity to ProductDTO: {}", product);
-		ProductDTO productDTO = modelMapper.map(product, ProductDTO.class);
-		LOGGER.debug("Converted ProductDTO: {}", productDTO);
-		return productDTO;
+	/**
+	 * 64-bit FNV-1a over the record's text form, which covers every field of
+	 * the feed record and is stable across runs.
+	 */
+	static long contentHash(ProductDTO productDTO) {
+		String text = productDTO.toString();
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < text.length(); i++) {
+			hash ^= text.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
 	}
 
-	public void loadProductsFallback(Throwable throwable) {
-		LOGGER.error("Fallback invoked for loadProducts due to: {}", throwable.getMessage(), throwable);
+	public ProductDTO convertToDTO(Product product) {
+		return modelMapper.map(product, ProductDTO.class);
 	}
 }
@@ -0,0 +1,29 @@
+package com.publicis_sapient.products_api.service;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.publicis_sapient.products_api.dto.ProductDTO;
+
+/**
+ * Supplies products to the ingestion pipeline in chunks.
+ */
+@FunctionalInterface
+public interface ProductSource {
+
+	/**
+	 * Pushes every product to the sink and returns once the source is exhausted.
+	 * The sink blocks while the pipeline is full, which is how backpressure
+	 * reaches the source. It may be called from several threads at once.
+	 */
+	void produce(Consumer<List<ProductDTO>> sink) throws Exception;
+
+	/**
+	 * Products the source read but turned away itself, without passing them to
+	 * the sink; they are reported as read and rejected.
+	 */
+	default long rejected() {
+		return 0;
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.publicis_sapient.products_api.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.publicis_sapient.products_api.search.SuggestIndex;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Prefix autocomplete over titles, brands, categories and SKUs, served from
+ * an in-memory {@link SuggestIndex} rebuilt whenever this instance switches to
+ * a new catalog generation.
+ *
+ * Titles and SKUs rank by the product's rating. Brands and categories rank
+ * above any single product, by how many products they cover, since picking
+ * one narrows the search rather than ending it.
+ */
+@Service
+public class ProductSuggestService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductSuggestService.class);
+
+	private static final String SUGGEST_QUERY = "SELECT title, brand, category, sku, rating FROM product WHERE generation = ?";
+	private static final float MAX_RATING = 5f;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final CatalogGenerationService generationService;
+	private final TaskExecutor taskExecutor;
+	private final Timer buildTimer;
+
+	private final AtomicReference<SuggestIndex> index = new AtomicReference<>(SuggestIndex.empty());
+
+	public ProductSuggestService(JdbcTemplate jdbcTemplate, CatalogGenerationService generationService,
+			TaskExecutor taskExecutor, MeterRegistry meterRegistry) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.generationService = generationService;
+		this.taskExecutor = taskExecutor;
+		this.buildTimer = Timer.builder("suggest.index.build").register(meterRegistry);
+		Gauge.builder("suggest.index.entries", index, i -> i.get().size()).register(meterRegistry);
+		Gauge.builder("suggest.index.generation", index, i -> i.get().generation()).register(meterRegistry);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		long generation = generationService.currentGeneration();
+		if (generation > 0) {
+			taskExecutor.execute(() -> rebuild(generation));
+		}
+	}
+
+	@EventListener
+	public void onCatalogSwitched(CatalogSwitchedEvent event) {
+		taskExecutor.execute(() -> rebuild(event.generation()));
+	}
+
+	/**
+	 * Indexes the given generation unless the index already covers it or a
+	 * newer one.
+	 */
+	public synchronized void rebuild(long generation) {
+		if (generation <= index.get().generation() || generation < generationService.currentGeneration()) {
+			return;
+		}
+		long start = System.nanoTime();
+		SuggestIndex.Builder builder = new SuggestIndex.Builder(generation);
+		Map<String, Integer> brands = new HashMap<>();
+		Map<String, Integer> categories = new HashMap<>();
+		jdbcTemplate.query(SUGGEST_QUERY, rs -> {
+			double rating = rs.getDouble("rating");
+			builder.add(SuggestIndex.Type.TITLE, rs.getString("title"), (float) rating);
+			builder.add(SuggestIndex.Type.SKU, rs.getString("sku"), (float) rating);
+			count(brands, rs.getString("brand"));
+			count(categories, rs.getString("category"));
+		}, generation);
+		brands.forEach((brand, products) -> builder.add(SuggestIndex.Type.BRAND, brand, popularity(products)));
+		categories.forEach(
+				(category, products) -> builder.add(SuggestIndex.Type.CATEGORY, category, popularity(products)));
+		SuggestIndex built = builder.build();
+		index.set(built);
+		long elapsed = System.nanoTime() - start;
+		buildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+		LOGGER.info("Indexed catalog generation {} for suggestions: {} entries, {} keys in {} ms.", generation,
+				built.size(), built.keyCount(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+	}
+
+	public List<SuggestIndex.Suggestion> suggest(String prefix, int limit) {
+		return index.get().suggest(prefix, limit);
+	}
+
+	public SuggestIndex getIndex() {
+		return index.get();
+	}
+
+	private static void count(Map<String, Integer> counts, String value) {
+		if (value != null && !value.isBlank()) {
+			counts.merge(value, 1, Integer::sum);
+		}
+	}
+
+	private static float popularity(int products) {
+		return MAX_RATING + (float) Math.log10(1 + products);
+	}
+
+}
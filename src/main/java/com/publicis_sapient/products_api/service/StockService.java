@@ -0,0 +1,607 @@
+package com.publicis_sapient.products_api.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.publicis_sapient.products_api.dto.StockLevel;
+import com.publicis_sapient.products_api.entity.ProductStock;
+import com.publicis_sapient.products_api.entity.StockReservation;
+import com.publicis_sapient.products_api.exception.InsufficientStockException;
+import com.publicis_sapient.products_api.exception.InvalidReleaseException;
+import com.publicis_sapient.products_api.exception.ProductNotFoundException;
+import com.publicis_sapient.products_api.exception.StockUnavailableException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Reserves and releases stock against in-memory counters, one per SKU this
+ * instance holds, and writes the changes behind to the {@link ProductStock}
+ * and {@link StockReservation} rows.
+ *
+ * A reservation is a compare-and-set on the SKU's counter, so it takes the
+ * whole quantity or nothing and concurrent buyers of the last unit cannot both
+ * succeed, without a database round trip. Each flush writes every held SKU's
+ * reserved count and the reservations changed since the previous flush in one
+ * batch, however many requests they cover.
+ *
+ * Only one instance counts a SKU at a time: it holds a lease on the SKU's row,
+ * renewed by every flush. An instance asked for a SKU another one holds
+ * requests a handoff and waits for the holder to write its counts back and let
+ * go at its next flush, so routing each SKU to one instance keeps its
+ * reservations in memory. A SKU left idle for a lease period is handed back
+ * too. Shutdown hands back everything; a crashed instance loses at most one
+ * flush interval of changes, and its SKUs are taken over once its leases
+ * expire.
+ */
+@Service
+public class StockService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StockService.class);
+
+	// Reservation ids taken per sequence value, see StockReservation
+	private static final int ID_BLOCK_SIZE = 1000;
+	private static final long HANDOFF_POLL_MILLIS = 20;
+	// Marks a reservation dropped from memory once written; it is read back on use
+	private static final int EVICTED = -1;
+
+	private static final String LISTED = "EXISTS (SELECT 1 FROM product p WHERE p.generation = ? AND p.sku = s.sku)";
+	private static final String ACQUIRE = "UPDATE product_stock SET owner = ?, handoff_requested = FALSE,"
+			+ " lease_until = DATEADD('MILLISECOND', ?, CURRENT_TIMESTAMP) WHERE sku = ?"
+			+ " AND (owner IS NULL OR owner = ? OR lease_until < CURRENT_TIMESTAMP)";
+	private static final String LOAD_QUERY = "SELECT s.stock, s.reserved, " + LISTED + " AS listed"
+			+ " FROM product_stock s WHERE s.sku = ? AND s.owner = ?";
+	private static final String REQUEST_HANDOFF = "UPDATE product_stock SET handoff_requested = TRUE WHERE sku = ?";
+	private static final String RENEW = "UPDATE product_stock SET reserved = ?,"
+			+ " lease_until = DATEADD('MILLISECOND', ?, CURRENT_TIMESTAMP) WHERE sku = ? AND owner = ?";
+	private static final String HELD_QUERY = "SELECT s.sku, s.stock, s.handoff_requested, " + LISTED + " AS listed"
+			+ " FROM product_stock s WHERE s.owner = ?";
+	private static final String HAND_OVER = "UPDATE product_stock SET reserved = ?, owner = NULL, lease_until = NULL,"
+			+ " handoff_requested = FALSE WHERE sku = ? AND owner = ?";
+	private static final String SAVE_RESERVATION = "MERGE INTO stock_reservation (id, sku, quantity, created_at)"
+			+ " KEY (id) VALUES (?, ?, ?, ?)";
+	private static final String RESERVATION_QUERY = "SELECT quantity, created_at FROM stock_reservation"
+			+ " WHERE id = ? AND sku = ?";
+	private static final String LEVEL_QUERY = "SELECT s.stock - s.reserved FROM product_stock s"
+			+ " JOIN product p ON p.sku = s.sku AND p.generation = ? WHERE s.sku = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final CatalogGenerationService generationService;
+	private final TransactionTemplate transactionTemplate;
+	private final long leaseMillis;
+	private final long handoffTimeoutNanos;
+	private final Counter reserved;
+	private final Counter rejected;
+	private final Counter released;
+	private final Timer flushTimer;
+	private final String owner = UUID.randomUUID().toString();
+
+	private final Map<String, StockCounter> counters = new ConcurrentHashMap<>();
+	// Taken to add or remove counters, after the flush lock when both are needed
+	private final Object leases = new Object();
+	private final Object flushLock = new Object();
+	private final Object idLock = new Object();
+	private volatile IdBlock ids = new IdBlock(0, 0);
+
+	public StockService(JdbcTemplate jdbcTemplate, CatalogGenerationService generationService,
+			PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+			@Value("${stock.lease.duration:10s}") Duration leaseDuration,
+			@Value("${stock.lease.handoff-timeout:3s}") Duration handoffTimeout) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.generationService = generationService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.leaseMillis = leaseDuration.toMillis();
+		this.handoffTimeoutNanos = handoffTimeout.toNanos();
+		this.reserved = Counter.builder("stock.reservations").tag("outcome", "reserved").register(meterRegistry);
+		this.rejected = Counter.builder("stock.reservations").tag("outcome", "rejected").register(meterRegistry);
+		this.released = Counter.builder("stock.releases").register(meterRegistry);
+		this.flushTimer = Timer.builder("stock.flush").register(meterRegistry);
+		Gauge.builder("stock.leases", counters, Map::size).description("SKUs counted by this instance")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Takes {@code quantity} units of the SKU, or none if fewer are available.
+	 * The returned level names the reservation to release them against.
+	 */
+	public StockLevel reserve(String sku, int quantity) throws ProductNotFoundException {
+		requirePositive(quantity);
+		while (true) {
+			StockCounter counter = counter(sku);
+			long stamp = counter.guard.tryReadLock();
+			if (stamp == 0) {
+				// Being handed over; the next attempt waits for it
+				continue;
+			}
+			try {
+				requireListed(counter);
+				int stock;
+				int held;
+				do {
+					stock = counter.stock;
+					held = counter.reserved.get();
+					if (held + quantity > stock) {
+						rejected.increment();
+						throw new InsufficientStockException(sku, quantity, Math.max(0, stock - held));
+					}
+				} while (!counter.reserved.compareAndSet(held, held + quantity));
+				long id = nextReservationId();
+				counter.reservations.put(id, new Reservation(id, quantity, 0, LocalDateTime.now()));
+				markDirty(counter);
+				reserved.increment();
+				return new StockLevel(sku, Math.max(0, stock - held - quantity), id);
+			} finally {
+				counter.guard.unlockRead(stamp);
+			}
+		}
+	}
+
+	/**
+	 * Returns {@code quantity} units of a reservation of the SKU, such as from
+	 * an abandoned checkout, or all it still holds when {@code quantity} is
+	 * null.
+	 */
+	public StockLevel release(String sku, long reservation, Integer quantity) throws ProductNotFoundException {
+		if (quantity != null) {
+			requirePositive(quantity);
+		}
+		while (true) {
+			StockCounter counter = counter(sku);
+			long stamp = counter.guard.tryReadLock();
+			if (stamp == 0) {
+				continue;
+			}
+			try {
+				Reservation held = counter.reservations.computeIfAbsent(reservation, id -> loadReservation(sku, id));
+				if (held == null) {
+					throw new InvalidReleaseException(sku, reservation, quantity != null ? quantity : 0, 0);
+				}
+				int units = take(sku, held, quantity);
+				if (units == EVICTED) {
+					counter.reservations.remove(reservation, held);
+					continue;
+				}
+				int stillReserved = counter.reserved.addAndGet(-units);
+				markDirty(counter);
+				released.increment();
+				return new StockLevel(sku, Math.max(0, counter.stock - stillReserved), reservation);
+			} finally {
+				counter.guard.unlockRead(stamp);
+			}
+		}
+	}
+
+	/**
+	 * The units of the SKU that can still be reserved. Counted here if this
+	 * instance holds the SKU, otherwise as of the holder's last flush.
+	 */
+	public StockLevel getLevel(String sku) throws ProductNotFoundException {
+		StockCounter counter = counters.get(sku);
+		if (counter != null && counter.isUsable()) {
+			requireListed(counter);
+			return new StockLevel(sku, Math.max(0, counter.stock - counter.reserved.get()), null);
+		}
+		List<Integer> available = jdbcTemplate.queryForList(LEVEL_QUERY, Integer.class,
+				generationService.currentGeneration(), sku);
+		if (available.isEmpty()) {
+			throw new ProductNotFoundException("Product not found with SKU: " + sku);
+		}
+		return new StockLevel(sku, Math.max(0, available.get(0)), null);
+	}
+
+	/** Picks up the new generation's stock for the SKUs held here. */
+	@EventListener
+	public void onCatalogSwitched(CatalogSwitchedEvent event) {
+		flush();
+	}
+
+	/**
+	 * Writes every held SKU's reserved count and the reservations changed
+	 * since the last flush, renewing the leases, then hands back the SKUs
+	 * another instance asked for or nobody used for a lease period. On failure
+	 * the changes stay pending for the next attempt.
+	 */
+	@Scheduled(fixedDelayString = "${stock.flush-interval:1s}")
+	public void flush() {
+		synchronized (flushLock) {
+			try {
+				writeBehind();
+			} catch (RuntimeException e) {
+				LOGGER.warn("Writing stock behind for {} SKUs failed, will retry: {}", counters.size(),
+						e.getMessage());
+			}
+		}
+	}
+
+	/** Writes back and lets go of every SKU held here. */
+	@PreDestroy
+	public void handOverAll() {
+		synchronized (flushLock) {
+			for (StockCounter counter : List.copyOf(counters.values())) {
+				try {
+					handOver(counter);
+				} catch (RuntimeException e) {
+					LOGGER.warn("Handing over stock of {} failed: {}", counter.sku, e.getMessage());
+				}
+			}
+		}
+	}
+
+	private void writeBehind() {
+		List<StockCounter> held = List.copyOf(counters.values());
+		if (held.isEmpty()) {
+			return;
+		}
+		long start = System.nanoTime();
+		List<Write> writes = new ArrayList<>(held.size());
+		for (StockCounter counter : held) {
+			writes.add(new Write(counter));
+		}
+		int[] renewed;
+		try {
+			renewed = transactionTemplate.execute(status -> {
+				List<Object[]> rows = new ArrayList<>(writes.size());
+				for (Write write : writes) {
+					rows.add(new Object[] { write.reserved, leaseMillis, write.counter.sku, owner });
+				}
+				int[] counts = jdbcTemplate.batchUpdate(RENEW, rows);
+				List<Write> owned = new ArrayList<>(writes.size());
+				for (int i = 0; i < counts.length; i++) {
+					if (counts[i] > 0) {
+						owned.add(writes.get(i));
+					}
+				}
+				saveReservations(owned);
+				return counts;
+			});
+		} catch (RuntimeException e) {
+			writes.forEach(Write::retry);
+			throw e;
+		}
+
+		// Used for half the lease, so a slow request cannot outlast it
+		long validUntil = start + TimeUnit.MILLISECONDS.toNanos(leaseMillis / 2);
+		List<StockCounter> handOvers = new ArrayList<>();
+		for (int i = 0; i < writes.size(); i++) {
+			Write write = writes.get(i);
+			StockCounter counter = write.counter;
+			if (renewed[i] == 0) {
+				LOGGER.warn("Lost the lease on the stock of {}; changes since the last flush are dropped.", counter.sku);
+				drop(counter);
+				continue;
+			}
+			write.written();
+			counter.validUntil = validUntil;
+			if (write.changed) {
+				counter.lastChanged = start;
+			} else if (start - counter.lastChanged > TimeUnit.MILLISECONDS.toNanos(leaseMillis)) {
+				handOvers.add(counter);
+			}
+		}
+
+		jdbcTemplate.query(HELD_QUERY, rs -> {
+			StockCounter counter = counters.get(rs.getString("sku"));
+			if (counter != null) {
+				counter.stock = rs.getInt("stock");
+				counter.listed = rs.getBoolean("listed");
+				if (rs.getBoolean("handoff_requested") && !handOvers.contains(counter)) {
+					handOvers.add(counter);
+				}
+			}
+		}, generationService.currentGeneration(), owner);
+		for (StockCounter counter : handOvers) {
+			handOver(counter);
+		}
+		flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Waits for requests in flight on the SKU, writes its counts and lets go
+	 * of the lease. The counter is not used again; the next request for the
+	 * SKU acquires it afresh.
+	 */
+	private void handOver(StockCounter counter) {
+		synchronized (leases) {
+			long stamp = counter.guard.writeLock();
+			Write last = new Write(counter);
+			try {
+				transactionTemplate.executeWithoutResult(status -> {
+					if (jdbcTemplate.update(HAND_OVER, last.reserved, counter.sku, owner) > 0) {
+						saveReservations(List.of(last));
+					}
+				});
+			} catch (RuntimeException e) {
+				last.retry();
+				counter.guard.unlockWrite(stamp);
+				throw e;
+			}
+			counters.remove(counter.sku, counter);
+		}
+		LOGGER.debug("Handed over the stock of {}.", counter.sku);
+	}
+
+	private void drop(StockCounter counter) {
+		synchronized (leases) {
+			counter.guard.writeLock();
+			counters.remove(counter.sku, counter);
+		}
+	}
+
+	private void saveReservations(List<Write> writes) {
+		List<Object[]> saves = new ArrayList<>();
+		List<Object[]> deletes = new ArrayList<>();
+		for (Write write : writes) {
+			for (int i = 0; i < write.reservations.size(); i++) {
+				Reservation reservation = write.reservations.get(i);
+				int quantity = write.quantities[i];
+				if (quantity > 0) {
+					saves.add(new Object[] { reservation.id, write.counter.sku, quantity,
+							reservation.createdAt != null ? Timestamp.valueOf(reservation.createdAt) : null });
+				} else if (reservation.persisted > 0) {
+					deletes.add(new Object[] { reservation.id });
+				}
+			}
+		}
+		if (!saves.isEmpty()) {
+			jdbcTemplate.batchUpdate(SAVE_RESERVATION, saves);
+		}
+		if (!deletes.isEmpty()) {
+			jdbcTemplate.batchUpdate("DELETE FROM stock_reservation WHERE id = ?", deletes);
+		}
+	}
+
+	/**
+	 * The counter of a SKU held here, taking the SKU over if needed. Waits for
+	 * the holder to hand it over, up to the handoff timeout.
+	 */
+	private StockCounter counter(String sku) throws ProductNotFoundException {
+		StockCounter counter = counters.get(sku);
+		if (counter != null && counter.isUsable()) {
+			return counter;
+		}
+		long deadline = System.nanoTime() + handoffTimeoutNanos;
+		while (true) {
+			counter = counters.get(sku);
+			if (counter != null && !counter.guard.isWriteLocked()) {
+				if (!counter.isLeaseValid()) {
+					// Not renewed in time, such as while the database was unreachable
+					flush();
+				}
+				if (counter.isUsable()) {
+					return counter;
+				}
+			} else {
+				counter = acquire(sku);
+				if (counter != null) {
+					return counter;
+				}
+				// Asked again each time, as another instance may have taken it meanwhile
+				if (jdbcTemplate.update(REQUEST_HANDOFF, sku) == 0) {
+					throw new ProductNotFoundException("Product not found with SKU: " + sku);
+				}
+			}
+			if (System.nanoTime() - deadline > 0) {
+				throw new StockUnavailableException(sku);
+			}
+			try {
+				Thread.sleep(HANDOFF_POLL_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new StockUnavailableException(sku);
+			}
+		}
+	}
+
+	/** Takes the lease on a SKU nobody else holds and loads its counts. */
+	private StockCounter acquire(String sku) {
+		synchronized (leases) {
+			StockCounter counter = counters.get(sku);
+			if (counter != null) {
+				return counter;
+			}
+			long start = System.nanoTime();
+			if (jdbcTemplate.update(ACQUIRE, owner, leaseMillis, sku, owner) == 0) {
+				return null;
+			}
+			long validUntil = start + TimeUnit.MILLISECONDS.toNanos(leaseMillis / 2);
+			counter = jdbcTemplate.queryForObject(LOAD_QUERY,
+					(rs, row) -> new StockCounter(sku, rs.getInt("stock"), rs.getInt("reserved"),
+							rs.getBoolean("listed"), start, validUntil),
+					generationService.currentGeneration(), sku, owner);
+			counters.put(sku, counter);
+			LOGGER.debug("Took over the stock of {}.", sku);
+			return counter;
+		}
+	}
+
+	private Reservation loadReservation(String sku, long id) {
+		List<Reservation> loaded = jdbcTemplate.query(RESERVATION_QUERY, (rs, row) -> {
+			Timestamp createdAt = rs.getTimestamp("created_at");
+			int quantity = rs.getInt("quantity");
+			return new Reservation(id, quantity, quantity, createdAt != null ? createdAt.toLocalDateTime() : null);
+		}, id, sku);
+		return loaded.isEmpty() ? null : loaded.get(0);
+	}
+
+	/**
+	 * Takes units from a reservation, all it holds when {@code quantity} is
+	 * null, or returns {@link #EVICTED} if it was dropped from memory meanwhile.
+	 */
+	private static int take(String sku, Reservation reservation, Integer quantity) {
+		while (true) {
+			int outstanding = reservation.quantity.get();
+			if (outstanding == EVICTED) {
+				return EVICTED;
+			}
+			int units = quantity != null ? quantity : outstanding;
+			if (units == 0 || units > outstanding) {
+				throw new InvalidReleaseException(sku, reservation.id, units, outstanding);
+			}
+			if (reservation.quantity.compareAndSet(outstanding, outstanding - units)) {
+				return units;
+			}
+		}
+	}
+
+	private long nextReservationId() {
+		while (true) {
+			IdBlock block = ids;
+			long id = block.next.getAndIncrement();
+			if (id < block.limit) {
+				return id;
+			}
+			synchronized (idLock) {
+				if (ids == block) {
+					long first = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR stock_reservation_seq", Long.class);
+					ids = new IdBlock(first, first + ID_BLOCK_SIZE);
+				}
+			}
+		}
+	}
+
+	private static void markDirty(StockCounter counter) {
+		if (!counter.dirty) {
+			counter.dirty = true;
+		}
+	}
+
+	private static void requireListed(StockCounter counter) throws ProductNotFoundException {
+		if (!counter.listed) {
+			throw new ProductNotFoundException("Product not found with SKU: " + counter.sku);
+		}
+	}
+
+	private static int requirePositive(int quantity) {
+		if (quantity < 1) {
+			throw new IllegalArgumentException("Quantity must be at least 1, was " + quantity);
+		}
+		return quantity;
+	}
+
+	private static final class StockCounter {
+		private final String sku;
+		// Read-locked by every request, write-locked for good when handed over
+		private final StampedLock guard = new StampedLock();
+		private final AtomicInteger reserved;
+		// Reservations made or released since their last flush
+		private final Map<Long, Reservation> reservations = new ConcurrentHashMap<>();
+		private volatile int stock;
+		// Whether the current generation has the SKU
+		private volatile boolean listed;
+		private volatile boolean dirty;
+		private volatile long validUntil;
+		// Only read and written while flushing
+		private long lastChanged;
+
+		private StockCounter(String sku, int stock, int reserved, boolean listed, long lastChanged,
+				long validUntil) {
+			this.sku = sku;
+			this.stock = stock;
+			this.reserved = new AtomicInteger(reserved);
+			this.listed = listed;
+			this.lastChanged = lastChanged;
+			this.validUntil = validUntil;
+		}
+
+		private boolean isLeaseValid() {
+			return validUntil - System.nanoTime() > 0;
+		}
+
+		private boolean isUsable() {
+			return isLeaseValid() && !guard.isWriteLocked();
+		}
+	}
+
+	private static final class Reservation {
+		private final long id;
+		private final AtomicInteger quantity;
+		private final LocalDateTime createdAt;
+		// What the database holds; only read and written while flushing
+		private int persisted;
+
+		private Reservation(long id, int quantity, int persisted, LocalDateTime createdAt) {
+			this.id = id;
+			this.quantity = new AtomicInteger(quantity);
+			this.persisted = persisted;
+			this.createdAt = createdAt;
+		}
+	}
+
+	/** A counter's state as read for one flush. */
+	private static final class Write {
+		private final StockCounter counter;
+		private final boolean changed;
+		private final int reserved;
+		private final List<Reservation> reservations = new ArrayList<>();
+		private final int[] quantities;
+
+		private Write(StockCounter counter) {
+			this.counter = counter;
+			// Cleared before reading, so a change made after the read is written next time
+			this.changed = counter.dirty;
+			counter.dirty = false;
+			this.reserved = counter.reserved.get();
+			List<Integer> read = new ArrayList<>();
+			for (Reservation reservation : counter.reservations.values()) {
+				int quantity = reservation.quantity.get();
+				if (quantity != EVICTED && quantity != reservation.persisted) {
+					reservations.add(reservation);
+					read.add(quantity);
+				}
+			}
+			this.quantities = read.stream().mapToInt(Integer::intValue).toArray();
+		}
+
+		private void retry() {
+			if (changed) {
+				counter.dirty = true;
+			}
+		}
+
+		/** Records what was written and drops reservations with nothing left to write. */
+		private void written() {
+			for (int i = 0; i < reservations.size(); i++) {
+				reservations.get(i).persisted = quantities[i];
+			}
+			counter.reservations.values().removeIf(reservation -> {
+				int quantity = reservation.quantity.get();
+				return quantity == reservation.persisted
+						&& reservation.quantity.compareAndSet(quantity, EVICTED);
+			});
+		}
+	}
+
+	private static final class IdBlock {
+		private final AtomicLong next;
+		private final long limit;
+
+		private IdBlock(long first, long limit) {
+			this.next = new AtomicLong(first);
+			this.limit = limit;
+		}
+	}
+
+}
@@ -0,0 +1,283 @@
+package com.publicis_sapient.products_api.view;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable snapshot of one catalog generation, as served to readers.
+ *
+ * Products are held in one array ordered by id; every lookup is an index of
+ * array positions over it: ids and SKUs are binary searched, categories map to
+ * their positions in id order, and both price orders are precomputed. Lists
+ * handed out are read-only views over the array, so serving a list copies
+ * nothing. A change produces a new snapshot; one that leaves ids, SKUs,
+ * categories and prices alone reuses every index and copies only the array.
+ */
+public final class CatalogView {
+
+	// Nulls sort low, as they do in the database
+	private static final Comparator<Double> PRICE = Comparator.nullsFirst(Comparator.naturalOrder());
+
+	private final long generation;
+	private final long version;
+	private final ProductView[] products;
+	private final long[] ids;
+	private final int[] skuOrder;
+	private final Map<String, int[]> categoryPositions;
+	private final int[] priceAscending;
+	private final int[] priceDescending;
+	private final List<String> categories;
+
+	private CatalogView(long generation, long version, ProductView[] products, long[] ids, int[] skuOrder,
+			Map<String, int[]> categoryPositions, int[] priceAscending, int[] priceDescending,
+			List<String> categories) {
+		this.generation = generation;
+		this.version = version;
+		this.products = products;
+		this.ids = ids;
+		this.skuOrder = skuOrder;
+		this.categoryPositions = categoryPositions;
+		this.priceAscending = priceAscending;
+		this.priceDescending = priceDescending;
+		this.categories = categories;
+	}
+
+	/**
+	 * Indexes the products of a generation as of the given change log version.
+	 */
+	public static CatalogView of(long generation, long version, Collection<ProductView> products) {
+		ProductView[] sorted = products.toArray(ProductView[]::new);
+		Arrays.sort(sorted, Comparator.comparingLong(ProductView::id));
+		long[] ids = new long[sorted.length];
+		Map<String, List<Integer>> byCategory = new HashMap<>();
+		Set<String> categories = new TreeSet<>();
+		for (int i = 0; i < sorted.length; i++) {
+			ids[i] = sorted[i].id();
+			String key = categoryKey(sorted[i].category());
+			if (key != null) {
+				byCategory.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+				categories.add(sorted[i].category());
+			}
+		}
+		Map<String, int[]> categoryPositions = new HashMap<>(byCategory.size() * 2);
+		byCategory.forEach((key, positions) -> categoryPositions.put(key,
+				positions.stream().mapToInt(Integer::intValue).toArray()));
+		int[] skuOrder = IntStream.range(0, sorted.length).filter(i -> sorted[i].sku() != null).boxed()
+				.sorted(Comparator.comparing(i -> sorted[i].sku())).mapToInt(Integer::intValue).toArray();
+		int[] priceAscending = IntStream.range(0, sorted.length).boxed()
+				.sorted(Comparator.comparing((Integer i) -> sorted[i].price(), PRICE)).mapToInt(Integer::intValue)
+				.toArray();
+		int[] priceDescending = IntStream.range(0, sorted.length).boxed()
+				.sorted(Comparator.comparing((Integer i) -> sorted[i].price(), PRICE.reversed()))
+				.mapToInt(Integer::intValue).toArray();
+		return new CatalogView(generation, version, sorted, ids, skuOrder, Map.copyOf(categoryPositions),
+				priceAscending, priceDescending, List.copyOf(categories));
+	}
+
+	public static CatalogView empty(long generation) {
+		return of(generation, 0, List.of());
+	}
+
+	public long generation() {
+		return generation;
+	}
+
+	/** The last change log version reflected in this snapshot. */
+	public long version() {
+		return version;
+	}
+
+	public int size() {
+		return products.length;
+	}
+
+	public List<ProductView> all() {
+		return Collections.unmodifiableList(Arrays.asList(products));
+	}
+
+	public Optional<ProductView> byId(long id) {
+		int position = Arrays.binarySearch(ids, id);
+		return position >= 0 ? Optional.of(products[position]) : Optional.empty();
+	}
+
+	public Optional<ProductView> bySku(String sku) {
+		int position = positionOfSku(sku);
+		return position >= 0 ? Optional.of(products[position]) : Optional.empty();
+	}
+
+	/** Products of the category, matched case-insensitively, in id order. */
+	public List<ProductView> byCategory(String category) {
+		int[] positions = categoryPositions.get(categoryKey(category));
+		return positions != null ? new Positions(products, positions) : List.of();
+	}
+
+	public List<ProductView> sortedByPrice(boolean ascending) {
+		return new Positions(products, ascending ? priceAscending : priceDescending);
+	}
+
+	/** Distinct categories, sorted. */
+	public List<String> categories() {
+		return categories;
+	}
+
+	/**
+	 * Products of the category, if given, whose title or SKU contains the
+	 * search term ignoring case, or whose id is the term, if given; sorted by
+	 * price for {@code asc} or {@code desc}, otherwise in id order.
+	 */
+	public List<ProductView> filter(String category, String searchTerm, String sortOrder) {
+		boolean ascending = "asc".equalsIgnoreCase(sortOrder);
+		boolean descending = "desc".equalsIgnoreCase(sortOrder);
+		boolean byCategory = category != null && !category.isEmpty();
+		boolean bySearchTerm = searchTerm != null && !searchTerm.isEmpty();
+		if (byCategory && !bySearchTerm && !ascending && !descending) {
+			return byCategory(category);
+		}
+		if (!byCategory && !bySearchTerm) {
+			return ascending || descending ? sortedByPrice(ascending) : all();
+		}
+		// Walk the smallest ordering that already has the wanted sort
+		int[] candidates = ascending ? priceAscending
+				: descending ? priceDescending
+						: byCategory ? categoryPositions.getOrDefault(categoryKey(category), new int[0]) : null;
+		String key = byCategory ? categoryKey(category) : null;
+		Long id = bySearchTerm ? parseId(searchTerm) : null;
+		int count = candidates != null ? candidates.length : products.length;
+		int[] matches = new int[count];
+		int matched = 0;
+		for (int i = 0; i < count; i++) {
+			int position = candidates != null ? candidates[i] : i;
+			ProductView product = products[position];
+			if (key != null && !key.equals(categoryKey(product.category()))) {
+				continue;
+			}
+			if (bySearchTerm && !(containsIgnoreCase(product.title(), searchTerm)
+					|| containsIgnoreCase(product.sku(), searchTerm) || (id != null && product.id() == id))) {
+				continue;
+			}
+			matches[matched++] = position;
+		}
+		return new Positions(products, Arrays.copyOf(matches, matched));
+	}
+
+	/**
+	 * A snapshot with the given products replaced or added, matched by SKU, and
+	 * the deleted SKUs removed.
+	 */
+	public CatalogView withChanges(long version, Collection<ProductView> upserts, Collection<String> deletedSkus) {
+		ProductView[] changed = products.clone();
+		List<ProductView> added = new ArrayList<>();
+		boolean reindex = false;
+		for (ProductView upsert : upserts) {
+			int position = positionOfSku(upsert.sku());
+			if (position < 0) {
+				added.add(upsert);
+				reindex = true;
+				continue;
+			}
+			ProductView previous = changed[position];
+			changed[position] = upsert;
+			reindex |= previous.id() != upsert.id() || !Objects.equals(previous.category(), upsert.category())
+					|| !Objects.equals(previous.price(), upsert.price());
+		}
+		Set<String> deleted = new HashSet<>();
+		for (String sku : deletedSkus) {
+			if (positionOfSku(sku) >= 0) {
+				deleted.add(sku);
+			}
+		}
+		if (!reindex && deleted.isEmpty()) {
+			return new CatalogView(generation, version, changed, ids, skuOrder, categoryPositions, priceAscending,
+					priceDescending, categories);
+		}
+		List<ProductView> merged = new ArrayList<>(changed.length + added.size());
+		for (ProductView product : changed) {
+			if (product.sku() == null || !deleted.contains(product.sku())) {
+				merged.add(product);
+			}
+		}
+		merged.addAll(added);
+		return of(generation, version, merged);
+	}
+
+	private int positionOfSku(String sku) {
+		if (sku == null) {
+			return -1;
+		}
+		int low = 0;
+		int high = skuOrder.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = products[skuOrder[mid]].sku().compareTo(sku);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return skuOrder[mid];
+			}
+		}
+		return -1;
+	}
+
+	private static String categoryKey(String category) {
+		return category != null ? category.toLowerCase(Locale.ROOT) : null;
+	}
+
+	private static Long parseId(String searchTerm) {
+		try {
+			return Long.valueOf(searchTerm);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static boolean containsIgnoreCase(String text, String term) {
+		if (text == null) {
+			return false;
+		}
+		for (int i = 0; i <= text.length() - term.length(); i++) {
+			if (text.regionMatches(true, i, term, 0, term.length())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Read-only list of the products at the given positions. */
+	private static final class Positions extends AbstractList<ProductView> implements RandomAccess {
+		private final ProductView[] products;
+		private final int[] positions;
+
+		private Positions(ProductView[] products, int[] positions) {
+			this.products = products;
+			this.positions = positions;
+		}
+
+		@Override
+		public ProductView get(int index) {
+			return products[positions[index]];
+		}
+
+		@Override
+		public int size() {
+			return positions.length;
+		}
+	}
+
+}
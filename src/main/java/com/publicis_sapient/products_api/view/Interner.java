@@ -0,0 +1,59 @@
+package com.publicis_sapient.products_api.view;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out one shared instance per distinct value while a catalog view is
+ * built. Not thread-safe; the pool is dropped with the builder, so only the
+ * values in use stay reachable.
+ */
+public final class Interner {
+
+	private final Map<Object, Object> pool = new HashMap<>();
+
+	@SuppressWarnings("unchecked")
+	public <T> T intern(T value) {
+		if (value == null) {
+			return null;
+		}
+		Object pooled = pool.putIfAbsent(value, value);
+		return pooled != null ? (T) pooled : value;
+	}
+
+	/**
+	 * An immutable copy of the list with interned elements, shared with every
+	 * other product that has the same list.
+	 */
+	public List<String> internAll(List<String> values) {
+		if (values == null) {
+			return null;
+		}
+		String[] interned = new String[values.size()];
+		for (int i = 0; i < interned.length; i++) {
+			interned[i] = intern(values.get(i));
+		}
+		return intern(immutable(interned));
+	}
+
+	/**
+	 * An immutable list over the values. {@code List.of} is the most compact,
+	 * but rejects nulls, which the element collections allow.
+	 */
+	public static List<String> immutable(String[] values) {
+		for (String value : values) {
+			if (value == null) {
+				return Collections.unmodifiableList(Arrays.asList(values));
+			}
+		}
+		return List.of(values);
+	}
+
+	public int size() {
+		return pool.size();
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.publicis_sapient.products_api.view;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Immutable, detached form of a product as it is served. Serializes to the
+ * same JSON as the {@code Product} entity, and can be shared between requests
+ * and threads without a session behind it.
+ */
+public record ProductView(long id, @JsonIgnore long generation, String title, String description, String category,
+		Double price, Double discountPercentage, Double rating, Integer stock, List<String> tags, String brand,
+		String sku, Double weight, Dimensions dimensions, String warrantyInformation, String shippingInformation,
+		String availabilityStatus, String returnPolicy, Integer minimumOrderQuantity, Meta meta, List<String> images,
+		String thumbnail, ReviewSummary reviewSummary) {
+
+	public record Dimensions(Double width, Double height, Double depth) {
+	}
+
+	public record Meta(LocalDateTime createdAt, LocalDateTime updatedAt, String barcode, String qrCode) {
+	}
+
+	public record ReviewSummary(Integer reviewCount, Double averageRating, Integer oneStarReviews,
+			Integer twoStarReviews, Integer threeStarReviews, Integer fourStarReviews, Integer fiveStarReviews,
+			LocalDateTime latestReviewDate) {
+	}
+
+	/**
+	 * The same product with its repetitive values taken from the pool: the
+	 * category, brand and policy texts, tag lists, dimensions, timestamps and
+	 * review summaries that many products share are held once per catalog.
+	 */
+	public ProductView compact(Interner interner) {
+		return new ProductView(id, generation, title, description, interner.intern(category), price,
+				interner.intern(discountPercentage), interner.intern(rating), stock, interner.internAll(tags),
+				interner.intern(brand), sku, interner.intern(weight), interner.intern(dimensions),
+				interner.intern(warrantyInformation), interner.intern(shippingInformation),
+				interner.intern(availabilityStatus), interner.intern(returnPolicy), minimumOrderQuantity,
+				meta == null ? null
+						: new Meta(interner.intern(meta.createdAt()), interner.intern(meta.updatedAt()), meta.barcode(),
+								meta.qrCode()),
+				images == null ? null : Interner.immutable(images.toArray(String[]::new)), thumbnail,
+				interner.intern(reviewSummary));
+	}
+}
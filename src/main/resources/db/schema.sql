@@ -0,0 +1,131 @@
+-- Schema for the "fast" profile, which validates the entity mapping against it
+-- instead of letting Hibernate run ddl-auto=update on every start.
+-- Keep in step with the entities; FastStartupProfileTest fails when they drift.
+
+CREATE SEQUENCE IF NOT EXISTS product_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS product_key_seq START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE IF NOT EXISTS catalog_generation_seq START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE IF NOT EXISTS stock_reservation_seq START WITH 1 INCREMENT BY 1000;
+
+CREATE TABLE IF NOT EXISTS catalog_generation (
+	id BIGINT NOT NULL,
+	status ENUM ('ACTIVE', 'BUILDING', 'FAILED', 'RELEASED', 'RETIRED'),
+	product_count BIGINT,
+	created_at TIMESTAMP(6),
+	activated_at TIMESTAMP(6),
+	retired_at TIMESTAMP(6),
+	PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS catalog_change (
+	version BIGINT GENERATED BY DEFAULT AS IDENTITY,
+	type ENUM ('GENERATION_ACTIVATED', 'PRODUCT_DELETED', 'PRODUCT_UPDATED') NOT NULL,
+	generation BIGINT NOT NULL,
+	sku VARCHAR(255),
+	category_key VARCHAR(255),
+	created_at TIMESTAMP(6),
+	PRIMARY KEY (version)
+);
+
+CREATE TABLE IF NOT EXISTS catalog_change_lock (
+	id INTEGER NOT NULL,
+	PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS catalog_replica (
+	id VARCHAR(255) NOT NULL,
+	applied_version BIGINT,
+	oldest_generation BIGINT,
+	seen_at TIMESTAMP(6),
+	PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS product_key (
+	id BIGINT NOT NULL,
+	sku VARCHAR(255) NOT NULL,
+	PRIMARY KEY (id),
+	CONSTRAINT uk_product_key_sku UNIQUE (sku)
+);
+
+CREATE TABLE IF NOT EXISTS product (
+	id BIGINT NOT NULL,
+	product_id BIGINT,
+	generation BIGINT NOT NULL,
+	title VARCHAR(255),
+	description VARCHAR(1000),
+	category VARCHAR(255),
+	category_key VARCHAR(255),
+	content_hash BIGINT,
+	price FLOAT(53),
+	discount_percentage FLOAT(53),
+	rating FLOAT(53),
+	stock INTEGER,
+	brand VARCHAR(255),
+	sku VARCHAR(255),
+	weight FLOAT(53),
+	width FLOAT(53),
+	height FLOAT(53),
+	depth FLOAT(53),
+	warranty_information VARCHAR(255),
+	shipping_information VARCHAR(255),
+	availability_status VARCHAR(255),
+	return_policy VARCHAR(255),
+	minimum_order_quantity INTEGER,
+	created_at TIMESTAMP(6),
+	updated_at TIMESTAMP(6),
+	barcode VARCHAR(255),
+	qr_code VARCHAR(255),
+	thumbnail VARCHAR(255),
+	review_count INTEGER,
+	average_rating FLOAT(53),
+	one_star_reviews INTEGER,
+	two_star_reviews INTEGER,
+	three_star_reviews INTEGER,
+	four_star_reviews INTEGER,
+	five_star_reviews INTEGER,
+	latest_review_date TIMESTAMP(6),
+	PRIMARY KEY (id),
+	CONSTRAINT uk_product_generation_sku UNIQUE (generation, sku)
+);
+
+CREATE INDEX IF NOT EXISTS idx_product_generation_product_id ON product (generation, product_id);
+
+CREATE TABLE IF NOT EXISTS product_tags (
+	product_id BIGINT NOT NULL,
+	tags VARCHAR(255),
+	CONSTRAINT fk_product_tags_product FOREIGN KEY (product_id) REFERENCES product
+);
+
+CREATE TABLE IF NOT EXISTS product_images (
+	product_id BIGINT NOT NULL,
+	images VARCHAR(255),
+	CONSTRAINT fk_product_images_product FOREIGN KEY (product_id) REFERENCES product
+);
+
+CREATE TABLE IF NOT EXISTS product_reviews (
+	product_id BIGINT NOT NULL,
+	rating INTEGER,
+	comment VARCHAR(255),
+	date TIMESTAMP(6),
+	reviewer_name VARCHAR(255),
+	reviewer_email VARCHAR(255),
+	CONSTRAINT fk_product_reviews_product FOREIGN KEY (product_id) REFERENCES product
+);
+
+CREATE TABLE IF NOT EXISTS product_stock (
+	sku VARCHAR(255) NOT NULL,
+	stock INTEGER NOT NULL,
+	reserved INTEGER NOT NULL,
+	owner VARCHAR(255),
+	lease_until TIMESTAMP(6),
+	handoff_requested BOOLEAN NOT NULL,
+	PRIMARY KEY (sku)
+);
+
+CREATE TABLE IF NOT EXISTS stock_reservation (
+	id BIGINT NOT NULL,
+	sku VARCHAR(255) NOT NULL,
+	quantity INTEGER NOT NULL,
+	created_at TIMESTAMP(6),
+	PRIMARY KEY (id)
+);
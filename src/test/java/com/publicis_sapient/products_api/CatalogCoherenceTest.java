@@ -0,0 +1,220 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.publicis_sapient.products_api.dao.CatalogChangeRepository;
+import com.publicis_sapient.products_api.dao.ProductRepository;
+import com.publicis_sapient.products_api.dto.LoadReport;
+import com.publicis_sapient.products_api.entity.CatalogChange;
+import com.publicis_sapient.products_api.service.CatalogChangeService;
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+import com.publicis_sapient.products_api.service.ProductService;
+import com.publicis_sapient.products_api.view.ProductView;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Two application contexts sharing one file-based H2 database stand in for
+ * two replicas: changes made through one must reach the other's catalog
+ * views.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class CatalogCoherenceTest {
+
+	private static final Path DATABASE_DIRECTORY = Path.of("target", "coherence-test");
+
+	private StubUpstream upstream;
+	private ConfigurableApplicationContext writer;
+	private ConfigurableApplicationContext reader;
+
+	@BeforeAll
+	void startReplicas() throws IOException {
+		deleteDatabase();
+		upstream = new StubUpstream(60);
+		writer = start();
+		reader = start();
+	}
+
+	@AfterAll
+	void stopReplicas() throws IOException {
+		reader.close();
+		writer.close();
+		upstream.close();
+		deleteDatabase();
+	}
+
+	@Test
+	@Order(1)
+	void activationReachesOtherReplica() throws Exception {
+		// The reader builds a view of the empty catalog first
+		assertTrue(reader.getBean(ProductService.class).findAll().isEmpty());
+
+		LoadReport report = writer.getBean(ProductService.class).loadProducts();
+		assertTrue(report.isActivated());
+
+		awaitTrue(() -> reader.getBean(CatalogGenerationService.class).currentGeneration() == report.getGeneration());
+		assertEquals(60, reader.getBean(ProductService.class).findAll().size());
+		assertTrue(reader.getBean(MeterRegistry.class).get("catalog.replica.staleness").timeGauge()
+				.value(TimeUnit.SECONDS) < 5);
+	}
+
+	@Test
+	@Order(2)
+	void productChangeReachesOtherReplicasView() throws Exception {
+		ProductService readerService = reader.getBean(ProductService.class);
+		ProductView product = readerService.findByCategory("laptops").get(0);
+		long generation = reader.getBean(CatalogGenerationService.class).currentGeneration();
+
+		writer.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+			writer.getBean(JdbcTemplate.class).update("UPDATE product SET price = ? WHERE generation = ? AND sku = ?",
+					12345.0, generation, product.sku());
+			ProductChanges.logUpdate(writer.getBean(CatalogChangeRepository.class), generation,
+					product.sku(), product.category());
+		});
+
+		awaitTrue(() -> readerService.findByCategory("laptops").stream()
+				.anyMatch(p -> p.sku().equals(product.sku()) && p.price() == 12345.0));
+		long logged = writer.getBean(CatalogChangeRepository.class).findLatestVersion();
+		awaitTrue(() -> reader.getBean(CatalogChangeService.class).getAppliedVersion() == logged);
+	}
+
+	@Test
+	@Order(3)
+	void changesCommitInVersionOrder() throws Exception {
+		long generation = writer.getBean(CatalogGenerationService.class).currentGeneration();
+		CountDownLatch appended = new CountDownLatch(1);
+		AtomicLong firstCommitting = new AtomicLong();
+		Thread first = new Thread(() -> writer.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+			ProductChanges.logUpdate(writer.getBean(CatalogChangeRepository.class), generation,
+					"SKU-00000001", null);
+			appended.countDown();
+			// A long transaction, such as an activation logging a whole reload
+			sleep(300);
+			firstCommitting.set(System.nanoTime());
+		}));
+		first.start();
+		assertTrue(appended.await(5, TimeUnit.SECONDS));
+
+		// The other replica's append waits for the first to commit instead of overtaking it
+		reader.getBean(TransactionTemplate.class).executeWithoutResult(status -> ProductChanges
+				.logUpdate(reader.getBean(CatalogChangeRepository.class), generation, "SKU-00000002", null));
+		long secondCommitted = System.nanoTime();
+		first.join();
+
+		assertTrue(secondCommitted > firstCommitting.get());
+		assertEquals(List.of("SKU-00000002", "SKU-00000001"), writer.getBean(JdbcTemplate.class)
+				.queryForList("SELECT sku FROM catalog_change ORDER BY version DESC LIMIT 2", String.class));
+	}
+
+	@Test
+	@Order(4)
+	void retiredGenerationOutlivesTheSwitchUntilNoReplicaReadsIt() throws Exception {
+		long previous = writer.getBean(CatalogGenerationService.class).currentGeneration();
+		upstream.catalogSize(40);
+		// A request on the reader still running on the old generation
+		CountDownLatch leased = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		Thread request = new Thread(() -> {
+			try (CatalogGenerationService.Lease lease = reader.getBean(CatalogGenerationService.class).acquire()) {
+				leased.countDown();
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		request.start();
+		assertTrue(leased.await(5, TimeUnit.SECONDS));
+
+		LoadReport report = writer.getBean(ProductService.class).loadProducts();
+		assertTrue(report.isActivated());
+		awaitTrue(() -> reader.getBean(CatalogGenerationService.class).currentGeneration() == report.getGeneration());
+		assertEquals(40, reader.getBean(ProductService.class).findAll().size());
+		// The writer moved on and has reported since, but the reader still reads it
+		writer.getBean(CatalogChangeService.class).heartbeat();
+		assertEquals(60, writer.getBean(ProductRepository.class).countByGeneration(previous));
+
+		done.countDown();
+		request.join();
+		awaitTrue(() -> writer.getBean(ProductRepository.class).countByGeneration(previous) == 0);
+		assertEquals(40, writer.getBean(ProductRepository.class).countByGeneration(report.getGeneration()));
+	}
+
+	@Test
+	@Order(5)
+	void changesAppliedEverywhereArePruned() throws Exception {
+		JdbcTemplate jdbcTemplate = writer.getBean(JdbcTemplate.class);
+		long head = writer.getBean(CatalogChangeRepository.class).findLatestVersion();
+		awaitTrue(() -> reader.getBean(CatalogChangeService.class).getAppliedVersion() == head
+				&& writer.getBean(CatalogChangeService.class).getAppliedVersion() == head);
+		writer.getBean(CatalogChangeService.class).heartbeat();
+		reader.getBean(CatalogChangeService.class).heartbeat();
+
+		assertEquals(0, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM catalog_change WHERE version < ? AND type <> 'GENERATION_ACTIVATED'",
+				Integer.class, head));
+		// The head and the latest activation stay for replicas starting up
+		assertEquals(head, writer.getBean(CatalogChangeRepository.class).findLatestVersion());
+		assertTrue(writer.getBean(CatalogChangeRepository.class)
+				.findFirstByTypeOrderByVersionDesc(CatalogChange.Type.GENERATION_ACTIVATED).isPresent());
+	}
+
+	private ConfigurableApplicationContext start() {
+		String url = "jdbc:h2:file:" + DATABASE_DIRECTORY.toAbsolutePath().resolve("catalog");
+		return new SpringApplicationBuilder(ProductsApiApplication.class).run("--spring.main.web-application-type=none",
+				"--spring.datasource.url=" + url, "--external.api.products=" + upstream.url(),
+				"--catalog.load-on-startup=false", "--catalog.changes.poll-interval=100ms",
+				"--catalog.replica.heartbeat-interval=1h", "--spring.jpa.show-sql=false");
+	}
+
+	private static void deleteDatabase() throws IOException {
+		if (Files.exists(DATABASE_DIRECTORY)) {
+			try (Stream<Path> files = Files.walk(DATABASE_DIRECTORY)) {
+				for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+					Files.delete(file);
+				}
+			}
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+			Thread.sleep(50);
+		}
+	}
+
+}
@@ -0,0 +1,263 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.publicis_sapient.products_api.dao.CatalogChangeRepository;
+import com.publicis_sapient.products_api.service.CatalogExportService;
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+import com.publicis_sapient.products_api.service.CatalogViewService;
+import com.publicis_sapient.products_api.service.ProductService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"catalog.load-on-startup=false", "spring.datasource.url=jdbc:h2:mem:export",
+		"catalog.changes.poll-interval=100ms", "export.directory=target/export-test" })
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CatalogExportTest {
+
+	private static StubUpstream upstream;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private CatalogGenerationService generationService;
+
+	@Autowired
+	private CatalogChangeRepository changeRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private CatalogViewService viewService;
+
+	@Autowired
+	private TaskExecutor taskExecutor;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@DynamicPropertySource
+	static void upstreamProperties(DynamicPropertyRegistry registry) throws Exception {
+		upstream = new StubUpstream(20);
+		registry.add("external.api.products", upstream::url);
+	}
+
+	@AfterAll
+	static void stopUpstream() {
+		upstream.close();
+	}
+
+	@BeforeAll
+	void loadCatalog() {
+		assertTrue(productService.loadProducts().isActivated());
+	}
+
+	@Test
+	void servesTheCatalogAsGzipNdjsonWithSendfile() throws Exception {
+		HttpResponse<byte[]> response = get("ndjson");
+		assertEquals(200, response.statusCode());
+		assertEquals("application/gzip", response.headers().firstValue("Content-Type").orElseThrow());
+		assertEquals("bytes", response.headers().firstValue("Accept-Ranges").orElseThrow());
+		assertTrue(response.headers().firstValue("Content-Disposition").orElseThrow().contains(".ndjson.gz"));
+
+		List<String> lines = gunzip(response.body());
+		assertEquals(20, lines.size());
+		JsonNode first = objectMapper.readTree(lines.get(0));
+		assertEquals("SKU-00000001", first.get("sku").asText());
+		assertFalse(first.has("generation"));
+		// Served by Tomcat from the file, not through the servlet
+		assertTrue(meterRegistry.get("catalog.export.sent").tag("transfer", "sendfile").counter().count() > 0);
+
+		settle(response.headers().firstValue("ETag").orElseThrow());
+	}
+
+	@Test
+	void servesCsv() throws Exception {
+		HttpResponse<byte[]> response = get("csv");
+		assertEquals(200, response.statusCode());
+		List<String> lines = gunzip(response.body());
+		assertEquals(21, lines.size());
+		assertTrue(lines.get(0).startsWith("id,sku,title,"));
+		assertTrue(lines.get(1).contains(",SKU-00000001,"));
+		assertEquals(400, get("xml").statusCode());
+	}
+
+	@Test
+	void resumesAnInterruptedDownloadAcrossACatalogChange() throws Exception {
+		settle(get("ndjson").headers().firstValue("ETag").orElseThrow());
+		HttpResponse<byte[]> full = get("ndjson");
+		String etag = full.headers().firstValue("ETag").orElseThrow();
+		int length = full.body().length;
+
+		HttpResponse<byte[]> tail = get("ndjson", "Range", "bytes=100-", "If-Range", etag);
+		assertEquals(206, tail.statusCode());
+		assertEquals("bytes 100-" + (length - 1) + "/" + length,
+				tail.headers().firstValue("Content-Range").orElseThrow());
+		assertArrayEquals(Arrays.copyOfRange(full.body(), 100, length), tail.body());
+
+		// A product change moves the catalog to a new version, and a new dump
+		changeProduct("SKU-00000005", 1.0);
+		String changed = etag;
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (changed.equals(etag) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(100);
+			changed = get("ndjson").headers().firstValue("ETag").orElseThrow();
+		}
+		assertNotEquals(etag, changed, "no new export within 10s");
+
+		// The download started on the old dump still resumes from it
+		HttpResponse<byte[]> resumed = get("ndjson", "Range", "bytes=100-", "If-Range", etag);
+		assertEquals(206, resumed.statusCode());
+		assertEquals(etag, resumed.headers().firstValue("ETag").orElseThrow());
+		assertArrayEquals(tail.body(), resumed.body());
+
+		// Without a matching If-Range the whole current dump is sent
+		HttpResponse<byte[]> restarted = get("ndjson", "Range", "bytes=100-", "If-Range", "\"unknown\"");
+		assertEquals(200, restarted.statusCode());
+		assertEquals(changed, restarted.headers().firstValue("ETag").orElseThrow());
+		assertEquals(20, gunzip(restarted.body()).size());
+
+		assertEquals(416, get("ndjson", "Range", "bytes=" + (length * 10) + "-").statusCode());
+	}
+
+	@Test
+	void expiredDumpsAreKeptWhileATransferReadsThem() throws Exception {
+		Path base = Path.of("target", "export-test");
+		Path otherInstance = Files.createDirectories(base).resolve("catalog-other-instance.ndjson.gz");
+		Files.writeString(otherInstance, "not ours");
+		// Replaced dumps expire at once
+		CatalogExportService exports = new CatalogExportService(generationService, viewService, objectMapper,
+				taskExecutor, meterRegistry, base, Duration.ZERO);
+		try {
+			CatalogExportService.Export first = exports.current(CatalogExportService.Format.NDJSON);
+			CatalogExportService.Export second;
+			try (CatalogExportService.Transfer transfer = exports.startTransfer(first)) {
+				second = nextDump(exports, first, 2.0);
+				assertTrue(exports.find(first.etag()).isEmpty());
+				// Expired, but still being read
+				CatalogExportService.Export third = nextDump(exports, second, 3.0);
+				assertTrue(Files.exists(first.path()));
+				second = third;
+			}
+			nextDump(exports, second, 4.0);
+			assertFalse(Files.exists(first.path()));
+		} finally {
+			exports.deleteDirectory();
+		}
+		assertTrue(Files.exists(otherInstance));
+	}
+
+	@Test
+	void expiredDumpsAreKeptForTheContainerAfterAHandOff() throws Exception {
+		CatalogExportService exports = new CatalogExportService(generationService, viewService, objectMapper,
+				taskExecutor, meterRegistry, Path.of("target", "export-test"), Duration.ZERO);
+		try {
+			CatalogExportService.Export first = exports.current(CatalogExportService.Format.NDJSON);
+			// As with sendfile: the request returns, and closes the transfer, before the file is opened
+			try (CatalogExportService.Transfer transfer = exports.startTransfer(first)) {
+				transfer.handOff();
+			}
+			CatalogExportService.Export second = nextDump(exports, first, 5.0);
+			nextDump(exports, second, 6.0);
+			assertTrue(exports.find(first.etag()).isEmpty());
+			assertTrue(Files.exists(first.path()));
+		} finally {
+			exports.deleteDirectory();
+		}
+	}
+
+	/** Waits until earlier changes are no longer on their way into a new dump. */
+	private void settle(String etag) throws Exception {
+		long deadline = System.currentTimeMillis() + 10_000;
+		HttpResponse<byte[]> revalidated;
+		while ((revalidated = get("ndjson", "If-None-Match", etag)).statusCode() != 304) {
+			assertTrue(System.currentTimeMillis() < deadline, "dump did not settle within 10s");
+			etag = revalidated.headers().firstValue("ETag").orElseThrow();
+		}
+	}
+
+	/** Changes a product and waits for the dump that follows from it. */
+	private CatalogExportService.Export nextDump(CatalogExportService exports, CatalogExportService.Export previous,
+			double price) throws InterruptedException {
+		changeProduct("SKU-00000007", price);
+		long deadline = System.currentTimeMillis() + 10_000;
+		CatalogExportService.Export export = previous;
+		while (export.etag().equals(previous.etag())) {
+			assertTrue(System.currentTimeMillis() < deadline, "no new export within 10s");
+			Thread.sleep(50);
+			export = exports.current(CatalogExportService.Format.NDJSON);
+		}
+		return export;
+	}
+
+	private void changeProduct(String sku, double price) {
+		long generation = generationService.currentGeneration();
+		transactionTemplate.executeWithoutResult(status -> {
+			jdbcTemplate.update("UPDATE product SET price = ? WHERE generation = ? AND sku = ?", price, generation,
+					sku);
+			ProductChanges.logUpdate(changeRepository, generation, sku, null);
+		});
+	}
+
+	private HttpResponse<byte[]> get(String format, String... headers) throws Exception {
+		HttpRequest.Builder request = HttpRequest
+				.newBuilder(URI.create("http://localhost:" + port + "/api/v1/products/export?format=" + format));
+		if (headers.length > 0) {
+			request.headers(headers);
+		}
+		return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	private static List<String> gunzip(byte[] body) throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(new ByteArrayInputStream(body)), StandardCharsets.UTF_8))) {
+			return reader.lines().toList();
+		}
+	}
+
+}
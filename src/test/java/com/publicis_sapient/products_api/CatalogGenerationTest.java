@@ -0,0 +1,220 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.publicis_sapient.products_api.dao.CatalogGenerationRepository;
+import com.publicis_sapient.products_api.dao.ProductRepository;
+import com.publicis_sapient.products_api.dto.LoadReport;
+import com.publicis_sapient.products_api.entity.CatalogChange;
+import com.publicis_sapient.products_api.entity.CatalogGeneration;
+import com.publicis_sapient.products_api.search.SuggestIndex;
+import com.publicis_sapient.products_api.service.CatalogChangesAppliedEvent;
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+import com.publicis_sapient.products_api.service.CatalogReleasedEvent;
+import com.publicis_sapient.products_api.service.CatalogViewService;
+import com.publicis_sapient.products_api.service.ProductSearchService;
+import com.publicis_sapient.products_api.service.ProductService;
+import com.publicis_sapient.products_api.service.ProductSuggestService;
+import com.publicis_sapient.products_api.view.CatalogView;
+import com.publicis_sapient.products_api.view.ProductView;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@SpringBootTest(properties = { "catalog.load-on-startup=false",
+		"resilience4j.retry.instances.productApi.waitDuration=10ms",
+		"spring.datasource.url=jdbc:h2:mem:generations" })
+class CatalogGenerationTest {
+
+	private static StubUpstream upstream;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private CatalogGenerationService generationService;
+
+	@Autowired
+	private ProductRepository repository;
+
+	@Autowired
+	private CatalogGenerationRepository generationRepository;
+
+	@Autowired
+	private ProductSearchService searchService;
+
+	@Autowired
+	private ProductSuggestService suggestService;
+
+	@Autowired
+	private CatalogViewService viewService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@DynamicPropertySource
+	static void upstreamProperties(DynamicPropertyRegistry registry) throws Exception {
+		upstream = new StubUpstream(120);
+		registry.add("external.api.products", upstream::url);
+	}
+
+	@AfterAll
+	static void stopUpstream() {
+		upstream.close();
+	}
+
+	@Test
+	void testReadersKeepTheirGenerationUntilTheyFinish() throws Exception {
+		upstream.catalogSize(120);
+		LoadReport first = productService.loadProducts();
+		assertTrue(first.isActivated());
+		assertEquals(120, productService.findAll().size());
+
+		upstream.catalogSize(80);
+		try (CatalogGenerationService.Lease reader = generationService.acquire()) {
+			assertEquals(first.getGeneration(), reader.generation());
+
+			LoadReport second = productService.loadProducts();
+			assertTrue(second.isActivated());
+			assertEquals(second.getGeneration(), generationService.currentGeneration());
+
+			// The in-flight reader still sees the complete old catalog
+			assertEquals(120, productService.findAll().size());
+			assertEquals(120, repository.countByGeneration(first.getGeneration()));
+		}
+
+		// New readers see the new catalog, and the old rows go once the reader is done
+		assertEquals(80, productService.findAll().size());
+		awaitTrue(() -> repository.countByGeneration(first.getGeneration()) == 0);
+		awaitTrue(() -> generationRepository.findById(first.getGeneration()).orElseThrow()
+				.getStatus() == CatalogGeneration.Status.RELEASED);
+	}
+
+	@Test
+	void testProductsKeepTheirIdsAcrossGenerations() {
+		upstream.catalogSize(50);
+		assertTrue(productService.loadProducts().isActivated());
+		ProductView before = productService.findBySku("SKU-00000042").orElseThrow();
+
+		upstream.catalogSize(60);
+		LoadReport reload = productService.loadProducts();
+		assertTrue(reload.isActivated());
+
+		ProductView after = productService.findById(before.id()).orElseThrow();
+		assertEquals(reload.getGeneration(), after.generation());
+		assertEquals("SKU-00000042", after.sku());
+		assertEquals(60, productService.findAll().stream().map(ProductView::id).distinct().count());
+	}
+
+	@Test
+	void testSearchIndexesFollowTheActivatedGeneration() throws Exception {
+		upstream.catalogSize(120);
+		LoadReport report = productService.loadProducts();
+		assertTrue(report.isActivated());
+
+		awaitTrue(() -> searchService.getIndex().generation() == report.getGeneration());
+		assertEquals(120, searchService.getIndex().size());
+		List<ProductView> results = searchService.search("Samsung smartphnes", 5);
+		assertEquals(5, results.size());
+		assertEquals("Samsung", results.get(0).brand());
+		assertEquals("smartphones", results.get(0).category());
+		assertTrue(results.stream().allMatch(p -> p.generation() == report.getGeneration()));
+
+		awaitTrue(() -> suggestService.getIndex().generation() == report.getGeneration());
+		List<SuggestIndex.Suggestion> suggestions = suggestService.suggest("sam", 3);
+		assertEquals(new SuggestIndex.Suggestion("Samsung", SuggestIndex.Type.BRAND, 5 + (float) Math.log10(11)),
+				suggestions.get(0));
+		assertEquals(SuggestIndex.Type.TITLE, suggestions.get(1).type());
+		assertEquals("SKU-00000049", suggestService.suggest("sku-0000004", 1).get(0).text());
+	}
+
+	@Test
+	void testFailedLoadLeavesCurrentGenerationInPlace() throws Exception {
+		upstream.catalogSize(50);
+		LoadReport good = productService.loadProducts();
+		assertTrue(good.isActivated());
+
+		upstream.failEveryNth(1);
+		try {
+			LoadReport failed = productService.loadProducts();
+			assertEquals(LoadReport.Status.FAILED, failed.getStatus());
+			assertFalse(failed.isActivated());
+		} finally {
+			upstream.failEveryNth(0);
+		}
+
+		assertEquals(good.getGeneration(), generationService.currentGeneration());
+		assertEquals(50, productService.findAll().size());
+	}
+
+	@Test
+	void testConcurrentReadersShareOneViewBuildAndKeepChangesMadeMeanwhile() throws Exception {
+		upstream.catalogSize(60);
+		LoadReport report = productService.loadProducts();
+		assertTrue(report.isActivated());
+		long generation = report.getGeneration();
+		viewService.view(generation);
+		viewService.onCatalogReleased(new CatalogReleasedEvent(generation));
+		Timer builds = meterRegistry.get("catalog.view.build").timer();
+		long built = builds.count();
+
+		jdbcTemplate.update("UPDATE product SET price = 4321.0 WHERE generation = ? AND sku = 'SKU-00000007'",
+				generation);
+		CatalogChange change = new CatalogChange(CatalogChange.Type.PRODUCT_UPDATED, generation, "SKU-00000007",
+				null);
+		// Past anything logged, so no view reflects it yet
+		change.setVersion(Long.MAX_VALUE);
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService readers = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<CatalogView>> views = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				views.add(readers.submit(() -> {
+					start.await();
+					return viewService.view(generation);
+				}));
+			}
+			start.countDown();
+			// Lands before, during or after the build, and is kept either way
+			viewService.onChangesApplied(new CatalogChangesAppliedEvent(List.of(change)));
+			CatalogView first = views.get(0).get(10, TimeUnit.SECONDS);
+			for (Future<CatalogView> view : views) {
+				assertSame(first, view.get(10, TimeUnit.SECONDS));
+			}
+		} finally {
+			readers.shutdownNow();
+		}
+		assertEquals(built + 1, builds.count());
+		assertEquals(4321.0, viewService.view(generation).bySku("SKU-00000007").orElseThrow().price());
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met in time");
+			Thread.sleep(50);
+		}
+	}
+
+}
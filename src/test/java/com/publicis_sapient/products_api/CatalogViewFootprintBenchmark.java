@@ -0,0 +1,140 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.publicis_sapient.products_api.entity.Product;
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+import com.publicis_sapient.products_api.service.CatalogReleasedEvent;
+import com.publicis_sapient.products_api.service.CatalogViewService;
+import com.publicis_sapient.products_api.service.ProductIngestionPipeline;
+import com.publicis_sapient.products_api.service.ProductService;
+import com.publicis_sapient.products_api.view.ProductView;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Heap retained by the catalog as Hibernate entities, with their tags and
+ * images loaded, against the same catalog as a catalog view. Run with
+ * {@code mvn test -Pbenchmark}; size with {@code -Dbenchmark.viewSize=...}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = { "catalog.load-on-startup=false", "spring.jpa.show-sql=false",
+		"spring.datasource.url=jdbc:h2:mem:viewbenchmark" })
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CatalogViewFootprintBenchmark {
+
+	private static final int CATALOG_SIZE = Integer.getInteger("benchmark.viewSize", 100_000);
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ProductIngestionPipeline pipeline;
+
+	@Autowired
+	private CatalogGenerationService generationService;
+
+	@Autowired
+	private CatalogViewService viewService;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private long generation;
+
+	@BeforeAll
+	void loadCatalog() {
+		generation = generationService.startBuild();
+		pipeline.run("benchmark", sink -> {
+			for (int start = 1; start <= CATALOG_SIZE; start += 1_000) {
+				sink.accept(IntStream.range(start, Math.min(start + 1_000, CATALOG_SIZE + 1))
+						.mapToObj(StubUpstream::product).toList());
+			}
+		}, dto -> {
+			Product product = productService.convertToEntity(dto);
+			product.setGeneration(generation);
+			return product;
+		});
+		generationService.activate(generation, CATALOG_SIZE);
+	}
+
+	@Test
+	void benchmarkRetainedHeap() throws InterruptedException {
+		// Wait for the view built on the switch, so nothing is building behind the measurements
+		while (meterRegistry.get("catalog.views").gauge().value() == 0) {
+			Thread.sleep(100);
+		}
+		List<ProductView> view;
+		try (CatalogGenerationService.Lease lease = generationService.acquire()) {
+			view = viewService.view(lease.generation()).all();
+		}
+		long start = System.nanoTime();
+		List<Product> entities = loadEntities();
+		long entityMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertEquals(CATALOG_SIZE, entities.size());
+		assertEquals(CATALOG_SIZE, view.size());
+
+		// Dropped one at a time once everything is read, so the database's own
+		// page cache is the same on both sides of each measurement
+		long withBoth = usedHeap();
+		entities = null;
+		long withView = usedHeap();
+		view = null;
+		eventPublisher.publishEvent(new CatalogReleasedEvent(generation));
+		long withNeither = usedHeap();
+
+		System.out.printf("%n[benchmark] retained heap for %d products, per 100k%n", CATALOG_SIZE);
+		System.out.printf("[benchmark]   entities     %6.1f MB  (loaded in %d ms)%n",
+				perHundredThousand(withBoth - withView), entityMillis);
+		System.out.printf("[benchmark]   catalog view %6.1f MB%n", perHundredThousand(withView - withNeither));
+	}
+
+	/** Every product with its element collections, detached. */
+	private List<Product> loadEntities() {
+		return transactionTemplate.execute(status -> {
+			List<Product> products = entityManager
+					.createQuery("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.tags WHERE p.generation = :g",
+							Product.class)
+					.setParameter("g", generation).getResultList();
+			entityManager
+					.createQuery("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.images WHERE p.generation = :g",
+							Product.class)
+					.setParameter("g", generation).getResultList();
+			return products;
+		});
+	}
+
+	private static double perHundredThousand(long bytes) {
+		return bytes * (100_000.0 / CATALOG_SIZE) / (1024 * 1024);
+	}
+
+	private static long usedHeap() {
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.publicis_sapient.products_api.view.CatalogView;
+import com.publicis_sapient.products_api.view.Interner;
+import com.publicis_sapient.products_api.view.ProductView;
+
+class CatalogViewTest {
+
+	private CatalogView view;
+
+	@BeforeEach
+	void buildView() {
+		view = CatalogView.of(1, 10, List.of(product(3, "SKU-3", "Laptops", "Gaming Laptop", 900.0),
+				product(1, "SKU-1", "laptops", "Office Laptop", 500.0),
+				product(2, "SKU-2", "smartphones", "Galaxy Phone", 700.0),
+				product(4, "SKU-4", "smartphones", "Budget Phone", 500.0)));
+	}
+
+	@Test
+	void looksUpByIdSkuAndCategory() {
+		assertEquals(List.of(1L, 2L, 3L, 4L), ids(view.all()));
+		assertEquals("Gaming Laptop", view.byId(3).orElseThrow().title());
+		assertEquals(2, view.bySku("SKU-2").orElseThrow().id());
+		assertTrue(view.byId(5).isEmpty());
+		assertTrue(view.bySku("SKU-9").isEmpty());
+		assertEquals(List.of(1L, 3L), ids(view.byCategory("LAPTOPS")));
+		assertTrue(view.byCategory("tablets").isEmpty());
+		assertEquals(List.of("Laptops", "laptops", "smartphones"), view.categories());
+	}
+
+	@Test
+	void sortsByPriceKeepingIdOrderForTies() {
+		assertEquals(List.of(1L, 4L, 2L, 3L), ids(view.sortedByPrice(true)));
+		assertEquals(List.of(3L, 2L, 1L, 4L), ids(view.sortedByPrice(false)));
+	}
+
+	@Test
+	void filtersLikeTheQueryItReplaces() {
+		assertEquals(List.of(3L, 1L), ids(view.filter("laptops", null, "desc")));
+		assertEquals(List.of(2L, 4L), ids(view.filter(null, "PHONE", null)));
+		assertEquals(List.of(4L, 2L), ids(view.filter("smartphones", "phone", "asc")));
+		assertEquals(List.of(3L), ids(view.filter(null, "sku-3", null)));
+		assertEquals(List.of(4L), ids(view.filter(null, "4", null)));
+		assertTrue(view.filter(null, "%", null).isEmpty());
+		assertEquals(ids(view.all()), ids(view.filter(null, null, null)));
+	}
+
+	@Test
+	void appliesChangesAsANewSnapshot() {
+		CatalogView restocked = view.withChanges(11,
+				List.of(new ProductView(2, 1, "Galaxy Phone", null, "smartphones", 700.0, null, null, 0, null, null,
+						"SKU-2", null, null, null, null, null, null, null, null, null, null, null)),
+				List.of());
+		assertEquals(0, restocked.bySku("SKU-2").orElseThrow().stock());
+		assertEquals(11, restocked.version());
+		assertNull(view.bySku("SKU-2").orElseThrow().stock());
+
+		CatalogView changed = view.withChanges(12, List.of(product(1, "SKU-1", "laptops", "Office Laptop", 950.0),
+				product(5, "SKU-5", "tablets", "Tablet", 300.0)), List.of("SKU-3", "SKU-9"));
+		assertEquals(List.of(1L, 2L, 4L, 5L), ids(changed.all()));
+		assertEquals(List.of(5L, 4L, 2L, 1L), ids(changed.sortedByPrice(true)));
+		assertEquals(List.of(5L), ids(changed.byCategory("tablets")));
+		assertEquals(List.of(1L), ids(changed.byCategory("laptops")));
+		assertEquals(List.of(1L, 3L), ids(view.byCategory("laptops")));
+	}
+
+	@Test
+	void compactingSharesRepeatedValues() {
+		Interner interner = new Interner();
+		ProductView first = product(1, "SKU-1", new String("laptops"), "Office Laptop", 500.0).compact(interner);
+		ProductView second = product(2, "SKU-2", new String("laptops"), "Gaming Laptop", 900.0).compact(interner);
+
+		assertSame(first.category(), second.category());
+		assertSame(first.tags(), second.tags());
+		assertSame(first.dimensions(), second.dimensions());
+		assertEquals(List.of("laptops", "sale"), second.tags());
+		assertThrows(UnsupportedOperationException.class, () -> second.tags().add("new"));
+	}
+
+	private static ProductView product(long id, String sku, String category, String title, Double price) {
+		return new ProductView(id, 1, title, null, category, price, null, null, null,
+				new ArrayList<>(List.of(new String(category.toLowerCase()), "sale")), null, sku, null,
+				new ProductView.Dimensions(10.0, 20.0, 5.0), null, null, null, null, null, null, List.of(), null,
+				null);
+	}
+
+	private static List<Long> ids(List<ProductView> products) {
+		return products.stream().map(ProductView::id).toList();
+	}
+
+}
@@ -0,0 +1,154 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.publicis_sapient.products_api.dao.CatalogChangeRepository;
+import com.publicis_sapient.products_api.entity.CatalogChange;
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+import com.publicis_sapient.products_api.service.ProductService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * A subscriber that never reads must not hold up the others, even with a
+ * single sender thread, and is disconnected once its connection stays full.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"catalog.load-on-startup=false", "spring.datasource.url=jdbc:h2:mem:slowsubscriber",
+		"catalog.changes.poll-interval=100ms", "changes.stream.send-threads=1",
+		"changes.stream.heartbeat-interval=100ms", "changes.stream.send-timeout=1s" })
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ChangeStreamSlowSubscriberTest {
+
+	private static final int CHANGES = 5000;
+
+	private static StubUpstream upstream;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private CatalogGenerationService generationService;
+
+	@Autowired
+	private CatalogChangeRepository changeRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@DynamicPropertySource
+	static void upstreamProperties(DynamicPropertyRegistry registry) throws Exception {
+		upstream = new StubUpstream(20);
+		registry.add("external.api.products", upstream::url);
+	}
+
+	@AfterAll
+	static void stopUpstream() {
+		upstream.close();
+	}
+
+	@Test
+	void subscriberThatNeverReadsDoesNotHoldUpTheOthers() throws Exception {
+		assertTrue(productService.loadProducts().isActivated());
+		long generation = generationService.currentGeneration();
+
+		try (Socket stuck = new Socket()) {
+			// Subscribes and never reads a byte
+			stuck.setReceiveBufferSize(1024);
+			stuck.connect(new InetSocketAddress("localhost", port));
+			stuck.getOutputStream().write(("GET /api/v1/products/changes HTTP/1.1\r\nHost: localhost:" + port
+					+ "\r\nAccept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			stuck.getOutputStream().flush();
+			awaitTrue(() -> subscribers() == 1, "the stuck subscriber did not subscribe");
+
+			HttpResponse<InputStream> response = HttpClient.newHttpClient().send(
+					HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/products/changes"))
+							.header("Accept", "text/event-stream").build(),
+					HttpResponse.BodyHandlers.ofInputStream());
+			assertEquals(200, response.statusCode());
+			AtomicLong received = new AtomicLong();
+			Thread reader = new Thread(() -> countEvents(response.body(), received), "sse-reader");
+			reader.setDaemon(true);
+			reader.start();
+			awaitTrue(() -> subscribers() == 2, "the live subscriber did not subscribe");
+
+			// Far more than the stuck connection's buffers hold
+			transactionTemplate.executeWithoutResult(status -> {
+				changeRepository.lockForAppend();
+				for (int i = 0; i < CHANGES; i++) {
+					changeRepository.save(new CatalogChange(CatalogChange.Type.PRODUCT_UPDATED, generation,
+							String.format("SKU-%08d", i % 20 + 1), null));
+				}
+			});
+
+			awaitTrue(() -> received.get() == CHANGES,
+					() -> "the live subscriber received " + received.get() + " of " + CHANGES + " changes");
+			awaitTrue(() -> meterRegistry.counter("changes.stream.stalled").count() == 1,
+					"the stuck subscriber was not disconnected");
+			assertEquals(1, subscribers());
+			response.body().close();
+		}
+	}
+
+	private double subscribers() {
+		return meterRegistry.get("changes.stream.subscribers").gauge().value();
+	}
+
+	private static void countEvents(InputStream body, AtomicLong received) {
+		try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+			for (String line; (line = lines.readLine()) != null;) {
+				if (line.startsWith("id:")) {
+					received.incrementAndGet();
+				}
+			}
+		} catch (IOException e) {
+			// Closed by the test
+		}
+	}
+
+	private static void awaitTrue(BooleanSupplier condition, String message) throws InterruptedException {
+		awaitTrue(condition, () -> message);
+	}
+
+	private static void awaitTrue(BooleanSupplier condition, Supplier<String> message)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, message);
+			Thread.sleep(20);
+		}
+	}
+
+}
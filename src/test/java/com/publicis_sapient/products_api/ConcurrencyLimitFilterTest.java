@@ -0,0 +1,221 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.publicis_sapient.products_api.limiter.AimdLimiter;
+import com.publicis_sapient.products_api.limiter.ConcurrencyLimitFilter;
+import com.publicis_sapient.products_api.limiter.ConcurrencyLimitFilter.EndpointGroup;
+import com.publicis_sapient.products_api.limiter.StaleResponseCache;
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+class ConcurrencyLimitFilterTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	private CatalogGenerationService generationService;
+	private ConcurrencyLimitFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		generationService = mock(CatalogGenerationService.class);
+		when(generationService.currentGeneration()).thenReturn(1L);
+		filter = filter("1m");
+	}
+
+	private ConcurrencyLimitFilter filter(String staleMaxAge) {
+		meterRegistry = new SimpleMeterRegistry();
+		MockEnvironment environment = new MockEnvironment().withProperty("limiter.initial-limit", "2")
+				.withProperty("limiter.min-limit", "1").withProperty("limiter.max-limit", "4")
+				.withProperty("limiter.retry-after", "3s").withProperty("limiter.stale.max-age", staleMaxAge);
+		return new ConcurrencyLimitFilter(environment, meterRegistry,
+				new ObjectMapper().registerModule(new JavaTimeModule()), generationService);
+	}
+
+	@Test
+	void limiterGrowsWhenBusyAndBacksOffOnSlowOrFailedRequests() {
+		AimdLimiter limiter = new AimdLimiter("test", 4, 1, 6, Duration.ofMillis(100), 0.5);
+
+		assertTrue(limiter.tryAcquire());
+		assertTrue(limiter.tryAcquire());
+		limiter.release(TimeUnit.MILLISECONDS.toNanos(5), false);
+		assertEquals(5, limiter.getLimit());
+
+		// An idle limiter is not evidence of spare capacity
+		limiter.release(TimeUnit.MILLISECONDS.toNanos(5), false);
+		assertEquals(5, limiter.getLimit());
+
+		assertTrue(limiter.tryAcquire());
+		limiter.release(TimeUnit.MILLISECONDS.toNanos(500), false);
+		assertEquals(2, limiter.getLimit());
+
+		assertTrue(limiter.tryAcquire());
+		limiter.release(TimeUnit.MILLISECONDS.toNanos(5), true);
+		assertEquals(1, limiter.getLimit());
+
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+		assertEquals(1, limiter.getRejected());
+	}
+
+	@Test
+	void rejectsWithRetryAfterWhenSaturatedAndNothingStale() throws Exception {
+		saturate(EndpointGroup.LIST);
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(get("/api/v1/products"), response, new MockFilterChain(ok("[]")));
+
+		assertEquals(503, response.getStatus());
+		assertEquals("3", response.getHeader("Retry-After"));
+		assertTrue(response.getContentAsString().contains("\"status\":503"));
+		assertEquals(1.0, meterRegistry.get("products.concurrency.rejected").tag("group", "list").functionCounter()
+				.count());
+	}
+
+	@Test
+	void servesLastGoodResponseWhenSaturated() throws Exception {
+		MockHttpServletResponse fresh = new MockHttpServletResponse();
+		filter.doFilter(get("/api/v1/products/7"), fresh, new MockFilterChain(ok("{\"id\":7}")));
+		assertEquals(200, fresh.getStatus());
+		assertEquals("{\"id\":7}", fresh.getContentAsString());
+
+		saturate(EndpointGroup.DETAIL);
+
+		MockHttpServletResponse stale = new MockHttpServletResponse();
+		filter.doFilter(get("/api/v1/products/7"), stale, new MockFilterChain(ok("{\"id\":-1}")));
+		assertEquals(200, stale.getStatus());
+		assertEquals("{\"id\":7}", stale.getContentAsString());
+		assertEquals("application/json", stale.getContentType());
+		assertEquals(fresh.getHeader("ETag"), stale.getHeader("ETag"));
+		assertNotNull(stale.getHeader("Warning"));
+		assertNotNull(stale.getHeader("Age"));
+		assertEquals(1.0, meterRegistry.get("products.concurrency.stale").tag("group", "detail").counter().count());
+
+		// Other groups keep their own budget
+		MockHttpServletResponse categories = new MockHttpServletResponse();
+		filter.doFilter(get("/api/v1/products/categories"), categories, new MockFilterChain(ok("[]")));
+		assertEquals(200, categories.getStatus());
+	}
+
+	@Test
+	void copiesAResponseOnlyWhenTheHeldOneIsDueForReplacement() throws Exception {
+		filter.doFilter(get("/api/v1/products/7"), new MockHttpServletResponse(), new MockFilterChain(ok("{\"id\":7}")));
+		// Well within the max age: served, not copied
+		MockHttpServletResponse uncopied = new MockHttpServletResponse();
+		filter.doFilter(get("/api/v1/products/7"), uncopied, new MockFilterChain(ok("{\"id\":8}")));
+		assertEquals("{\"id\":8}", uncopied.getContentAsString());
+
+		// A new generation replaces it at once
+		when(generationService.currentGeneration()).thenReturn(2L);
+		filter.doFilter(get("/api/v1/products/7"), new MockHttpServletResponse(), new MockFilterChain(ok("{\"id\":9}")));
+
+		saturate(EndpointGroup.DETAIL);
+		MockHttpServletResponse stale = new MockHttpServletResponse();
+		filter.doFilter(get("/api/v1/products/7"), stale, new MockFilterChain(ok("{\"id\":-1}")));
+		assertEquals("{\"id\":9}", stale.getContentAsString());
+	}
+
+	@Test
+	void doesNotReplayResponsesFromAnEarlierGeneration() throws Exception {
+		filter.doFilter(get("/api/v1/products/7"), new MockHttpServletResponse(), new MockFilterChain(ok("{\"id\":7}")));
+		saturate(EndpointGroup.DETAIL);
+
+		when(generationService.currentGeneration()).thenReturn(2L);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(get("/api/v1/products/7"), response, new MockFilterChain(ok("{\"id\":-1}")));
+		assertEquals(503, response.getStatus());
+	}
+
+	@Test
+	void doesNotReplayResponsesPastTheMaxAge() throws Exception {
+		filter = filter("100ms");
+		filter.doFilter(get("/api/v1/products/7"), new MockHttpServletResponse(), new MockFilterChain(ok("{\"id\":7}")));
+		saturate(EndpointGroup.DETAIL);
+
+		Thread.sleep(150);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(get("/api/v1/products/7"), response, new MockFilterChain(ok("{\"id\":-1}")));
+		assertEquals(503, response.getStatus());
+		assertEquals(0, meterRegistry.get("products.concurrency.stale.bytes").gauge().value());
+	}
+
+	@Test
+	void staleResponsesAreBoundedByTotalBytes() {
+		StaleResponseCache cache = new StaleResponseCache(1000, 400);
+
+		cache.put("/a", new byte[300], "application/json", Map.of("ETag", List.of("\"a\"")), 1);
+		cache.put("/b", new byte[300], "application/json", Map.of(), 1);
+		cache.put("/too-large", new byte[500], "application/json", Map.of(), 1);
+		assertEquals(2, cache.size());
+		assertNotNull(cache.get("/a"));
+
+		// Over the total, the least recently used goes first
+		cache.put("/c", new byte[300], "application/json", Map.of(), 1);
+		cache.put("/d", new byte[300], "application/json", Map.of(), 1);
+		assertNull(cache.get("/b"));
+		assertNotNull(cache.get("/a"));
+		assertTrue(cache.bytes() <= 1000, "held " + cache.bytes());
+	}
+
+	@Test
+	void leavesWritesAndUnknownPathsAlone() throws Exception {
+		saturate(EndpointGroup.LIST);
+
+		MockHttpServletRequest load = get("/api/v1/products/load");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(load, response, new MockFilterChain(ok("{}")));
+		assertEquals(200, response.getStatus());
+
+		MockHttpServletRequest post = new MockHttpServletRequest("POST", "/api/v1/products");
+		response = new MockHttpServletResponse();
+		filter.doFilter(post, response, new MockFilterChain(ok("{}")));
+		assertEquals(200, response.getStatus());
+	}
+
+	private void saturate(EndpointGroup group) {
+		AimdLimiter limiter = filter.getLimiter(group);
+		// Hold every slot, as long-running requests would
+		for (int i = limiter.getLimit(); i > 0; i--) {
+			assertTrue(limiter.tryAcquire());
+		}
+		assertEquals(limiter.getLimit(), limiter.getInFlight());
+	}
+
+	private static MockHttpServletRequest get(String uri) {
+		return new MockHttpServletRequest("GET", uri);
+	}
+
+	private static HttpServlet ok(String body) {
+		return new HttpServlet() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void service(HttpServletRequest request, HttpServletResponse response)
+					throws java.io.IOException {
+				response.setContentType("application/json");
+				response.setHeader("ETag", "\"" + body.hashCode() + "\"");
+				response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+			}
+		};
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Starts the "fast" profile, whose ddl-auto=validate fails the context when
+ * db/schema.sql and the entities disagree.
+ */
+@SpringBootTest(properties = { "catalog.load-on-startup=false", "spring.datasource.url=jdbc:h2:mem:faststartup" })
+@ActiveProfiles("fast")
+class FastStartupProfileTest {
+
+	@Autowired
+	private ConfigurableListableBeanFactory beanFactory;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void schemaMatchesEntities() {
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Long.class));
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM catalog_generation", Long.class));
+	}
+
+	@Test
+	void onlyReadPathBeansAreEager() {
+		assertFalse(beanFactory.getBeanDefinition("productController").isLazyInit());
+		assertFalse(beanFactory.getBeanDefinition("productService").isLazyInit());
+		assertFalse(beanFactory.getBeanDefinition("catalogGenerationService").isLazyInit());
+		assertTrue(beanFactory.getBeanDefinition("modelMapper").isLazyInit());
+		assertTrue(beanFactory.getBeanDefinition("productIngestionPipeline").isLazyInit());
+	}
+
+}
@@ -0,0 +1,198 @@
+package com.publicis_sapient.products_api;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Open-model HTTP load generator. Requests are issued on a fixed schedule
+ * whether or not earlier ones have completed, and response time is measured
+ * from each request's intended start, so a stalled server shows up in the
+ * percentiles instead of silently slowing the generator down (coordinated
+ * omission).
+ */
+class LoadGenerator {
+
+	private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+	/** One kind of request in the traffic mix, picked with the given weight. */
+	record Operation(String name, int weight, Function<SplittableRandom, String> path) {
+	}
+
+	static class OperationStats {
+		final Histogram responseTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+		final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+		final LongAdder ok = new LongAdder();
+		final LongAdder shed = new LongAdder();
+		final LongAdder errors = new LongAdder();
+
+		long count() {
+			return ok.sum() + shed.sum() + errors.sum();
+		}
+	}
+
+	static class Results {
+		final Map<String, OperationStats> byOperation = new LinkedHashMap<>();
+		final OperationStats all = new OperationStats();
+		final AtomicLong maxDispatchLagNanos = new AtomicLong();
+		final Map<Integer, LongAdder> statuses = new ConcurrentSkipListMap<>();
+		long scheduled;
+		long unfinished;
+		long elapsedNanos;
+	}
+
+	private final HttpClient client;
+	private final String baseUrl;
+	private final List<Operation> operations;
+	private final int totalWeight;
+	private final Duration requestTimeout;
+
+	LoadGenerator(HttpClient client, String baseUrl, List<Operation> operations, Duration requestTimeout) {
+		this.client = client;
+		this.baseUrl = baseUrl;
+		this.operations = operations;
+		this.totalWeight = operations.stream().mapToInt(Operation::weight).sum();
+		this.requestTimeout = requestTimeout;
+	}
+
+	Results run(double requestsPerSecond, Duration duration, long seed) throws InterruptedException {
+		Results results = new Results();
+		for (Operation operation : operations) {
+			results.byOperation.put(operation.name(), new OperationStats());
+		}
+
+		SplittableRandom random = new SplittableRandom(seed);
+		long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+		long total = duration.toNanos() / intervalNanos;
+		AtomicLong completed = new AtomicLong();
+		long start = System.nanoTime();
+
+		for (long i = 0; i < total; i++) {
+			long intendedStart = start + i * intervalNanos;
+			long wait;
+			while ((wait = intendedStart - System.nanoTime()) > 0) {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			}
+			results.maxDispatchLagNanos.accumulateAndGet(System.nanoTime() - intendedStart, Math::max);
+
+			Operation operation = pick(random);
+			OperationStats stats = results.byOperation.get(operation.name());
+			HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + operation.path().apply(random)))
+					.timeout(requestTimeout).header("Accept-Encoding", "gzip").GET().build();
+
+			long sentAt = System.nanoTime();
+			client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+				long now = System.nanoTime();
+				int status = error == null ? response.statusCode() : -1;
+				record(stats, results.all, now - intendedStart, now - sentAt, status);
+				results.statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+				completed.incrementAndGet();
+			});
+		}
+		results.scheduled = total;
+
+		long deadline = System.nanoTime() + requestTimeout.toNanos() * 2;
+		while (completed.get() < total && System.nanoTime() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+		results.unfinished = total - completed.get();
+		results.elapsedNanos = System.nanoTime() - start;
+		return results;
+	}
+
+	private Operation pick(SplittableRandom random) {
+		int ticket = random.nextInt(totalWeight);
+		for (Operation operation : operations) {
+			ticket -= operation.weight();
+			if (ticket < 0) {
+				return operation;
+			}
+		}
+		throw new IllegalStateException("Empty traffic mix");
+	}
+
+	private static void record(OperationStats stats, OperationStats all, long responseNanos, long serviceNanos,
+			int status) {
+		for (OperationStats target : new OperationStats[] { stats, all }) {
+			target.responseTime.recordValue(Math.min(responseNanos, HIGHEST_TRACKABLE_NANOS));
+			target.serviceTime.recordValue(Math.min(serviceNanos, HIGHEST_TRACKABLE_NANOS));
+			if (status >= 200 && status < 400) {
+				target.ok.increment();
+			} else if (status == 503) {
+				target.shed.increment();
+			} else {
+				target.errors.increment();
+			}
+		}
+	}
+
+	/**
+	 * Writes {@code report.txt}, a fixed-width summary meant to be diffed
+	 * between builds, {@code report.csv} with the same numbers, and one
+	 * HdrHistogram percentile distribution per operation.
+	 */
+	static void writeReport(Results results, Map<String, Object> settings, Path directory) throws IOException {
+		Files.createDirectories(directory);
+		double elapsedSeconds = results.elapsedNanos / 1e9;
+
+		try (PrintStream text = new PrintStream(Files.newOutputStream(directory.resolve("report.txt")), true, "UTF-8");
+				PrintStream csv = new PrintStream(Files.newOutputStream(directory.resolve("report.csv")), true,
+						"UTF-8")) {
+			text.println("# Products API load test");
+			settings.forEach((name, value) -> text.printf("# %s=%s%n", name, value));
+			text.printf("# scheduled=%d unfinished=%d max-dispatch-lag-ms=%.1f%n", results.scheduled,
+					results.unfinished, results.maxDispatchLagNanos.get() / 1e6);
+			text.printf("# statuses %s (-1 = no response)%n", results.statuses);
+			text.println("# Latencies in ms, measured from each request's intended start time");
+			text.printf("%-12s %8s %8s %6s %6s %9s %9s %9s %9s %9s %9s%n", "operation", "count", "ok", "shed",
+					"errors", "p50", "p99", "p999", "max", "svc-p99", "req/s");
+			csv.println("operation,count,ok,shed,errors,p50_ms,p99_ms,p999_ms,max_ms,service_p99_ms,throughput_rps");
+
+			Map<String, OperationStats> rows = new LinkedHashMap<>(results.byOperation);
+			rows.put("ALL", results.all);
+			for (Map.Entry<String, OperationStats> row : rows.entrySet()) {
+				OperationStats stats = row.getValue();
+				Histogram response = stats.responseTime;
+				double throughput = stats.ok.sum() / elapsedSeconds;
+				text.printf("%-12s %8d %8d %6d %6d %9.2f %9.2f %9.2f %9.2f %9.2f %9.1f%n", row.getKey(),
+						stats.count(), stats.ok.sum(), stats.shed.sum(), stats.errors.sum(), millis(response, 50),
+						millis(response, 99), millis(response, 99.9), response.getMaxValue() / 1e6,
+						millis(stats.serviceTime, 99), throughput);
+				csv.printf("%s,%d,%d,%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%.1f%n", row.getKey(), stats.count(),
+						stats.ok.sum(), stats.shed.sum(), stats.errors.sum(), millis(response, 50),
+						millis(response, 99), millis(response, 99.9), response.getMaxValue() / 1e6,
+						millis(stats.serviceTime, 99), throughput);
+
+				try (PrintStream hgrm = new PrintStream(
+						new GZIPOutputStream(Files.newOutputStream(directory.resolve(row.getKey() + ".hgrm.gz"))),
+						true, "UTF-8")) {
+					response.outputPercentileDistribution(hgrm, 1e6);
+				}
+			}
+		}
+	}
+
+	private static double millis(Histogram histogram, double percentile) {
+		return histogram.getValueAtPercentile(percentile) / 1e6;
+	}
+
+}
@@ -0,0 +1,218 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.publicis_sapient.products_api.dao.CatalogChangeRepository;
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+import com.publicis_sapient.products_api.service.ProductService;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"catalog.load-on-startup=false", "spring.datasource.url=jdbc:h2:mem:changes",
+		"catalog.changes.poll-interval=100ms", "changes.stream.ring-capacity=32" })
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ProductChangeStreamTest {
+
+	private static StubUpstream upstream;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private CatalogGenerationService generationService;
+
+	@Autowired
+	private CatalogChangeRepository changeRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@DynamicPropertySource
+	static void upstreamProperties(DynamicPropertyRegistry registry) throws Exception {
+		upstream = new StubUpstream(20);
+		registry.add("external.api.products", upstream::url);
+	}
+
+	@AfterAll
+	static void stopUpstream() {
+		upstream.close();
+	}
+
+	@Test
+	void streamsReloadDiffsAndProductWritesAndAsksLaggardsToResync() throws Exception {
+		try (Stream live = open(null)) {
+			assertTrue(productService.loadProducts().isActivated());
+			List<Event> loaded = live.take(20);
+			Set<String> skus = new HashSet<>();
+			for (Event event : loaded) {
+				assertEquals("upsert", event.name);
+				skus.add(event.data.get("sku").asText());
+			}
+			assertEquals(20, skus.size());
+			JsonNode first = loaded.get(0).data;
+			assertEquals(first.get("version").asLong(), loaded.get(0).id);
+			assertEquals(first.get("sku").asText(), first.get("product").get("sku").asText());
+
+			// A write path: a product corrected in place is logged with its change
+			long generation = generationService.currentGeneration();
+			transactionTemplate.executeWithoutResult(status -> {
+				jdbcTemplate.update("UPDATE product SET stock = 1 WHERE generation = ? AND sku = ?", generation,
+						"SKU-00000003");
+				ProductChanges.logUpdate(changeRepository, generation, "SKU-00000003", null);
+			});
+			Event reserved = live.take(1).get(0);
+			assertEquals("SKU-00000003", reserved.data.get("sku").asText());
+			assertEquals(1, reserved.data.get("product").get("stock").asInt());
+
+			// A reload streams only the difference: the feed resets the stock and drops one product
+			upstream.catalogSize(19);
+			assertTrue(productService.loadProducts().isActivated());
+			List<Event> reloaded = live.take(2);
+			assertEquals("upsert", reloaded.get(0).name);
+			assertEquals("SKU-00000003", reloaded.get(0).data.get("sku").asText());
+			assertEquals(3, reloaded.get(0).data.get("product").get("stock").asInt());
+			assertEquals("delete", reloaded.get(1).name);
+			assertEquals("SKU-00000020", reloaded.get(1).data.get("sku").asText());
+			assertFalse(reloaded.get(1).data.has("product"));
+
+			// Resuming picks up right after the given version
+			try (Stream resumed = open(reserved.id)) {
+				List<Event> replayed = resumed.take(2);
+				assertEquals(reloaded.get(0).id, replayed.get(0).id);
+				assertEquals(reloaded.get(1).id, replayed.get(1).id);
+			}
+
+			// More changes than the ring holds arrive at once
+			upstream.catalogSize(60);
+			assertTrue(productService.loadProducts().isActivated());
+			Event resync = live.take(1).get(0);
+			assertEquals("resync", resync.name);
+			assertTrue(resync.data.get("version").asLong() > reloaded.get(1).id);
+			assertNull(live.next(), "stream should end after a resync");
+
+			try (Stream stale = open(reserved.id)) {
+				assertEquals("resync", stale.take(1).get(0).name);
+			}
+		}
+	}
+
+	private Stream open(Long lastEventId) throws Exception {
+		HttpRequest.Builder request = HttpRequest
+				.newBuilder(URI.create("http://localhost:" + port + "/api/v1/products/changes"))
+				.header("Accept", "text/event-stream");
+		if (lastEventId != null) {
+			request.header("Last-Event-ID", lastEventId.toString());
+		}
+		HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+		assertEquals(200, response.statusCode());
+		return new Stream(response.body());
+	}
+
+	private record Event(long id, String name, JsonNode data) {
+	}
+
+	/** Parses server-sent events on a background thread. */
+	private final class Stream implements AutoCloseable {
+		private static final Event END = new Event(-1, null, null);
+
+		private final InputStream body;
+		private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+
+		private Stream(InputStream body) {
+			this.body = body;
+			Thread reader = new Thread(this::read, "sse-reader");
+			reader.setDaemon(true);
+			reader.start();
+		}
+
+		private void read() {
+			try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+				long id = -1;
+				String name = "message";
+				StringBuilder data = new StringBuilder();
+				for (String line; (line = lines.readLine()) != null;) {
+					if (line.isEmpty()) {
+						if (!data.isEmpty()) {
+							events.add(new Event(id, name, objectMapper.readTree(data.toString())));
+						}
+						id = -1;
+						name = "message";
+						data.setLength(0);
+					} else if (line.startsWith("id:")) {
+						id = Long.parseLong(line.substring(3).trim());
+					} else if (line.startsWith("event:")) {
+						name = line.substring(6).trim();
+					} else if (line.startsWith("data:")) {
+						data.append(line.substring(5));
+					}
+				}
+			} catch (IOException e) {
+				// Closed by the test
+			} finally {
+				events.add(END);
+			}
+		}
+
+		private Event next() throws InterruptedException {
+			Event event = events.poll(10, TimeUnit.SECONDS);
+			assertNotNull(event, "no event within 10s");
+			return event == END ? null : event;
+		}
+
+		private List<Event> take(int count) throws InterruptedException {
+			List<Event> taken = new ArrayList<>();
+			while (taken.size() < count) {
+				Event event = next();
+				assertNotNull(event, "stream ended after " + taken.size() + " events");
+				taken.add(event);
+			}
+			return taken;
+		}
+
+		@Override
+		public void close() throws IOException {
+			body.close();
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.publicis_sapient.products_api;
+
+import java.util.Locale;
+
+import com.publicis_sapient.products_api.dao.CatalogChangeRepository;
+import com.publicis_sapient.products_api.entity.CatalogChange;
+
+/**
+ * Logs a product written in place, as a write path outside catalog loads
+ * would. Joins the caller's transaction, so the entry commits with the
+ * change.
+ */
+final class ProductChanges {
+
+	private ProductChanges() {
+	}
+
+	static void logUpdate(CatalogChangeRepository changeRepository, long generation, String sku, String category) {
+		changeRepository.lockForAppend();
+		String categoryKey = category != null ? category.toLowerCase(Locale.ROOT) : null;
+		changeRepository.save(new CatalogChange(CatalogChange.Type.PRODUCT_UPDATED, generation, sku, categoryKey));
+	}
+}
@@ -1,15 +1,31 @@
 package com.publicis_sapient.products_api;
 
-import com.publicis_sapient.products_api.entity.Product;
+import com.publicis_sapient.products_api.dto.ReviewPage;
+import com.publicis_sapient.products_api.dto.StockLevel;
+import com.publicis_sapient.products_api.entity.Review;
+import com.publicis_sapient.products_api.search.SuggestIndex;
+import com.publicis_sapient.products_api.service.CatalogExportService;
+import com.publicis_sapient.products_api.service.ChangeStreamService;
+import com.publicis_sapient.products_api.service.ProductImportService;
+import com.publicis_sapient.products_api.service.ProductSearchService;
+import com.publicis_sapient.products_api.service.ProductSuggestService;
 import com.publicis_sapient.products_api.service.ProductService;
+import com.publicis_sapient.products_api.service.StockService;
+import com.publicis_sapient.products_api.view.ProductView;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import java.util.Arrays;
 import java.util.List;
@@ -25,6 +41,27 @@ class ProductControllerTest {
 	@Mock
 	private ProductService productService;
 
+	@Mock
+	private ProductSearchService searchService;
+
+	@Mock
+	private ProductSuggestService suggestService;
+
+	@Mock
+	private StockService stockService;
+
+	@Mock
+	private ChangeStreamService changeStreamService;
+
+	@Mock
+	private CatalogExportService exportService;
+
+	@Mock
+	private ProductImportService importService;
+
+	@Spy
+	private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
 	@InjectMocks
 	private ProductController productController;
 
@@ -36,55 +73,81 @@ class ProductControllerTest {
 	@SuppressWarnings("null")
 	@Test
 	void testGetProducts() {
-		Product product = new Product();
-		product.setId(1L);
-		product.setTitle("Test Product");
-
-		List<Product> products = Arrays.asList(product);
+		List<ProductView> products = Arrays.asList(product(1L, "Test Product", null, null, null));
 
 		when(productService.findAll()).thenReturn(products);
 
-		ResponseEntity<List<Product>> response = productController.getProducts(null, null, null);
+		ResponseEntity<List<ProductView>> response = productController.getProducts(null, null, null, null, 20);
 
 		assertEquals(HttpStatus.OK, response.getStatusCode());
 		assertEquals(1, response.getBody().size());
-		assertEquals("Test Product", response.getBody().get(0).getTitle());
+		assertEquals("Test Product", response.getBody().get(0).title());
 	}
 
 	@SuppressWarnings("null")
 	@Test
 	void testGetProductsByCategory() {
 		String category = "Electronics";
-		Product product = new Product();
-		product.setId(1L);
-		product.setCategory(category);
-		product.setTitle("Test Product");
-
-		List<Product> products = Arrays.asList(product);
+		List<ProductView> products = Arrays.asList(product(1L, "Test Product", category, null, null));
 
 		when(productService.findByCategory(category)).thenReturn(products);
 
-		ResponseEntity<List<Product>> response = productController.getProducts(category, null, null);
+		ResponseEntity<List<ProductView>> response = productController.getProducts(category, null, null, null, 20);
 
 		assertEquals(HttpStatus.OK, response.getStatusCode());
 		assertEquals(1, response.getBody().size());
-		assertEquals(category, response.getBody().get(0).getCategory());
+		assertEquals(category, response.getBody().get(0).category());
+	}
+
+	@SuppressWarnings("null")
+	@Test
+	void testSearchProducts() {
+		when(searchService.search("laptop", 10)).thenReturn(List.of(product(1L, "Gaming Laptop", null, null, null)));
+
+		ResponseEntity<List<ProductView>> response = productController.getProducts(null, null, null, "laptop", 10);
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("Gaming Laptop", response.getBody().get(0).title());
+	}
+
+	@Test
+	void testSearchProducts_InvalidRequest() {
+		assertEquals(HttpStatus.BAD_REQUEST, productController.getProducts(null, null, null, " ", 10).getStatusCode());
+		assertEquals(HttpStatus.BAD_REQUEST,
+				productController.getProducts("laptops", null, null, "laptop", 10).getStatusCode());
+		assertEquals(HttpStatus.BAD_REQUEST, productController.getProducts(null, null, null, "laptop", 0).getStatusCode());
+		verifyNoInteractions(searchService);
+	}
+
+	@SuppressWarnings("null")
+	@Test
+	void testSuggest() {
+		when(suggestService.suggest("sam", 5))
+				.thenReturn(List.of(new SuggestIndex.Suggestion("Samsung", SuggestIndex.Type.BRAND, 6f)));
+
+		ResponseEntity<List<SuggestIndex.Suggestion>> response = productController.suggest("sam", 5);
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("Samsung", response.getBody().get(0).text());
+	}
+
+	@Test
+	void testSuggest_InvalidRequest() {
+		assertEquals(HttpStatus.BAD_REQUEST, productController.suggest(" ", 5).getStatusCode());
+		assertEquals(HttpStatus.BAD_REQUEST, productController.suggest("sam", 21).getStatusCode());
+		verifyNoInteractions(suggestService);
 	}
 
 	@SuppressWarnings("null")
 	@Test
 	void testGetProductById() {
 		Long id = 1L;
-		Product product = new Product();
-		product.setId(id);
-		product.setTitle("Test Product");
+		when(productService.findById(id)).thenReturn(Optional.of(product(id, "Test Product", null, null, null)));
 
-		when(productService.findById(id)).thenReturn(Optional.of(product));
-
-		ResponseEntity<Product> response = productController.getById(id);
+		ResponseEntity<ProductView> response = productController.getById(id);
 
 		assertEquals(HttpStatus.OK, response.getStatusCode());
-		assertEquals("Test Product", response.getBody().getTitle());
+		assertEquals("Test Product", response.getBody().title());
 	}
 
 	@Test
@@ -93,25 +156,46 @@ class ProductControllerTest {
 
 		when(productService.findById(id)).thenReturn(Optional.empty());
 
-		ResponseEntity<Product> response = productController.getById(id);
+		ResponseEntity<ProductView> response = productController.getById(id);
 
 		assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
 	}
 
+	@SuppressWarnings("null")
+	@Test
+	void testGetReviews() {
+		Review review = new Review();
+		review.setRating(5);
+		ReviewPage page = new ReviewPage(List.of(review), 1, 1, 3, 3);
+
+		when(productService.findReviews(1L, 1, 1)).thenReturn(Optional.of(page));
+
+		ResponseEntity<ReviewPage> response = productController.getReviews(1L, 1, 1);
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals(3, response.getBody().getTotalReviews());
+		assertEquals(5, response.getBody().getReviews().get(0).getRating());
+	}
+
+	@Test
+	void testGetReviews_InvalidOrNotFound() {
+		when(productService.findReviews(999L, 0, 20)).thenReturn(Optional.empty());
+
+		assertEquals(HttpStatus.NOT_FOUND, productController.getReviews(999L, 0, 20).getStatusCode());
+		assertEquals(HttpStatus.BAD_REQUEST, productController.getReviews(1L, -1, 20).getStatusCode());
+		assertEquals(HttpStatus.BAD_REQUEST, productController.getReviews(1L, 0, 101).getStatusCode());
+	}
+
 	@SuppressWarnings("null")
 	@Test
 	void testGetProductBySku() {
 		String sku = "SKU123";
-		Product product = new Product();
-		product.setSku(sku);
-		product.setTitle("Test Product");
+		when(productService.findBySku(sku)).thenReturn(Optional.of(product(1L, "Test Product", null, sku, null)));
 
-		when(productService.findBySku(sku)).thenReturn(Optional.of(product));
-
-		ResponseEntity<Product> response = productController.getBySku(sku);
+		ResponseEntity<ProductView> response = productController.getBySku(sku);
 
 		assertEquals(HttpStatus.OK, response.getStatusCode());
-		assertEquals(sku, response.getBody().getSku());
+		assertEquals(sku, response.getBody().sku());
 	}
 
 	@Test
@@ -120,39 +204,105 @@ class ProductControllerTest {
 
 		when(productService.findBySku(sku)).thenReturn(Optional.empty());
 
-		ResponseEntity<Product> response = productController.getBySku(sku);
+		ResponseEntity<ProductView> response = productController.getBySku(sku);
 
 		assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
 	}
 
-	@SuppressWarnings("null")
 	@Test
-	void testGetSortedByPrice() {
-		Product product1 = new Product();
-		product1.setId(1L);
-		product1.setTitle("Product 1");
-		product1.setPrice(20.0);
+	void testReserveStock() throws Exception {
+		when(stockService.reserve("SKU-1", 2)).thenReturn(new StockLevel("SKU-1", 8, 1L));
+
+		ResponseEntity<StockLevel> response = productController.reserveStock("SKU-1", 2);
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals(8, response.getBody().getAvailable());
+	}
+
+	@Test
+	void testReserveStock_InvalidQuantity() throws Exception {
+		assertEquals(HttpStatus.BAD_REQUEST, productController.reserveStock("SKU-1", 0).getStatusCode());
+		assertEquals(HttpStatus.BAD_REQUEST, productController.releaseStock("SKU-1", 1L, -1).getStatusCode());
+		verifyNoInteractions(stockService);
+	}
+
+	@Test
+	void testStreamChanges_ResumesFromLastEventId() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		when(changeStreamService.subscribe(42L, request, response)).thenReturn(true);
+
+		productController.streamChanges(7L, "42", request, response);
+
+		verify(changeStreamService).subscribe(42L, request, response);
+		assertEquals(HttpStatus.OK.value(), response.getStatus());
+	}
 
-		Product product2 = new Product();
-		product2.setId(2L);
-		product2.setTitle("Product 2");
-		product2.setPrice(30.0);
+	@Test
+	void testStreamChanges_InvalidVersion() throws Exception {
+		MockHttpServletResponse negative = new MockHttpServletResponse();
+		productController.streamChanges(-1L, null, new MockHttpServletRequest(), negative);
+		MockHttpServletResponse malformed = new MockHttpServletResponse();
+		productController.streamChanges(null, "abc", new MockHttpServletRequest(), malformed);
+
+		assertEquals(HttpStatus.BAD_REQUEST.value(), negative.getStatus());
+		assertEquals(HttpStatus.BAD_REQUEST.value(), malformed.getStatus());
+		verifyNoInteractions(changeStreamService);
+	}
+
+	@Test
+	void testStreamChanges_SubscriberLimitReached() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		when(changeStreamService.subscribe(null, request, response)).thenReturn(false);
+
+		productController.streamChanges(null, null, request, response);
 
-		List<Product> products = Arrays.asList(product1, product2);
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+		assertEquals("5", response.getHeader("Retry-After"));
+	}
+
+	@Test
+	void testGetImportProgress_NoImportYet() {
+		when(importService.progress()).thenReturn(Optional.empty());
+
+		assertEquals(HttpStatus.NO_CONTENT, productController.getImportProgress().getStatusCode());
+	}
+
+	@Test
+	void testExportCatalog_InvalidFormat() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		productController.exportCatalog("xml", null, null, null, new MockHttpServletRequest(), response);
+
+		assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+		verifyNoInteractions(exportService);
+	}
+
+	@SuppressWarnings("null")
+	@Test
+	void testGetSortedByPrice() {
+		List<ProductView> products = Arrays.asList(product(1L, "Product 1", null, null, 20.0),
+				product(2L, "Product 2", null, null, 30.0));
 
 		when(productService.sortByPrice("asc")).thenReturn(products);
 
-		ResponseEntity<List<Product>> response = productController.getSortedByPrice("asc");
+		ResponseEntity<List<ProductView>> response = productController.getSortedByPrice("asc");
 
 		assertEquals(HttpStatus.OK, response.getStatusCode());
 		assertEquals(2, response.getBody().size());
-		assertEquals("Product 1", response.getBody().get(0).getTitle());
+		assertEquals("Product 1", response.getBody().get(0).title());
 	}
 
 	@Test
 	void testGetSortedByPrice_InvalidDirection() {
-		ResponseEntity<List<Product>> response = productController.getSortedByPrice("invalid");
+		ResponseEntity<List<ProductView>> response = productController.getSortedByPrice("invalid");
 
 		assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
 	}
+
+	private static ProductView product(long id, String title, String category, String sku, Double price) {
+		return new ProductView(id, 1, title, null, category, price, null, null, null, List.of(), null, sku, null, null,
+				null, null, null, null, null, null, List.of(), null, null);
+	}
 }
@@ -0,0 +1,125 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.publicis_sapient.products_api.client.ProductFeedClient;
+import com.publicis_sapient.products_api.dto.ProductDTO;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+
+class ProductFeedClientTest {
+
+	private StubUpstream upstream;
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+	@BeforeEach
+	void setUp() throws Exception {
+		upstream = new StubUpstream(1000);
+	}
+
+	@AfterEach
+	void tearDown() {
+		upstream.close();
+	}
+
+	private ProductFeedClient client(int pageSize, int maxInFlight, Duration readTimeout) {
+		RetryRegistry retryRegistry = RetryRegistry
+				.of(RetryConfig.custom().maxAttempts(3).waitDuration(Duration.ofMillis(10)).build());
+		return new ProductFeedClient(HttpClient.newHttpClient(), objectMapper, retryRegistry,
+				CircuitBreakerRegistry.ofDefaults(), upstream.url(), pageSize, maxInFlight, readTimeout);
+	}
+
+	@Test
+	void testFetchAllPagesInFeedOrder() {
+		upstream.latencyMillis(20);
+
+		List<ProductDTO> products = client(50, 4, Duration.ofSeconds(5)).fetchAll().join();
+
+		assertEquals(1000, products.size());
+		for (int i = 0; i < products.size(); i++) {
+			assertEquals(i + 1, products.get(i).getId());
+		}
+		assertEquals(20, upstream.requests());
+		assertTrue(upstream.maxInFlight() > 1, "pages should be fetched concurrently");
+		assertTrue(upstream.maxInFlight() <= 4, "in-flight limit exceeded: " + upstream.maxInFlight());
+		assertEquals(20, upstream.gzipResponses());
+	}
+
+	@Test
+	void testFollowsPageSizeCappedByFeed() {
+		upstream.maxPageSize(30);
+
+		List<ProductDTO> products = client(100, 2, Duration.ofSeconds(5)).fetchAll().join();
+
+		assertEquals(1000, products.size());
+		assertEquals(1000, products.get(999).getId());
+	}
+
+	@Test
+	void testRetriesFailedPagesIndividually() {
+		upstream.failFirstAttempts(1);
+
+		List<ProductDTO> products = client(100, 4, Duration.ofSeconds(5)).fetchAll().join();
+
+		assertEquals(1000, products.size());
+		assertEquals(10, upstream.failures());
+		for (int skip = 0; skip < 1000; skip += 100) {
+			assertEquals(2, upstream.attempts(skip), "page at skip " + skip);
+		}
+	}
+
+	@Test
+	void testHandsPagesToTheCallingThreadWithoutRunningAhead() throws Exception {
+		Thread caller = Thread.currentThread();
+		List<ProductDTO> products = new ArrayList<>();
+		ProductFeedClient client = client(50, 2, Duration.ofSeconds(5));
+
+		int total = client.fetchInto(page -> {
+			assertSame(caller, Thread.currentThread());
+			// A slow sink holds the fetch back: one page per chain, plus the first
+			assertTrue(upstream.requests() <= products.size() / 50 + 3, "fetched ahead: " + upstream.requests());
+			products.addAll(page);
+			sleep(20);
+		});
+
+		assertEquals(1000, total);
+		assertEquals(1000, products.size());
+		assertEquals(20, upstream.requests());
+	}
+
+	@Test
+	void testFailsWhenPageKeepsTimingOut() {
+		upstream.latencyMillis(500);
+
+		CompletionException failure = assertThrows(CompletionException.class,
+				() -> client(100, 4, Duration.ofMillis(100)).fetchAll().join());
+
+		assertNotNull(failure.getCause());
+		assertEquals(3, upstream.attempts(0));
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.FileSystemUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streams a large NDJSON file through the import endpoint and reports
+ * throughput and the peak heap used on the way. Run with a low heap to show
+ * the file is never held in memory:
+ * {@code mvn test -Pbenchmark -Dtest=ProductImportBenchmark -Dbenchmark.heap=128m};
+ * size the file with {@code -Dbenchmark.importBytes=...} (2 GB by default).
+ *
+ * The database is file-backed so the imported rows do not count against the
+ * heap either. The file ends with an invalid row, and none are tolerated,
+ * which keeps the generation from being activated: building the read model
+ * for millions of products is not what is measured here.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"catalog.load-on-startup=false", "spring.jpa.show-sql=false", "spring.jpa.properties.hibernate.format_sql=false",
+		"import.max-rejected-rows=0" })
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ProductImportBenchmark {
+
+	private static final long FILE_BYTES = Long.getLong("benchmark.importBytes", 2L * 1024 * 1024 * 1024);
+	private static final Path DIRECTORY = Path.of("target", "import-benchmark");
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private Path file;
+	private long rows;
+
+	@DynamicPropertySource
+	static void databaseProperties(DynamicPropertyRegistry registry) throws IOException {
+		FileSystemUtils.deleteRecursively(DIRECTORY);
+		Files.createDirectories(DIRECTORY);
+		registry.add("spring.datasource.url", () -> "jdbc:h2:file:./" + DIRECTORY.resolve("db"));
+	}
+
+	@BeforeAll
+	void writeFile() throws IOException {
+		file = DIRECTORY.resolve("catalog.ndjson");
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+			long written = 0;
+			while (written < FILE_BYTES) {
+				byte[] line = objectMapper.writeValueAsBytes(StubUpstream.product((int) ++rows));
+				out.write(line);
+				out.write('\n');
+				written += line.length + 1;
+			}
+			out.write("{\"title\":\"No SKU\"}\n".getBytes());
+			rows++;
+		}
+	}
+
+	@AfterAll
+	void deleteFile() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	void benchmarkImport() throws Exception {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		System.gc();
+		long baseline = memory.getHeapMemoryUsage().getUsed();
+		AtomicLong peak = new AtomicLong(baseline);
+		Thread sampler = new Thread(() -> {
+			while (!Thread.currentThread().isInterrupted()) {
+				peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}, "heap-sampler");
+		sampler.setDaemon(true);
+		sampler.start();
+
+		long start = System.nanoTime();
+		HttpResponse<String> response = HttpClient.newHttpClient().send(
+				HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/products/import"))
+						.header("Content-Type", "application/x-ndjson").POST(HttpRequest.BodyPublishers.ofFile(file))
+						.build(),
+				HttpResponse.BodyHandlers.ofString());
+		long elapsed = System.nanoTime() - start;
+		sampler.interrupt();
+
+		assertEquals(422, response.statusCode(), response.body());
+		JsonNode report = objectMapper.readTree(response.body());
+		assertEquals(rows, report.get("productsRead").asLong());
+		assertEquals(rows - 1, report.get("productsSaved").asLong());
+		assertEquals(rows, report.get("rejectedRows").get(0).get("row").asLong());
+
+		double seconds = elapsed / 1e9;
+		long size = Files.size(file);
+		System.out.printf("%n[benchmark] imported %d products, %.0f MB, in %d s with a %d MB heap%n", rows - 1,
+				size / 1e6, TimeUnit.NANOSECONDS.toSeconds(elapsed), memory.getHeapMemoryUsage().getMax() >> 20);
+		System.out.printf("[benchmark]   %.0f products/s, %.1f MB/s%n", rows / seconds, size / 1e6 / seconds);
+		System.out.printf("[benchmark]   heap used: %d MB before, %d MB at peak%n", baseline >> 20, peak.get() >> 20);
+	}
+
+}
@@ -0,0 +1,169 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.publicis_sapient.products_api.dto.ProductDTO;
+import com.publicis_sapient.products_api.service.ProductService;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"catalog.load-on-startup=false", "spring.datasource.url=jdbc:h2:mem:import", "import.max-rejected-rows=2" })
+class ProductImportTest {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void streamsNdjsonAndReportsRejectedRows() throws Exception {
+		StringBuilder body = new StringBuilder();
+		for (int i = 1; i <= 250; i++) {
+			if (i == 7) {
+				body.append("{\"sku\":\"SKU-BAD-PRICE\",\"title\":\"Broken\",\"price\":\"cheap\"}\n");
+			} else if (i == 12) {
+				body.append("{\"title\":\"No SKU\",\"price\":1.0}\n");
+			} else {
+				body.append(objectMapper.writeValueAsString(StubUpstream.product(i))).append('\n');
+			}
+		}
+
+		HttpResponse<String> response = client.send(
+				HttpRequest.newBuilder(URI.create(url("/import"))).header("Content-Type", "application/x-ndjson")
+						.POST(HttpRequest.BodyPublishers.ofString(body.toString())).build(),
+				HttpResponse.BodyHandlers.ofString());
+
+		assertEquals(200, response.statusCode());
+		JsonNode report = objectMapper.readTree(response.body());
+		assertEquals("COMPLETED_WITH_FAILURES", report.get("status").asText());
+		assertTrue(report.get("activated").asBoolean());
+		assertEquals(250, report.get("productsRead").asLong());
+		assertEquals(248, report.get("productsSaved").asLong());
+		assertEquals(2, report.get("productsRejected").asLong());
+
+		JsonNode rejected = report.get("rejectedRows");
+		assertEquals(2, rejected.size());
+		assertEquals(7, rejected.get(0).get("row").asLong());
+		assertEquals(7, rejected.get(0).get("line").asLong());
+		assertTrue(rejected.get(0).get("error").asText().contains("cheap"));
+		assertEquals(12, rejected.get(1).get("row").asLong());
+		assertEquals("sku is required", rejected.get(1).get("error").asText());
+
+		assertEquals(248, productService.findAll().size());
+		assertTrue(productService.findBySku("SKU-00000250").isPresent());
+
+		JsonNode progress = objectMapper.readTree(client
+				.send(HttpRequest.newBuilder(URI.create(url("/import/progress"))).build(),
+						HttpResponse.BodyHandlers.ofString())
+				.body());
+		assertFalse(progress.get("running").asBoolean());
+		assertEquals(250, progress.get("rowsRead").asLong());
+		assertEquals(body.length(), progress.get("bytesRead").asLong());
+		assertEquals(248, progress.get("report").get("productsSaved").asLong());
+	}
+
+	@Test
+	void importsAGzippedJsonArrayUploadedAsAForm() throws Exception {
+		List<ProductDTO> products = IntStream.rangeClosed(1, 30).mapToObj(StubUpstream::product).toList();
+		ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+			objectMapper.writerWithDefaultPrettyPrinter().writeValue(out, products);
+		}
+		MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+		HttpHeaders partHeaders = new HttpHeaders();
+		partHeaders.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+		form.add("file", new HttpEntity<>(new ByteArrayResource(gzipped.toByteArray()) {
+			@Override
+			public String getFilename() {
+				return "catalog.json.gz";
+			}
+		}, partHeaders));
+
+		JsonNode report = RestClient.create().post().uri(url("/import")).contentType(MediaType.MULTIPART_FORM_DATA)
+				.body(form).retrieve().body(JsonNode.class);
+
+		assertEquals("COMPLETED", report.get("status").asText());
+		assertEquals("import:catalog.json.gz", report.get("source").asText());
+		assertEquals(30, report.get("productsSaved").asLong());
+		assertTrue(report.get("activated").asBoolean());
+		assertEquals(30, productService.findAll().size());
+	}
+
+	@Test
+	void stopsAtMalformedJsonAndKeepsTheCatalog() throws Exception {
+		String body = objectMapper.writeValueAsString(StubUpstream.product(1)) + "\n{\"sku\": \"SKU-2\", \"title\": \n";
+		int before = productService.findAll().size();
+
+		HttpResponse<String> response = client.send(
+				HttpRequest.newBuilder(URI.create(url("/import"))).header("Content-Type", "application/json")
+						.POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8)).build(),
+				HttpResponse.BodyHandlers.ofString());
+
+		assertEquals(400, response.statusCode());
+		JsonNode report = objectMapper.readTree(response.body());
+		assertEquals("FAILED", report.get("status").asText());
+		assertFalse(report.get("activated").asBoolean());
+		assertTrue(report.get("error").asText().startsWith("Not valid JSON at line 3 (row 2)"));
+		assertEquals(before, productService.findAll().size());
+	}
+
+	@Test
+	void doesNotActivateAnImportWithMoreRejectedRowsThanTolerated() throws Exception {
+		StringBuilder body = new StringBuilder();
+		for (int i = 1; i <= 20; i++) {
+			if (i % 5 == 0) {
+				body.append("{\"title\":\"No SKU\",\"price\":1.0}\n");
+			} else {
+				body.append(objectMapper.writeValueAsString(StubUpstream.product(1000 + i))).append('\n');
+			}
+		}
+		int before = productService.findAll().size();
+
+		HttpResponse<String> response = client.send(
+				HttpRequest.newBuilder(URI.create(url("/import"))).header("Content-Type", "application/x-ndjson")
+						.POST(HttpRequest.BodyPublishers.ofString(body.toString())).build(),
+				HttpResponse.BodyHandlers.ofString());
+
+		assertEquals(422, response.statusCode());
+		JsonNode report = objectMapper.readTree(response.body());
+		assertFalse(report.get("activated").asBoolean());
+		assertEquals(4, report.get("productsRejected").asLong());
+		assertEquals("4 rows failed, more than the 2 tolerated", report.get("error").asText());
+		assertEquals(before, productService.findAll().size());
+		assertTrue(productService.findBySku("SKU-00001001").isEmpty());
+	}
+
+	private String url(String path) {
+		return "http://localhost:" + port + "/api/v1/products" + path;
+	}
+
+}
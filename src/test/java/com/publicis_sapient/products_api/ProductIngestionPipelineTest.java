@@ -0,0 +1,117 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.publicis_sapient.products_api.dao.ProductRepository;
+import com.publicis_sapient.products_api.dto.LoadReport;
+import com.publicis_sapient.products_api.dto.ProductDTO;
+import com.publicis_sapient.products_api.entity.Product;
+import com.publicis_sapient.products_api.service.ProductIngestionPipeline;
+import com.publicis_sapient.products_api.service.ProductService;
+
+@SpringBootTest(properties = { "catalog.load-on-startup=false", "ingest.batch-size=20",
+		"ingest.batch-retry-backoff=1ms", "resilience4j.retry.instances.productApi.waitDuration=10ms" })
+class ProductIngestionPipelineTest {
+
+	private static final long TEST_GENERATION = 1_000_000L;
+
+	private static StubUpstream upstream;
+
+	@Autowired
+	private ProductIngestionPipeline pipeline;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ProductRepository repository;
+
+	@DynamicPropertySource
+	static void upstreamProperties(DynamicPropertyRegistry registry) throws Exception {
+		upstream = new StubUpstream(450);
+		registry.add("external.api.products", upstream::url);
+	}
+
+	@AfterAll
+	static void stopUpstream() {
+		upstream.close();
+	}
+
+	@BeforeEach
+	void clearCatalog() {
+		repository.deleteAll();
+	}
+
+	private Product convert(ProductDTO dto) {
+		Product product = productService.convertToEntity(dto);
+		product.setGeneration(TEST_GENERATION);
+		return product;
+	}
+
+	@Test
+	void testLoadsFeedThroughPipeline() {
+		upstream.failFirstAttempts(1);
+
+		LoadReport report = productService.loadProducts();
+
+		assertEquals(LoadReport.Status.COMPLETED, report.getStatus());
+		assertEquals(450, report.getProductsRead());
+		assertEquals(450, report.getProductsSaved());
+		assertTrue(report.isActivated());
+		assertEquals(450, repository.countByGeneration(report.getGeneration()));
+		assertTrue(report.getProductsPerSecond() > 0);
+		upstream.failFirstAttempts(0);
+	}
+
+	@Test
+	void testDeadLettersOnlyTheFailingRows() {
+		List<ProductDTO> products = new ArrayList<>();
+		for (int i = 1; i <= 200; i++) {
+			products.add(StubUpstream.product(i));
+		}
+		// Two rows reuse an existing SKU and violate the unique constraint
+		products.get(57).setSku(products.get(3).getSku());
+		products.get(158).setSku(products.get(120).getSku());
+
+		LoadReport report = pipeline.run("test", sink -> {
+			for (int i = 0; i < products.size(); i += 25) {
+				sink.accept(products.subList(i, Math.min(i + 25, products.size())));
+			}
+		}, this::convert);
+
+		assertEquals(LoadReport.Status.COMPLETED_WITH_FAILURES, report.getStatus());
+		assertEquals(200, report.getProductsRead());
+		assertEquals(198, report.getProductsSaved());
+		assertEquals(2, report.getProductsDeadLettered());
+		assertEquals(2, report.getDeadLetters().size());
+		// Three attempts on the full batch, then one more for each split on the way down to the row
+		report.getDeadLetters().forEach(deadLetter -> assertTrue(deadLetter.getAttempts() > 3,
+				"attempts: " + deadLetter.getAttempts()));
+		assertTrue(report.getBatchRetries() > 0);
+		assertEquals(198, repository.countByGeneration(TEST_GENERATION));
+	}
+
+	@Test
+	void testReportsSourceFailure() {
+		LoadReport report = pipeline.run("broken", sink -> {
+			sink.accept(List.of(StubUpstream.product(1)));
+			throw new IllegalStateException("feed went away");
+		}, this::convert);
+
+		assertEquals(LoadReport.Status.FAILED, report.getStatus());
+		assertEquals("feed went away", report.getError());
+		assertEquals(1, report.getProductsSaved());
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.publicis_sapient.products_api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.publicis_sapient.products_api.entity.Product;
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+import com.publicis_sapient.products_api.service.ProductService;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Compares product queries served by the read model against loading the
+ * generation's rows and filtering them in Java. Run with
+ * {@code mvn test -Pbenchmark}; size with {@code -Dbenchmark.catalogSize=...}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = { "catalog.load-on-startup=false", "spring.jpa.show-sql=false",
+		"spring.datasource.url=jdbc:h2:mem:querybenchmark" })
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ProductQueryBenchmark {
+
+	private static final int CATALOG_SIZE = Integer.getInteger("benchmark.catalogSize", 200_000);
+	private static final int ITERATIONS = 7;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private CatalogGenerationService generationService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private long generation;
+
+	@BeforeAll
+	void loadCatalog() {
+		generation = generationService.startBuild();
+		List<Object[]> rows = new ArrayList<>(CATALOG_SIZE);
+		for (int i = 1; i <= CATALOG_SIZE; i++) {
+			var product = StubUpstream.product(i);
+			rows.add(new Object[] { (long) i, generation, product.getTitle(), product.getCategory(),
+					product.getCategory().toLowerCase(Locale.ROOT), product.getPrice(), product.getSku(),
+					product.getBrand() });
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO product (id, generation, title, category, category_key, price, sku, brand)"
+				+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+		generationService.assignProductIds(generation);
+		generationService.activate(generation, CATALOG_SIZE);
+		jdbcTemplate.execute("ANALYZE");
+
+		long start = System.nanoTime();
+		productService.findAll();
+		System.out.printf("%n[benchmark] read model for %d products built in %d ms%n", CATALOG_SIZE,
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+	@Test
+	void benchmarkCategoryFilterWithPriceSort() {
+		String category = "Laptops";
+		report("category + price sort", () -> loadGeneration().stream()
+				.filter(p -> p.getCategory().equalsIgnoreCase(category))
+				.sorted(Comparator.comparing(Product::getPrice)).collect(Collectors.toList()),
+				() -> productService.findProducts(category, null, "asc"));
+	}
+
+	@Test
+	void benchmarkSearchTerm() {
+		String term = "SKU-0001234";
+		report("search term", () -> loadGeneration().stream()
+				.filter(p -> p.getTitle().toLowerCase().contains(term.toLowerCase())
+						|| p.getSku().toLowerCase().contains(term.toLowerCase()))
+				.collect(Collectors.toList()),
+				() -> productService.findProducts(null, term, null));
+	}
+
+	private List<Product> loadGeneration() {
+		return entityManager.createQuery("SELECT p FROM Product p WHERE p.generation = :generation", Product.class)
+				.setParameter("generation", generation).getResultList();
+	}
+
+	private void report(String name, Supplier<List<?>> tableScan, Supplier<List<?>> readModel) {
+		long[] tableScanMillis = time(tableScan);
+		long[] readModelMillis = time(readModel);
+		System.out.printf("%n[benchmark] %s over %d products%n", name, CATALOG_SIZE);
+		System.out.printf("[benchmark]   table scan median %6d ms  (runs %s)%n", median(tableScanMillis),
+				Arrays.toString(tableScanMillis));
+		System.out.printf("[benchmark]   read model median %6d ms  (runs %s)%n", median(readModelMillis),
+				Arrays.toString(readModelMillis));
+	}
+
+	private long[] time(Supplier<List<?>> query) {
+		long[] millis = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			// A fresh persistence context per run, as a request would have
+			transactionTemplate.executeWithoutResult(status -> query.get());
+			millis[i] = (System.nanoTime() - start) / 1_000_000;
+		}
+		return millis;
+	}
+
+	private static long median(long[] values) {
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.publicis_sapient.products_api.dto.ProductDTO;
+import com.publicis_sapient.products_api.entity.Product;
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+import com.publicis_sapient.products_api.service.ProductIngestionPipeline;
+import com.publicis_sapient.products_api.service.ProductService;
+import com.publicis_sapient.products_api.view.ProductView;
+
+@SpringBootTest(properties = { "catalog.load-on-startup=false", "spring.jpa.show-sql=false",
+		"spring.datasource.url=jdbc:h2:mem:queryplans" })
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ProductQueryPlanTest {
+
+	private static final int CATALOG_SIZE = 2000;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ProductIngestionPipeline pipeline;
+
+	@Autowired
+	private CatalogGenerationService generationService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<ProductDTO> catalog = new ArrayList<>();
+
+	private long generation;
+
+	@BeforeAll
+	void loadCatalog() {
+		for (int i = 1; i <= CATALOG_SIZE; i++) {
+			catalog.add(StubUpstream.product(i));
+		}
+		generation = generationService.startBuild();
+		pipeline.run("test", sink -> sink.accept(catalog), dto -> {
+			Product product = productService.convertToEntity(dto);
+			product.setGeneration(generation);
+			return product;
+		});
+		generationService.activate(generation, CATALOG_SIZE);
+		jdbcTemplate.execute("ANALYZE");
+	}
+
+	@Test
+	void testCategoryFilterAndSortMatchInMemoryResult() {
+		List<String> expected = catalog.stream().filter(p -> p.getCategory().equalsIgnoreCase("LAPTOPS"))
+				.sorted(Comparator.comparing(ProductDTO::getPrice).reversed()).map(ProductDTO::getSku)
+				.collect(Collectors.toList());
+
+		List<String> actual = productService.findProducts("LAPTOPS", null, "desc").stream().map(ProductView::sku)
+				.collect(Collectors.toList());
+
+		assertEquals(CATALOG_SIZE / 10, actual.size());
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	void testSearchTermMatchesTitleSkuOrId() {
+		assertEquals(10, productService.findProducts(null, "SKU-0000123", null).size());
+		assertTrue(productService.findProducts(null, "chanel", "asc").stream()
+				.allMatch(p -> p.title().toLowerCase().contains("chanel")));
+
+		ProductView any = productService.findAll().get(0);
+		assertTrue(productService.findProducts(null, Long.toString(any.id()), null).stream()
+				.anyMatch(p -> p.id() == any.id()));
+
+		// LIKE wildcards in the search term are matched literally
+		assertTrue(productService.findProducts(null, "%", null).isEmpty());
+	}
+
+	@Test
+	void testGenerationScansUseAnIndex() {
+		// As the read model, search and suggest indexes are built
+		String plan = explain("SELECT p.id, p.title FROM product p WHERE p.generation = ?", generation);
+		assertFalse(plan.contains("tableScan"), plan);
+	}
+
+	@Test
+	void testReviewPageUsesProductIdIndex() {
+		String plan = explain("SELECT r.rating FROM product p JOIN product_reviews r ON r.product_id = p.id"
+				+ " WHERE p.generation = ? AND p.product_id = ?", generation, 42L);
+		assertTrue(plan.contains("IDX_PRODUCT_GENERATION_PRODUCT_ID"), plan);
+	}
+
+	@Test
+	void testSkuLookupUsesUniqueIndex() {
+		// As the stock level is read
+		String plan = explain("SELECT s.stock - s.reserved FROM product_stock s"
+				+ " JOIN product p ON p.sku = s.sku AND p.generation = ? WHERE s.sku = ?", generation, "SKU-00000042");
+		assertTrue(plan.contains("UK_PRODUCT_GENERATION_SKU"), plan);
+	}
+
+	@Test
+	void testActivationDiffJoinsOnUniqueIndex() {
+		String plan = explain("SELECT n.sku FROM product n LEFT JOIN product o ON o.generation = ? AND o.sku = n.sku"
+				+ " WHERE n.generation = ? AND o.id IS NULL", generation - 1, generation);
+		assertTrue(plan.contains("UK_PRODUCT_GENERATION_SKU"), plan);
+	}
+
+	private String explain(String sql, Object... args) {
+		return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args);
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.publicis_sapient.products_api.dto.ReviewPage;
+import com.publicis_sapient.products_api.entity.Review;
+import com.publicis_sapient.products_api.entity.ReviewSummary;
+import com.publicis_sapient.products_api.service.ProductService;
+import com.publicis_sapient.products_api.view.ProductView;
+
+@SpringBootTest(properties = { "catalog.load-on-startup=false", "spring.datasource.url=jdbc:h2:mem:reviews" })
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ProductReviewsTest {
+
+	private static StubUpstream upstream;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@DynamicPropertySource
+	static void upstreamProperties(DynamicPropertyRegistry registry) throws Exception {
+		upstream = new StubUpstream(20);
+		registry.add("external.api.products", upstream::url);
+	}
+
+	@BeforeAll
+	void loadCatalog() {
+		assertTrue(productService.loadProducts().isActivated());
+	}
+
+	@AfterAll
+	static void stopUpstream() {
+		upstream.close();
+	}
+
+	@Test
+	void summaryIsComputedAtLoadAndReviewsAreNotSerialized() throws Exception {
+		// Detached from any session, the view serializes with its tags and images
+		ProductView product = productService.findBySku("SKU-00000007").orElseThrow();
+		String serialized = objectMapper.writeValueAsString(product);
+
+		// The stub gives item n three reviews rated 1 + (n + r) % 5, one day apart
+		ProductView.ReviewSummary summary = product.reviewSummary();
+		assertEquals(3, summary.reviewCount());
+		assertEquals(4.0, summary.averageRating());
+		assertEquals(List.of(0, 0, 1, 1, 1), List.of(summary.oneStarReviews(), summary.twoStarReviews(),
+				summary.threeStarReviews(), summary.fourStarReviews(), summary.fiveStarReviews()));
+		assertEquals(LocalDateTime.of(2024, 5, 25, 8, 56), summary.latestReviewDate());
+
+		JsonNode json = objectMapper.readTree(serialized);
+		assertFalse(json.has("reviews"));
+		assertFalse(json.has("generation"));
+		assertEquals(3, json.get("reviewSummary").get("reviewCount").asInt());
+		assertEquals(2, json.get("tags").size());
+		assertEquals(1, json.get("images").size());
+	}
+
+	@Test
+	void reviewsArePagedNewestFirst() {
+		Long id = productService.findBySku("SKU-00000007").orElseThrow().id();
+
+		ReviewPage first = productService.findReviews(id, 0, 2).orElseThrow();
+		assertEquals(List.of("Review 2 of item 7", "Review 1 of item 7"),
+				first.getReviews().stream().map(Review::getComment).toList());
+		assertEquals(3, first.getTotalReviews());
+		assertEquals(2, first.getTotalPages());
+
+		ReviewPage second = productService.findReviews(id, 1, 2).orElseThrow();
+		assertEquals(List.of("Review 0 of item 7"), second.getReviews().stream().map(Review::getComment).toList());
+		assertTrue(productService.findReviews(id, 5, 2).orElseThrow().getReviews().isEmpty());
+		assertTrue(productService.findReviews(Long.MAX_VALUE, 0, 2).isEmpty());
+	}
+
+	@Test
+	void summaryOfNoReviews() {
+		ReviewSummary summary = ReviewSummary.of(null);
+
+		assertEquals(0, summary.getReviewCount());
+		assertNull(summary.getAverageRating());
+		assertNull(summary.getLatestReviewDate());
+	}
+
+}
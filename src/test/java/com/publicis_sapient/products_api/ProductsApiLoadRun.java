@@ -0,0 +1,112 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application against a local {@link StubUpstream} feed, loads the
+ * catalog through {@code /load} and drives a mixed read workload at a fixed
+ * rate. The report lands in {@code target/loadtest}.
+ *
+ * Run with {@code mvn test -Ploadtest}. Tune with {@code -Dloadtest.rate},
+ * {@code .duration}, {@code .warmup}, {@code .catalogSize},
+ * {@code .upstreamLatencyMs} and {@code .seed}; any
+ * {@code -Dloadtest.app.<property>} is passed to the application.
+ */
+@Tag("loadtest")
+class ProductsApiLoadRun {
+
+	private static final String[] CATEGORIES = { "beauty", "fragrances", "furniture", "groceries", "laptops",
+			"smartphones", "tablets", "mens-shirts", "womens-dresses", "sports-accessories" };
+
+	@Test
+	void runMixedReadLoad() throws Exception {
+		int catalogSize = Integer.getInteger("loadtest.catalogSize", 2_000);
+		long upstreamLatencyMs = Long.getLong("loadtest.upstreamLatencyMs", 0);
+		double rate = Double.parseDouble(System.getProperty("loadtest.rate", "200"));
+		Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration", 30));
+		Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup", 10));
+		long seed = Long.getLong("loadtest.seed", 42);
+
+		try (StubUpstream upstream = new StubUpstream(catalogSize).latencyMillis(upstreamLatencyMs);
+				ConfigurableApplicationContext app = start(upstream)) {
+			int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+			String baseUrl = "http://127.0.0.1:" + port + "/api/v1/products";
+			HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(8))
+					.connectTimeout(Duration.ofSeconds(2)).build();
+
+			HttpResponse<String> load = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/load")).build(),
+					HttpResponse.BodyHandlers.ofString());
+			assertEquals(200, load.statusCode(), "Catalog load failed: " + load.body());
+
+			LoadGenerator generator = new LoadGenerator(client, baseUrl, trafficMix(catalogSize),
+					Duration.ofSeconds(30));
+			generator.run(rate, warmup, seed - 1);
+			LoadGenerator.Results results = generator.run(rate, duration, seed);
+
+			Map<String, Object> settings = new LinkedHashMap<>();
+			settings.put("rate", rate);
+			settings.put("duration-s", duration.toSeconds());
+			settings.put("warmup-s", warmup.toSeconds());
+			settings.put("catalog-size", catalogSize);
+			settings.put("upstream-latency-ms", upstreamLatencyMs);
+			settings.put("seed", seed);
+			Path reportDirectory = Path.of("target", "loadtest");
+			LoadGenerator.writeReport(results, settings, reportDirectory);
+			System.out.println(Files.readString(reportDirectory.resolve("report.txt")));
+
+			assertEquals(0, results.unfinished, "Requests still outstanding after the run");
+		}
+	}
+
+	private static ConfigurableApplicationContext start(StubUpstream upstream) {
+		Map<String, Object> properties = new LinkedHashMap<>();
+		properties.put("server.port", 0);
+		properties.put("external.api.products", upstream.url());
+		properties.put("catalog.load-on-startup", false);
+		properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest");
+		properties.put("spring.jpa.show-sql", false);
+		properties.put("logging.level.com.publicis_sapient.products_api", "WARN");
+		System.getProperties().stringPropertyNames().stream().filter(name -> name.startsWith("loadtest.app."))
+				.forEach(name -> properties.put(name.substring("loadtest.app.".length()), System.getProperty(name)));
+		// As arguments rather than default properties, so they win over application.properties
+		String[] args = properties.entrySet().stream().map(property -> "--" + property.getKey() + "=" + property.getValue())
+				.toArray(String[]::new);
+		return new SpringApplicationBuilder(ProductsApiApplication.class).run(args);
+	}
+
+	private static List<LoadGenerator.Operation> trafficMix(int catalogSize) {
+		return List.of(new LoadGenerator.Operation("list", 10, random -> ""),
+				new LoadGenerator.Operation("category", 20,
+						random -> "?category=" + CATEGORIES[random.nextInt(CATEGORIES.length)]),
+				new LoadGenerator.Operation("search", 10,
+						random -> "?searchTerm=" + URLEncoder.encode("item " + (1 + random.nextInt(catalogSize)),
+								StandardCharsets.UTF_8) + "&sortOrder=asc"),
+				new LoadGenerator.Operation("sorted", 10,
+						random -> "/sorted?direction=" + (random.nextBoolean() ? "asc" : "desc")),
+				new LoadGenerator.Operation("byId", 25, random -> "/" + (1 + random.nextInt(catalogSize))),
+				new LoadGenerator.Operation("bySku", 15,
+						random -> "/sku/" + String.format("SKU-%08d", 1 + random.nextInt(catalogSize))),
+				new LoadGenerator.Operation("categories", 10, random -> "/categories"));
+	}
+
+}
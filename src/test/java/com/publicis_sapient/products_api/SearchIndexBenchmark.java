@@ -0,0 +1,87 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import com.publicis_sapient.products_api.dto.ProductDTO;
+import com.publicis_sapient.products_api.search.SearchIndex;
+
+/**
+ * Query latency of the full-text index over the stub catalog. Run with
+ * {@code mvn test -Pbenchmark}; size with {@code -Dbenchmark.searchSize=...}.
+ */
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SearchIndexBenchmark {
+
+	private static final int CATALOG_SIZE = Integer.getInteger("benchmark.searchSize", 1_000_000);
+	private static final int WARMUP = 200;
+	private static final int ITERATIONS = 500;
+
+	private SearchIndex index;
+
+	@BeforeAll
+	void buildIndex() {
+		long usedBefore = usedHeap();
+		long start = System.nanoTime();
+		index = build();
+		long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		System.out.printf("%n[benchmark] search index over %d products: %d terms, built in %d ms, ~%d MB heap%n",
+				index.size(), index.termCount(), buildMillis, (usedHeap() - usedBefore) / (1024 * 1024));
+	}
+
+	private static SearchIndex build() {
+		SearchIndex.Builder builder = new SearchIndex.Builder(1, Map.of(SearchIndex.Field.TITLE, 3f,
+				SearchIndex.Field.BRAND, 2f, SearchIndex.Field.TAGS, 1.5f, SearchIndex.Field.DESCRIPTION, 1f), 1.2f,
+				0.75f);
+		for (int i = 1; i <= CATALOG_SIZE; i++) {
+			ProductDTO product = StubUpstream.product(i);
+			builder.add(i, product.getTitle(), product.getBrand(), String.join(" ", product.getTags()),
+					product.getDescription());
+		}
+		return builder.build();
+	}
+
+	@Test
+	void benchmarkQueries() {
+		String[] queries = { "item 123456", "Apple", "laptops", "apple laptops", "lapotps", "samsnug smartphones",
+				"stub catalog item" };
+		for (String query : queries) {
+			report(query);
+		}
+		assertEquals(123456L, index.search("item 123456", 20).get(0).productId());
+		assertFalse(index.search("lapotps", 20).isEmpty());
+	}
+
+	private void report(String query) {
+		for (int i = 0; i < WARMUP; i++) {
+			index.search(query, 20);
+		}
+		long[] micros = new long[ITERATIONS];
+		int hits = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			hits = index.search(query, 20).size();
+			micros[i] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+		}
+		Arrays.sort(micros);
+		System.out.printf("[benchmark]   %-22s top %2d  p50 %7.2f ms  p99 %7.2f ms  max %7.2f ms%n", "'" + query + "'",
+				hits, micros[ITERATIONS / 2] / 1000.0, micros[ITERATIONS * 99 / 100] / 1000.0,
+				micros[ITERATIONS - 1] / 1000.0);
+	}
+
+	private static long usedHeap() {
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
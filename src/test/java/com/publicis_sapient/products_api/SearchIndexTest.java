@@ -0,0 +1,108 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.publicis_sapient.products_api.search.SearchIndex;
+
+class SearchIndexTest {
+
+	private SearchIndex index;
+
+	@BeforeEach
+	void buildIndex() {
+		index = new SearchIndex.Builder(1, Map.of(SearchIndex.Field.TITLE, 3f, SearchIndex.Field.BRAND, 2f,
+				SearchIndex.Field.TAGS, 1.5f, SearchIndex.Field.DESCRIPTION, 1f), 1.2f, 0.75f)
+				.add(1, "Gaming Laptop 15", "Lenovo", "laptops gaming", "A fast laptop for games.")
+				.add(2, "Laptop Sleeve", "Generic", "accessories", "Fits any 15 inch notebook.")
+				.add(3, "Wireless Mouse", "Logitech", "accessories", "Pairs with a laptop over bluetooth.")
+				.add(4, "Office Chair", "Ikea", "furniture", "Ergonomic chair with lumbar support.")
+				.add(5, "Mechanical Keyboard", "Logitech", "accessories gaming", "Tactile switches.")
+				.build();
+	}
+
+	@Test
+	void titleMatchesOutrankDescriptionMatches() {
+		List<Long> ids = productIds(index.search("laptop", 10));
+
+		assertEquals(3, ids.size());
+		assertEquals(3L, ids.get(2));
+	}
+
+	@Test
+	void documentsMatchingMoreTermsRankFirst() {
+		List<Long> ids = productIds(index.search("logitech gaming", 10));
+
+		assertEquals(5L, ids.get(0));
+		assertTrue(ids.containsAll(List.of(1L, 3L)));
+	}
+
+	@Test
+	void toleratesTypos() {
+		assertEquals(4L, index.search("chiar", 10).get(0).productId());
+		assertEquals(5L, index.search("mechanicl keybaord", 10).get(0).productId());
+		// Short words must match exactly
+		assertTrue(index.search("cha", 10).isEmpty());
+	}
+
+	@Test
+	void returnsOnlyTheTopResultsInScoreOrder() {
+		List<SearchIndex.Hit> hits = index.search("laptop accessories gaming", 2);
+
+		assertEquals(2, hits.size());
+		assertTrue(hits.get(0).score() >= hits.get(1).score());
+		assertEquals(productIds(index.search("laptop accessories gaming", 10)).subList(0, 2), productIds(hits));
+	}
+
+	@Test
+	void pruningKeepsTheSameTopScoresAsScoringEveryMatch() {
+		SplittableRandom random = new SplittableRandom(42);
+		String[] words = new String[300];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = "word" + i;
+		}
+		SearchIndex.Builder builder = new SearchIndex.Builder(1, Map.of(SearchIndex.Field.TITLE, 3f), 1.2f, 0.75f);
+		for (int doc = 0; doc < 5_000; doc++) {
+			builder.add(doc, text(random, words, 3 + random.nextInt(5)), text(random, words, 1),
+					text(random, words, 2), text(random, words, 5 + random.nextInt(20)));
+		}
+		SearchIndex large = builder.build();
+
+		for (int q = 0; q < 50; q++) {
+			String query = text(random, words, 1 + random.nextInt(4));
+			List<SearchIndex.Hit> pruned = large.search(query, 10);
+			List<SearchIndex.Hit> exhaustive = large.search(query, large.size()).subList(0, pruned.size());
+			// Terms are summed in a different order, so scores may differ in the last bit
+			for (int i = 0; i < pruned.size(); i++) {
+				assertEquals(exhaustive.get(i).score(), pruned.get(i).score(), 1e-4f, query);
+			}
+		}
+	}
+
+	@Test
+	void ignoresStopWordsAndCase() {
+		assertEquals(productIds(index.search("OFFICE chair", 10)), productIds(index.search("the office and chair", 10)));
+		assertTrue(index.search("the and", 10).isEmpty());
+	}
+
+	private static String text(SplittableRandom random, String[] words, int length) {
+		// Skewed towards the first words, as real vocabularies are
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			int index = (int) (words.length * Math.pow(random.nextDouble(), 3));
+			text.append(words[index]).append(' ');
+		}
+		return text.toString();
+	}
+
+	private static List<Long> productIds(List<SearchIndex.Hit> hits) {
+		return hits.stream().map(SearchIndex.Hit::productId).toList();
+	}
+
+}
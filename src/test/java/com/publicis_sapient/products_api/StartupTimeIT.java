@@ -0,0 +1,123 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures the time from process start to the first 200 on
+ * {@code /api/v1/products}, for the plain jar and for the fast-startup build
+ * (AOT-processed, class data sharing archive, "fast" profile).
+ *
+ * Runs in {@code mvn verify -Pfast-startup}, which builds both. Set
+ * {@code -Dstartup.budgetMillis} to fail the build when the fast-startup
+ * median goes over budget.
+ */
+class StartupTimeIT {
+
+	private static final int RUNS = Integer.getInteger("startup.runs", 3);
+	private static final Duration TIMEOUT = Duration.ofSeconds(90);
+
+	private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+	private final Path reportDirectory = Path.of("target", "startup").toAbsolutePath();
+
+	@Test
+	void measureTimeToFirstResponse() throws Exception {
+		Path plainJar = Path.of(System.getProperty("startup.plainJar"));
+		Path fastJar = Path.of(System.getProperty("startup.fastJar"));
+		Path archive = Path.of(System.getProperty("startup.cdsArchive"));
+		assertTrue(Files.exists(archive), "CDS archive missing: " + archive);
+		Files.createDirectories(reportDirectory);
+
+		try (StubUpstream upstream = new StubUpstream(100)) {
+			long[] plain = new long[RUNS];
+			long[] fast = new long[RUNS];
+			for (int run = 0; run < RUNS; run++) {
+				plain[run] = timeToFirstResponse("plain-" + run, upstream, plainJar.getParent(),
+						List.of("-jar", plainJar.getFileName().toString()));
+				// Same working directory and relative jar path as the training run, or the JVM rejects the archive
+				fast[run] = timeToFirstResponse("fast-" + run, upstream, fastJar.getParent(),
+						List.of("-XX:SharedArchiveFile=" + archive.getFileName(), "-Dspring.aot.enabled=true",
+								"-Dspring.profiles.active=fast", "-jar", fastJar.getFileName().toString()));
+			}
+
+			List<String> report = new ArrayList<>();
+			report.add("# Process start to first 200 on /api/v1/products, ms");
+			report.add(String.format("%-14s %8s  %s", "build", "median", "runs"));
+			report.add(String.format("%-14s %8d  %s", "plain", median(plain), Arrays.toString(plain)));
+			report.add(String.format("%-14s %8d  %s", "fast-startup", median(fast), Arrays.toString(fast)));
+			Files.write(reportDirectory.resolve("report.txt"), report);
+			report.forEach(System.out::println);
+
+			Long budget = Long.getLong("startup.budgetMillis");
+			if (budget != null) {
+				assertTrue(median(fast) <= budget,
+						"Fast-startup median " + median(fast) + " ms is over the " + budget + " ms budget");
+			}
+		}
+	}
+
+	private long timeToFirstResponse(String name, StubUpstream upstream, Path workingDirectory, List<String> launch)
+			throws IOException, InterruptedException {
+		int port = freePort();
+		List<String> command = new ArrayList<>();
+		command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(launch);
+		command.add("--server.port=" + port);
+		command.add("--external.api.products=" + upstream.url());
+		command.add("--spring.datasource.url=jdbc:h2:mem:startup");
+		command.add("--logging.file.name=" + reportDirectory.resolve(name + ".log"));
+
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/v1/products"))
+				.timeout(Duration.ofSeconds(5)).build();
+		long started = System.nanoTime();
+		Process process = new ProcessBuilder(command).directory(workingDirectory.toFile()).redirectErrorStream(true)
+				.redirectOutput(reportDirectory.resolve(name + ".out").toFile()).start();
+		try {
+			while (System.nanoTime() - started < TIMEOUT.toNanos()) {
+				assertTrue(process.isAlive(), name + " exited early, see " + reportDirectory.resolve(name + ".out"));
+				try {
+					if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+						return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+					}
+				} catch (IOException notListeningYet) {
+					// keep polling
+				}
+				Thread.sleep(5);
+			}
+			return fail(name + " did not answer within " + TIMEOUT);
+		} finally {
+			process.destroy();
+			if (!process.waitFor(10, TimeUnit.SECONDS)) {
+				process.destroyForcibly();
+			}
+		}
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	private static long median(long[] values) {
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+}
@@ -0,0 +1,286 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.publicis_sapient.products_api.dto.StockLevel;
+import com.publicis_sapient.products_api.exception.InsufficientStockException;
+import com.publicis_sapient.products_api.exception.InvalidReleaseException;
+import com.publicis_sapient.products_api.exception.ProductNotFoundException;
+import com.publicis_sapient.products_api.exception.StockUnavailableException;
+import com.publicis_sapient.products_api.service.CatalogGenerationService;
+import com.publicis_sapient.products_api.service.ProductService;
+import com.publicis_sapient.products_api.service.StockService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest(properties = { "catalog.load-on-startup=false", "spring.datasource.url=jdbc:h2:mem:stock",
+		"stock.flush-interval=50ms", "stock.lease.handoff-timeout=2s" })
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StockReservationTest {
+
+	private static final int THREADS = 16;
+
+	private static StubUpstream upstream;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private StockService stockService;
+
+	@Autowired
+	private CatalogGenerationService generationService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@DynamicPropertySource
+	static void upstreamProperties(DynamicPropertyRegistry registry) throws Exception {
+		upstream = new StubUpstream(20);
+		registry.add("external.api.products", upstream::url);
+	}
+
+	@BeforeAll
+	void loadCatalog() {
+		assertTrue(productService.loadProducts().isActivated());
+	}
+
+	@AfterAll
+	static void stopUpstream() {
+		upstream.close();
+	}
+
+	@Test
+	void hotSkuIsNeverOversoldAndOutpacesATransactionPerRequest() throws Exception {
+		String sku = "SKU-00000011";
+		int stock = 100_000;
+		jdbcTemplate.update("UPDATE product_stock SET stock = ? WHERE sku = ?", stock, sku);
+		int logged = countChanges(sku);
+
+		Attempts counted = attempt(THREADS, 10_000, buyer -> {
+			stockService.reserve(sku, 1);
+			return true;
+		});
+
+		assertEquals(stock, counted.succeeded.get());
+		assertEquals(THREADS * 10_000 - stock, counted.rejected.get());
+		assertEquals(0, stockService.getLevel(sku).getAvailable());
+		// Written behind: every confirmed reservation, and none of it to the catalog
+		stockService.flush();
+		assertEquals(stock, jdbcTemplate.queryForObject("SELECT reserved FROM product_stock WHERE sku = ?",
+				Integer.class, sku));
+		assertEquals(stock, jdbcTemplate.queryForObject(
+				"SELECT SUM(quantity) FROM stock_reservation WHERE sku = ?", Integer.class, sku));
+		assertEquals(11, jdbcTemplate.queryForObject("SELECT stock FROM product WHERE generation = ? AND sku = ?",
+				Integer.class, generationService.currentGeneration(), sku));
+		assertEquals(logged, countChanges(sku));
+
+		// The same hot SKU reserved with a transaction per request, as counters replace
+		String baselineSku = "SKU-00000012";
+		jdbcTemplate.update("UPDATE product_stock SET stock = ? WHERE sku = ?", stock, baselineSku);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		Attempts baseline = attempt(THREADS, 200, buyer -> transactionTemplate.execute(status -> {
+			if (jdbcTemplate.update("UPDATE product_stock SET reserved = reserved + 1 WHERE sku = ?"
+					+ " AND stock - reserved >= 1", baselineSku) == 0) {
+				return false;
+			}
+			long id = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR stock_reservation_seq", Long.class);
+			jdbcTemplate.update("INSERT INTO stock_reservation (id, sku, quantity, created_at)"
+					+ " VALUES (?, ?, 1, CURRENT_TIMESTAMP)", id, baselineSku);
+			return true;
+		}));
+		assertEquals(THREADS * 200, baseline.succeeded.get());
+
+		double perSecond = counted.perSecond();
+		double baselinePerSecond = baseline.perSecond();
+		System.out.printf("[stock] in-memory counters: %.0f reservations/s, transaction per request: %.0f/s%n",
+				perSecond, baselinePerSecond);
+		assertTrue(perSecond > 10 * baselinePerSecond,
+				"Counters reserved " + perSecond + "/s, a transaction per request " + baselinePerSecond + "/s");
+	}
+
+	@Test
+	void hotSkuIsNeverOversoldAcrossReplicas() throws Exception {
+		String sku = "SKU-00000013";
+		int stock = 1_000;
+		jdbcTemplate.update("UPDATE product_stock SET stock = ? WHERE sku = ?", stock, sku);
+		// A second instance on the same database stands in for another replica
+		StockService otherReplica = new StockService(jdbcTemplate, generationService, transactionManager,
+				new SimpleMeterRegistry(), Duration.ofSeconds(10), Duration.ofSeconds(10));
+		ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+		flusher.scheduleWithFixedDelay(otherReplica::flush, 50, 50, TimeUnit.MILLISECONDS);
+		Attempts counted;
+		try {
+			// Half the buyers on each replica, so the SKU is handed back and forth
+			counted = attempt(THREADS, 250, buyer -> {
+				(buyer % 2 == 0 ? stockService : otherReplica).reserve(sku, 1);
+				return true;
+			});
+		} finally {
+			flusher.shutdownNow();
+			otherReplica.handOverAll();
+		}
+
+		assertEquals(stock, counted.succeeded.get());
+		assertEquals(THREADS * 250 - stock, counted.rejected.get());
+		stockService.flush();
+		assertEquals(0, stockService.getLevel(sku).getAvailable());
+		assertEquals(stock, jdbcTemplate.queryForObject("SELECT reserved FROM product_stock WHERE sku = ?",
+				Integer.class, sku));
+		assertEquals(stock, jdbcTemplate.queryForObject(
+				"SELECT SUM(quantity) FROM stock_reservation WHERE sku = ?", Integer.class, sku));
+	}
+
+	@Test
+	void releasesAreBoundByTheReservation() throws Exception {
+		// The stub gives item n a stock of n % 250
+		String sku = "SKU-00000005";
+		StockLevel level = stockService.reserve(sku, 3);
+		assertEquals(2, level.getAvailable());
+		long reservation = level.getReservation();
+		InsufficientStockException rejected = assertThrows(InsufficientStockException.class,
+				() -> stockService.reserve(sku, 3));
+		assertEquals(2, rejected.getAvailable());
+		assertEquals(2, stockService.getLevel(sku).getAvailable());
+
+		assertEquals(4, stockService.release(sku, reservation, 2).getAvailable());
+		InvalidReleaseException tooMany = assertThrows(InvalidReleaseException.class,
+				() -> stockService.release(sku, reservation, 2));
+		assertEquals(1, tooMany.getOutstanding());
+		assertEquals(5, stockService.release(sku, reservation, null).getAvailable());
+		assertThrows(InvalidReleaseException.class, () -> stockService.release(sku, reservation, null));
+		assertThrows(InvalidReleaseException.class, () -> stockService.release("SKU-00000006", reservation, 1));
+		assertEquals(5, stockService.getLevel(sku).getAvailable());
+
+		assertThrows(ProductNotFoundException.class, () -> stockService.reserve("SKU-MISSING", 1));
+		assertThrows(IllegalArgumentException.class, () -> stockService.reserve(sku, 0));
+	}
+
+	@Test
+	void reservationsCarryIntoTheNextGeneration() throws Exception {
+		String sku = "SKU-00000019";
+		long reservation = stockService.reserve(sku, 4).getReservation();
+		assertEquals(15, stockService.getLevel(sku).getAvailable());
+
+		// The reload takes the feed's count again, less what is still reserved
+		assertTrue(productService.loadProducts().isActivated());
+		assertEquals(15, stockService.getLevel(sku).getAvailable());
+		assertEquals(18, stockService.release(sku, reservation, 3).getAvailable());
+
+		// A product the feed dropped has nothing left to release into
+		upstream.catalogSize(18);
+		assertTrue(productService.loadProducts().isActivated());
+		assertThrows(ProductNotFoundException.class, () -> stockService.getLevel(sku));
+		assertEquals(0, stockService.release(sku, reservation, null).getAvailable());
+
+		upstream.catalogSize(20);
+		assertTrue(productService.loadProducts().isActivated());
+		assertEquals(19, stockService.getLevel(sku).getAvailable());
+	}
+
+	@Test
+	void countsSurviveARestart() throws Exception {
+		String sku = "SKU-00000017";
+		long reservation = stockService.reserve(sku, 5).getReservation();
+		stockService.reserve(sku, 2);
+		stockService.release(sku, reservation, 1);
+
+		// Shutdown hands the SKU back; the next instance picks up where it left off
+		stockService.handOverAll();
+		StockService restarted = new StockService(jdbcTemplate, generationService, transactionManager,
+				new SimpleMeterRegistry(), Duration.ofSeconds(10), Duration.ofSeconds(1));
+		try {
+			assertEquals(11, restarted.getLevel(sku).getAvailable());
+			InvalidReleaseException tooMany = assertThrows(InvalidReleaseException.class,
+					() -> restarted.release(sku, reservation, 5));
+			assertEquals(4, tooMany.getOutstanding());
+			assertEquals(15, restarted.release(sku, reservation, null).getAvailable());
+
+			// Held by the restarted instance until it hands the SKU over
+			StockUnavailableException held = assertThrows(StockUnavailableException.class,
+					() -> stockService.reserve(sku, 1));
+			assertEquals(sku, held.getSku());
+			restarted.flush();
+		} finally {
+			restarted.handOverAll();
+		}
+		assertEquals(14, stockService.reserve(sku, 1).getAvailable());
+	}
+
+	private static Attempts attempt(int threads, int attemptsPerThread, Attempt attempt) throws Exception {
+		Attempts attempts = new Attempts();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> buyers = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int buyer = t;
+				buyers.add(pool.submit(() -> {
+					start.await();
+					for (int i = 0; i < attemptsPerThread; i++) {
+						try {
+							(attempt.run(buyer) ? attempts.succeeded : attempts.rejected).incrementAndGet();
+						} catch (InsufficientStockException e) {
+							attempts.rejected.incrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+			long started = System.nanoTime();
+			start.countDown();
+			for (Future<?> buyer : buyers) {
+				buyer.get(60, TimeUnit.SECONDS);
+			}
+			attempts.elapsedNanos = System.nanoTime() - started;
+		} finally {
+			pool.shutdownNow();
+		}
+		return attempts;
+	}
+
+	private int countChanges(String sku) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM catalog_change WHERE sku = ?", Integer.class, sku);
+	}
+
+	private interface Attempt {
+		boolean run(int buyer) throws Exception;
+	}
+
+	private static final class Attempts {
+		private final AtomicInteger succeeded = new AtomicInteger();
+		private final AtomicInteger rejected = new AtomicInteger();
+		private long elapsedNanos;
+
+		private double perSecond() {
+			return (succeeded.get() + rejected.get()) * 1e9 / elapsedNanos;
+		}
+	}
+
+}
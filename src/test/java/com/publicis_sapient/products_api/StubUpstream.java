@@ -0,0 +1,244 @@
+package com.publicis_sapient.products_api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.publicis_sapient.products_api.dto.DimensionsDTO;
+import com.publicis_sapient.products_api.dto.MetaDataDTO;
+import com.publicis_sapient.products_api.dto.ProductDTO;
+import com.publicis_sapient.products_api.dto.ReviewDTO;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the {@code external.api.products} feed. Serves a synthetic
+ * catalog with limit/skip paging and can inject latency and failures.
+ */
+public class StubUpstream implements AutoCloseable {
+
+	private static final String[] CATEGORIES = { "beauty", "fragrances", "furniture", "groceries", "laptops",
+			"smartphones", "tablets", "mens-shirts", "womens-dresses", "sports-accessories" };
+
+	private static final String[] BRANDS = { "Apple", "Samsung", "Essence", "Glamour Beauty", "Velvet Touch",
+			"Chic Cosmetics", "Nail Couture", "Calvin Klein", "Chanel", "Dior", "Annibale Colombo", "Furniture Co." };
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+			.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	private volatile int catalogSize;
+	private volatile int maxPageSize = 100;
+	private volatile long latencyMillis;
+	private volatile int failFirstAttempts;
+	private volatile int failEveryNth;
+
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	private final AtomicInteger failures = new AtomicInteger();
+	private final AtomicInteger gzipResponses = new AtomicInteger();
+	private final Map<Integer, AtomicInteger> attemptsBySkip = new ConcurrentHashMap<>();
+
+	public StubUpstream(int catalogSize) throws IOException {
+		this.catalogSize = catalogSize;
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.executor = Executors.newCachedThreadPool();
+		this.server.setExecutor(executor);
+		this.server.createContext("/products", this::handle);
+		this.server.start();
+	}
+
+	public String url() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/products";
+	}
+
+	public StubUpstream catalogSize(int catalogSize) {
+		this.catalogSize = catalogSize;
+		return this;
+	}
+
+	public StubUpstream maxPageSize(int maxPageSize) {
+		this.maxPageSize = maxPageSize;
+		return this;
+	}
+
+	public StubUpstream latencyMillis(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+		return this;
+	}
+
+	/** Fails the first {@code attempts} requests for every page with HTTP 503. */
+	public StubUpstream failFirstAttempts(int attempts) {
+		this.failFirstAttempts = attempts;
+		return this;
+	}
+
+	/** Fails every n-th request with HTTP 500, regardless of page. */
+	public StubUpstream failEveryNth(int n) {
+		this.failEveryNth = n;
+		return this;
+	}
+
+	public int requests() {
+		return requests.get();
+	}
+
+	public int maxInFlight() {
+		return maxInFlight.get();
+	}
+
+	public int failures() {
+		return failures.get();
+	}
+
+	public int gzipResponses() {
+		return gzipResponses.get();
+	}
+
+	public int attempts(int skip) {
+		AtomicInteger attempts = attemptsBySkip.get(skip);
+		return attempts == null ? 0 : attempts.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		int current = inFlight.incrementAndGet();
+		maxInFlight.accumulateAndGet(current, Math::max);
+		try {
+			int request = requests.incrementAndGet();
+			Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+			int skip = Integer.parseInt(query.getOrDefault("skip", "0"));
+			int limit = Integer.parseInt(query.getOrDefault("limit", "30"));
+			int attempt = attemptsBySkip.computeIfAbsent(skip, k -> new AtomicInteger()).incrementAndGet();
+
+			if (latencyMillis > 0) {
+				Thread.sleep(latencyMillis);
+			}
+			if (attempt <= failFirstAttempts || (failEveryNth > 0 && request % failEveryNth == 0)) {
+				failures.incrementAndGet();
+				exchange.sendResponseHeaders(attempt <= failFirstAttempts ? 503 : 500, -1);
+				return;
+			}
+
+			byte[] body = objectMapper.writeValueAsBytes(page(skip, limit));
+			String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+			if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+				try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+					gzip.write(body);
+				}
+				body = compressed.toByteArray();
+				exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+				gzipResponses.incrementAndGet();
+			}
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			inFlight.decrementAndGet();
+			exchange.close();
+		}
+	}
+
+	private Map<String, Object> page(int skip, int limit) {
+		int pageSize = limit <= 0 ? catalogSize : Math.min(limit, maxPageSize);
+		int end = Math.min(catalogSize, skip + pageSize);
+		List<ProductDTO> products = new ArrayList<>();
+		for (int i = skip; i < end; i++) {
+			products.add(product(i + 1));
+		}
+		Map<String, Object> page = new HashMap<>();
+		page.put("products", products);
+		page.put("total", catalogSize);
+		page.put("skip", skip);
+		page.put("limit", products.size());
+		return page;
+	}
+
+	public static ProductDTO product(int id) {
+		ProductDTO product = new ProductDTO();
+		product.setId((long) id);
+		String brand = BRANDS[id % BRANDS.length];
+		String category = CATEGORIES[id % CATEGORIES.length];
+		product.setTitle(brand + " " + category + " item " + id);
+		product.setDescription("The " + brand + " " + category + " item number " + id + " from the stub catalog.");
+		product.setCategory(category);
+		product.setPrice(1 + (id * 7919L % 100000) / 100.0);
+		product.setDiscountPercentage((id % 30) / 1.5);
+		product.setRating(1 + (id % 400) / 100.0);
+		product.setStock(id % 250);
+		product.setBrand(brand);
+		product.setSku(String.format("SKU-%08d", id));
+		product.setWeight((double) (id % 10));
+		product.setWarrantyInformation("1 year warranty");
+		product.setShippingInformation("Ships in 1-2 business days");
+		product.setAvailabilityStatus(id % 250 == 0 ? "Out of Stock" : "In Stock");
+		product.setReturnPolicy("30 days return policy");
+		product.setMinimumOrderQuantity(1 + id % 5);
+		product.setThumbnail("https://cdn.example.com/products/" + id + "/thumbnail.png");
+		product.setTags(List.of(category, brand.toLowerCase()));
+		DimensionsDTO dimensions = new DimensionsDTO();
+		dimensions.setWidth(10.0);
+		dimensions.setHeight(20.0);
+		dimensions.setDepth(5.0);
+		product.setDimensions(dimensions);
+		MetaDataDTO meta = new MetaDataDTO();
+		meta.setCreatedAt(LocalDateTime.of(2024, 5, 23, 8, 56));
+		meta.setUpdatedAt(LocalDateTime.of(2024, 5, 23, 8, 56));
+		meta.setBarcode(String.valueOf(9_000_000_000L + id));
+		meta.setQrCode("https://cdn.example.com/qr/" + id + ".png");
+		product.setMeta(meta);
+		product.setImages(List.of("https://cdn.example.com/products/" + id + "/1.png"));
+		List<ReviewDTO> reviews = new ArrayList<>();
+		for (int r = 0; r < 3; r++) {
+			ReviewDTO review = new ReviewDTO();
+			review.setRating(1 + (id + r) % 5);
+			review.setComment("Review " + r + " of item " + id);
+			review.setDate(LocalDateTime.of(2024, 5, 23, 8, 56).plusDays(r));
+			review.setReviewerName("Reviewer " + r);
+			review.setReviewerEmail("reviewer" + r + "@example.com");
+			reviews.add(review);
+		}
+		product.setReviews(reviews);
+		return product;
+	}
+
+	private static Map<String, String> parseQuery(String rawQuery) {
+		Map<String, String> query = new HashMap<>();
+		if (rawQuery != null) {
+			for (String pair : rawQuery.split("&")) {
+				int eq = pair.indexOf('=');
+				if (eq > 0) {
+					query.put(pair.substring(0, eq), pair.substring(eq + 1));
+				}
+			}
+		}
+		return query;
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import com.publicis_sapient.products_api.dto.ProductDTO;
+import com.publicis_sapient.products_api.search.SuggestIndex;
+
+/**
+ * Autocomplete latency and footprint over the stub catalog. Run with
+ * {@code mvn test -Pbenchmark}; size with {@code -Dbenchmark.suggestSize=...}.
+ */
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SuggestIndexBenchmark {
+
+	private static final int CATALOG_SIZE = Integer.getInteger("benchmark.suggestSize", 1_000_000);
+	private static final int WARMUP = 2_000;
+	private static final int ITERATIONS = 10_000;
+
+	private SuggestIndex index;
+
+	@BeforeAll
+	void buildIndex() {
+		long usedBefore = usedHeap();
+		long start = System.nanoTime();
+		index = build();
+		long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		System.out.printf("%n[benchmark] suggest index over %d products: %d entries, %d keys, built in %d ms, ~%d MB heap%n",
+				CATALOG_SIZE, index.size(), index.keyCount(), buildMillis, (usedHeap() - usedBefore) / (1024 * 1024));
+	}
+
+	private static SuggestIndex build() {
+		SuggestIndex.Builder builder = new SuggestIndex.Builder(1);
+		Map<String, Integer> brands = new HashMap<>();
+		for (int i = 1; i <= CATALOG_SIZE; i++) {
+			ProductDTO product = StubUpstream.product(i);
+			builder.add(SuggestIndex.Type.TITLE, product.getTitle(), product.getRating().floatValue());
+			builder.add(SuggestIndex.Type.SKU, product.getSku(), product.getRating().floatValue());
+			brands.merge(product.getBrand(), 1, Integer::sum);
+		}
+		brands.forEach((brand, count) -> builder.add(SuggestIndex.Type.BRAND, brand, 5 + (float) Math.log10(1 + count)));
+		return builder.build();
+	}
+
+	@Test
+	void benchmarkPrefixes() {
+		for (String prefix : new String[] { "s", "sam", "item 12", "sku-0012", "sku-00123456", "lap", "zzz" }) {
+			report(prefix);
+		}
+		assertEquals(SuggestIndex.Type.BRAND, index.suggest("sam", 10).get(0).type());
+	}
+
+	private void report(String prefix) {
+		for (int i = 0; i < WARMUP; i++) {
+			index.suggest(prefix, 10);
+		}
+		long[] nanos = new long[ITERATIONS];
+		int suggestions = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			suggestions = index.suggest(prefix, 10).size();
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		System.out.printf("[benchmark]   %-16s top %2d  p50 %7.1f us  p99 %7.1f us  p99.9 %7.1f us%n", "'" + prefix + "'",
+				suggestions, nanos[ITERATIONS / 2] / 1000.0, nanos[ITERATIONS * 99 / 100] / 1000.0,
+				nanos[ITERATIONS * 999 / 1000] / 1000.0);
+	}
+
+	private static long usedHeap() {
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
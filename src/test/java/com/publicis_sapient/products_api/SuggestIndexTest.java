@@ -0,0 +1,96 @@
+package com.publicis_sapient.products_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.publicis_sapient.products_api.search.SuggestIndex;
+import com.publicis_sapient.products_api.search.SuggestIndex.Type;
+
+class SuggestIndexTest {
+
+	private SuggestIndex index;
+
+	@BeforeEach
+	void buildIndex() {
+		index = new SuggestIndex.Builder(1)
+				.add(Type.TITLE, "Samsung Galaxy S10", 4.2f)
+				.add(Type.TITLE, "Galaxy Buds", 4.8f)
+				.add(Type.TITLE, "Sam's Club Card", 2.0f)
+				.add(Type.TITLE, "samsung galaxy s10", 3.0f)
+				.add(Type.BRAND, "Samsung", 6.0f)
+				.add(Type.CATEGORY, "smartphones", 5.5f)
+				.add(Type.SKU, "SKU-0001", 4.2f)
+				.build();
+	}
+
+	@Test
+	void matchesTheStartOfAnyTitleWordBestFirst() {
+		List<String> texts = texts(index.suggest("gal", 10));
+
+		assertEquals(List.of("Galaxy Buds", "Samsung Galaxy S10"), texts);
+	}
+
+	@Test
+	void isCaseInsensitiveAndMergesRepeatedTexts() {
+		List<SuggestIndex.Suggestion> suggestions = index.suggest("SAM", 10);
+
+		assertEquals(List.of("Samsung", "Samsung Galaxy S10", "Sam's Club Card"), texts(suggestions));
+		assertEquals(Type.BRAND, suggestions.get(0).type());
+		assertEquals(4.2f, suggestions.get(1).score());
+	}
+
+	@Test
+	void limitsAndHandlesMisses() {
+		assertEquals(List.of("Samsung"), texts(index.suggest("s", 1)));
+		assertEquals(List.of("SKU-0001"), texts(index.suggest("sku-", 5)));
+		assertTrue(index.suggest("samsungs", 5).isEmpty());
+		assertTrue(index.suggest("zzz", 5).isEmpty());
+		assertTrue(SuggestIndex.empty().suggest("sam", 5).isEmpty());
+	}
+
+	@Test
+	void agreesWithScanningEveryEntry() {
+		SplittableRandom random = new SplittableRandom(7);
+		SuggestIndex.Builder builder = new SuggestIndex.Builder(1);
+		List<String> skus = new ArrayList<>();
+		List<Float> scores = new ArrayList<>();
+		for (int i = 0; i < 3_000; i++) {
+			String sku = "SKU-" + Integer.toString(random.nextInt(50_000), 36).toUpperCase(Locale.ROOT);
+			float score = random.nextInt(500) / 100f;
+			builder.add(Type.SKU, sku, score);
+			int previous = skus.indexOf(sku);
+			if (previous >= 0) {
+				scores.set(previous, Math.max(scores.get(previous), score));
+			} else {
+				skus.add(sku);
+				scores.add(score);
+			}
+		}
+		SuggestIndex large = builder.build();
+
+		for (String prefix : List.of("sku-1", "sku-a", "sku-z", "sku-10", "sku-")) {
+			List<Float> expected = new ArrayList<>();
+			for (int i = 0; i < skus.size(); i++) {
+				if (skus.get(i).toLowerCase(Locale.ROOT).startsWith(prefix)) {
+					expected.add(scores.get(i));
+				}
+			}
+			expected.sort(Comparator.reverseOrder());
+			List<Float> actual = large.suggest(prefix, 8).stream().map(SuggestIndex.Suggestion::score).toList();
+			assertEquals(expected.subList(0, Math.min(8, expected.size())), actual, prefix);
+		}
+	}
+
+	private static List<String> texts(List<SuggestIndex.Suggestion> suggestions) {
+		return suggestions.stream().map(SuggestIndex.Suggestion::text).toList();
+	}
+
+}